@@ -1,21 +1,30 @@
 package com.playtech;
 
-import com.playtech.report.Report;
-import com.playtech.report.transformer.Transformer;
-import com.playtech.util.xml.CsvDataReader;
-import com.playtech.util.xml.JsonlWriter;
-import com.playtech.util.xml.XmlParser;
+import com.playtech.job.JobResult;
+import com.playtech.job.JobRunner;
+import com.playtech.job.ReportJob;
+import com.playtech.report.ReportPipeline;
+import com.playtech.shard.ShardCoordinator;
+import com.playtech.util.reject.RejectBudgetExceededException;
+import com.playtech.util.reject.RejectSink;
 import jakarta.xml.bind.JAXBException;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ReportGenerator {
+    private static final String JOBS_OPTION = "--jobs=";
 
     public static void main(String[] args) {
-        if (args.length != 3) {
-            System.err.println("Usage: java com.playtech.ReportGenerator <csv-input-path> <xml-report-path> <output-directory-path>");
+        if (args.length >= 1 && args[0].startsWith(JOBS_OPTION)) {
+            runJobs(args);
+            return;
+        }
+        if (args.length < 3) {
+            printUsage();
             System.exit(1);
         }
         String csvDataFilePath = args[0];
@@ -28,58 +37,33 @@ public class ReportGenerator {
         System.out.println("Output Dir: " + outputDirectoryPath);
 
         try {
-            System.out.println("Parsing report definition XML...");
-            Report report = XmlParser.parseReport(reportXmlFilePath);
-            System.out.println("Successfully parsed report: " + report.getReportName());
-
-            // basic validation
-            if (report.getOutputFormat() != Report.FileFormat.JSONL) {
-                System.err.println("Error: This implementation only supports JSONL output format.");
-                System.exit(1);
-            }
-            if (report.getInputs() == null || report.getInputs().isEmpty()) {
-                System.err.println("Error: Report definition requires at least one input column.");
-                System.exit(1);
-            }
-            if (report.getOutputs() == null || report.getOutputs().isEmpty()) {
-                System.err.println("Error: Report definition requires at least one output column.");
-                System.exit(1);
-            }
-
-            System.out.println("Reading and parsing CSV data...");
-            List<Map<String, Object>> dataRows = CsvDataReader.readData(csvDataFilePath, report.getInputs());
-            System.out.println("Read " + dataRows.size() + " valid data rows.");
+            Map<String, String> options = parseOptions(args, 3);
 
-            // applying Transformers in specified order
-            System.out.println("Applying transformations...");
-            List<Transformer> transformers = report.getTransformers();
-            if (transformers != null && !transformers.isEmpty()) {
-                int i = 1;
-                for (Transformer transformer : transformers) {
-                    String transformerName = transformer.getClass().getSimpleName();
-                    System.out.println("Applying transformer " + i++ + "/" + transformers.size() + ": " + transformerName);
-                    transformer.transform(report, dataRows);
-                    System.out.println(" -> Data rows after " + transformerName + ": " + dataRows.size());
-                }
-            } else {
-                System.out.println("No transformers defined in the report.");
+            ReportPipeline pipeline = new ReportPipeline(csvDataFilePath, reportXmlFilePath, Paths.get(outputDirectoryPath), options, true);
+            Path outputFile;
+            try {
+                pipeline.prepare();
+                pipeline.read();
+                pipeline.transform();
+                outputFile = pipeline.write();
+            } finally {
+                pipeline.close();
             }
 
-            System.out.println("Writing output file...");
-            JsonlWriter.writeData(
-                    Paths.get(outputDirectoryPath),
-                    report.getReportName(),
-                    report.getOutputs(),
-                    dataRows
-            );
-
             System.out.println("Report generation completed successfully!");
-            System.out.println("Output file: " + Paths.get(outputDirectoryPath).resolve(report.getReportName() + ".jsonl"));
+            System.out.println("Output file: " + outputFile);
+            System.out.println("Metrics file: " + pipeline.getMetricsFile());
+            if (pipeline.getRejectSink().hasRejectFile()) {
+                System.out.println("Rejects file: " + pipeline.getRejectSink().getRejectFile() + " (" + pipeline.getRejectSink().getTotal() + " rejects)");
+            }
 
         } catch (JAXBException e) {
             System.err.println("FATAL: Parsing of the XML report definition file failed: " + reportXmlFilePath);
             e.printStackTrace();
             System.exit(1);
+        } catch (RejectBudgetExceededException e) {
+            System.err.println("FATAL: " + e.getMessage() + ". Aborting report generation.");
+            System.exit(1);
         } catch (IllegalArgumentException e) {
             System.err.println("FATAL: Invalid configuration detected:");
             e.printStackTrace();
@@ -94,4 +78,68 @@ public class ReportGenerator {
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+
+    // runs every job of a jobs file concurrently, exits with 1 if any of them failed
+    private static void runJobs(String[] args) {
+        Path jobsFile = Paths.get(args[0].substring(JOBS_OPTION.length()));
+        try {
+            Map<String, String> options = parseOptions(args, 1);
+            List<ReportJob> jobs = ReportJob.readJobs(jobsFile);
+            List<JobResult> results;
+            try (JobRunner runner = new JobRunner(options)) {
+                results = runner.runAll(jobs);
+            }
+            if (results.stream().anyMatch(result -> !result.isSuccess())) {
+                System.exit(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("FATAL: Interrupted while running jobs from " + jobsFile);
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("FATAL: Invalid configuration detected:");
+            e.printStackTrace();
+            System.exit(1);
+        } catch (RuntimeException e) {
+            System.err.println("FATAL: An unexpected error occurred while running jobs from " + jobsFile + ":");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java com.playtech.ReportGenerator <csv-input-path|directory|'glob'> <xml-report-path> <output-directory-path> [options]");
+        System.err.println("       java com.playtech.ReportGenerator --jobs=<jobs-file> [options]");
+        System.err.println("Jobs file: one <csv-input-path>,<xml-report-path>,<output-directory-path> per line, run concurrently");
+        System.err.println("Options:");
+        System.err.println("  --" + ReportPipeline.OPTION_MAX_REJECTS + "=<n>        abort once more than n rows/values were rejected (default: unlimited)");
+        System.err.println("  --" + ReportPipeline.OPTION_REJECT_SAMPLES + "=<n>     rejects printed to stderr per second (default: " + RejectSink.DEFAULT_SAMPLES_PER_SECOND + ")");
+        System.err.println("  --" + ReportPipeline.OPTION_STORAGE + "=heap|offheap   where parsed rows live, offheap needs java --enable-preview (default: heap)");
+        System.err.println("  --" + ReportPipeline.OPTION_CACHE_DIR + "=<dir>       reuse outputs and aggregated rows of earlier identical runs (default: no cache)");
+        System.err.println("  --" + ReportPipeline.OPTION_CACHE_MAX_MB + "=<n>      size of the cache directory before least recently used entries are evicted (default: " + ReportPipeline.DEFAULT_CACHE_MAX_MB + ")");
+        System.err.println("  --" + ReportPipeline.OPTION_WRITER_THREADS + "=<n>    threads writing the files of a partitioned output (default: cores)");
+        System.err.println("  --" + ReportPipeline.OPTION_READER_THREADS + "=<n>    threads reading the files of a directory or glob input (default: cores)");
+        System.err.println("  --" + ReportPipeline.OPTION_DATE_RANGE + "=<from>..<to> keep rows dated in the range (inclusive ISO dates), skip files whose statistics rule it out");
+        System.err.println("  --" + ReportPipeline.OPTION_DATE_COLUMN + "=<name>     DATE or DATETIME input column of the date range (default: the first one)");
+        System.err.println("  --" + ShardCoordinator.OPTION_SHARDS + "=<n>            read and pre-aggregate the CSV in n local worker processes (default: 1)");
+        System.err.println("  --" + ShardCoordinator.OPTION_SHARD_RETRIES + "=<n>     restarts of a failed worker before the report fails (default: " + ShardCoordinator.DEFAULT_RETRIES + ")");
+        System.err.println("  --" + ShardCoordinator.OPTION_SHARD_HEAP_MB + "=<n>     max heap of each worker process (default: this process' max heap / shards)");
+        System.err.println("  --" + JobRunner.OPTION_MAX_JOBS + "=<n>           jobs running at the same time (default: 2 x cores)");
+        System.err.println("  --" + JobRunner.OPTION_CPU_THREADS + "=<n>        threads for the transform phase (default: cores)");
+        System.err.println("  --" + JobRunner.OPTION_MEMORY_BUDGET_MB + "=<n>   estimated heap shared by running jobs (default: 75% of max heap)");
+    }
+
+    // optional arguments after the positional ones, in --name=value form
+    private static Map<String, String> parseOptions(String[] args, int from) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Invalid option '" + arg + "', expected --name=value");
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,45 @@
+package com.playtech.job;
+
+import java.nio.file.Path;
+
+// outcome of one ReportJob, error is null for successful jobs
+public class JobResult {
+    private final ReportJob job;
+    private final Path outputFile;
+    private final long wallNanos;
+    private final long queuedNanos;
+    private final Throwable error;
+
+    JobResult(ReportJob job, Path outputFile, long wallNanos, long queuedNanos, Throwable error) {
+        this.job = job;
+        this.outputFile = outputFile;
+        this.wallNanos = wallNanos;
+        this.queuedNanos = queuedNanos;
+        this.error = error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public ReportJob getJob() {
+        return job;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    // time spent running, excluding the time waiting for a slot or memory
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+}
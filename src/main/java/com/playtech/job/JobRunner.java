@@ -0,0 +1,163 @@
+package com.playtech.job;
+
+import com.playtech.report.ReportPipeline;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs many report jobs at once.
+ * Each job runs on its own virtual thread, which also does the I/O bound read and write phases.
+ * The CPU bound transform phase is handed to a bounded platform pool sized to the cores, a ForkJoinPool so that
+ * the parallel streams of transformers run in it too instead of in the common pool.
+ * A job slot limit and a heap budget (estimated from the CSV size) make jobs queue instead of running the
+ * JVM out of memory.
+ */
+public class JobRunner implements AutoCloseable {
+    public static final String OPTION_MAX_JOBS = "max-jobs";
+    public static final String OPTION_MEMORY_BUDGET_MB = "memory-budget-mb";
+    public static final String OPTION_CPU_THREADS = "cpu-threads";
+
+    // rough heap cost of the parsed rows per CSV byte (a HashMap of boxed values per row)
+    static final long HEAP_BYTES_PER_INPUT_BYTE = 10;
+    private static final long MB = 1024 * 1024;
+
+    private final Map<String, String> pipelineOptions;
+    private final int maxJobs;
+    private final int memoryBudgetMb;
+    private final int cpuThreads;
+    private final Semaphore jobSlots;
+    private final Semaphore memoryPermits;
+    private final ExecutorService cpuPool;
+
+    public JobRunner(Map<String, String> options) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.pipelineOptions = options;
+        this.cpuThreads = Integer.parseInt(options.getOrDefault(OPTION_CPU_THREADS, String.valueOf(cores)));
+        this.maxJobs = Integer.parseInt(options.getOrDefault(OPTION_MAX_JOBS, String.valueOf(cores * 2)));
+        // leaves some headroom of the max heap for the JVM itself and the per-job bookkeeping
+        long defaultBudgetMb = Runtime.getRuntime().maxMemory() * 3 / 4 / MB;
+        this.memoryBudgetMb = Integer.parseInt(options.getOrDefault(OPTION_MEMORY_BUDGET_MB, String.valueOf(defaultBudgetMb)));
+        if (cpuThreads < 1 || maxJobs < 1 || memoryBudgetMb < 1) {
+            throw new IllegalArgumentException("Job runner limits must be positive: cpu-threads=" + cpuThreads + ", max-jobs=" + maxJobs + ", memory-budget-mb=" + memoryBudgetMb);
+        }
+        this.jobSlots = new Semaphore(maxJobs, true);
+        this.memoryPermits = new Semaphore(memoryBudgetMb, true);
+        this.cpuPool = new ForkJoinPool(cpuThreads, new CpuThreadFactory(), null, false);
+    }
+
+    // runs all jobs and waits for them, results are in the same order as the jobs
+    public List<JobResult> runAll(List<ReportJob> jobs) throws InterruptedException {
+        System.out.println("Running " + jobs.size() + " report jobs (max-jobs=" + maxJobs + ", cpu-threads=" + cpuThreads + ", memory-budget-mb=" + memoryBudgetMb + ")");
+        long start = System.nanoTime();
+        List<Future<JobResult>> futures = new ArrayList<>();
+        try (ExecutorService jobExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ReportJob job : jobs) {
+                futures.add(jobExecutor.submit(() -> runJob(job)));
+            }
+        } // waits for all jobs to finish
+
+        List<JobResult> results = new ArrayList<>();
+        for (Future<JobResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                // runJob catches everything, this is only reached on errors like OutOfMemoryError
+                throw new IllegalStateException("Job runner failed", e.getCause());
+            }
+        }
+        printSummary(results, System.nanoTime() - start);
+        return results;
+    }
+
+    // the slot first, a job waiting for one would otherwise hold memory it doesn't use yet
+    private JobResult runJob(ReportJob job) throws InterruptedException {
+        int memoryMb = estimateMemoryMb(job);
+        long queuedAt = System.nanoTime();
+        jobSlots.acquire();
+        try {
+            memoryPermits.acquire(memoryMb);
+            long startedAt = System.nanoTime();
+            ReportPipeline pipeline = new ReportPipeline(job.getCsvDataFilePath(), job.getReportXmlFilePath(), job.getOutputDir(), pipelineOptions, false);
+            try {
+                pipeline.prepare();
+                pipeline.read();
+                runOnCpuPool(pipeline);
+                Path outputFile = pipeline.write();
+                long wall = System.nanoTime() - startedAt;
+                System.out.println(String.format(Locale.ROOT, "Job done in %d ms: %s", wall / 1_000_000, outputFile));
+                return new JobResult(job, outputFile, wall, startedAt - queuedAt, null);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                System.err.println("Error: Job failed: " + job + ". Error: " + e);
+                return new JobResult(job, null, System.nanoTime() - startedAt, startedAt - queuedAt, e);
+            } finally {
+                pipeline.close();
+                memoryPermits.release(memoryMb);
+            }
+        } finally {
+            jobSlots.release();
+        }
+    }
+
+    private void runOnCpuPool(ReportPipeline pipeline) throws Exception {
+        try {
+            cpuPool.submit(pipeline::transform).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // a job bigger than the whole budget still runs, just alone
+    private int estimateMemoryMb(ReportJob job) {
+        long csvBytes;
+        try {
+            csvBytes = ReportPipeline.inputBytes(job.getCsvDataFilePath(), job.getReportXmlFilePath(), pipelineOptions);
+        } catch (Exception e) {
+            csvBytes = 0; // the pipeline reports the missing file or invalid report
+        }
+        long estimateMb = csvBytes * HEAP_BYTES_PER_INPUT_BYTE / MB + 1;
+        return (int) Math.min(estimateMb, memoryBudgetMb);
+    }
+
+    private static void printSummary(List<JobResult> results, long wallNanos) {
+        long succeeded = results.stream().filter(JobResult::isSuccess).count();
+        double hours = wallNanos / 3_600_000_000_000.0;
+        System.out.println(String.format(Locale.ROOT,
+                "Finished %d jobs (%d succeeded, %d failed) in %d ms, %.1f reports/hour",
+                results.size(), succeeded, results.size() - succeeded, wallNanos / 1_000_000,
+                hours > 0 ? succeeded / hours : 0.0));
+    }
+
+    @Override
+    public void close() {
+        cpuPool.shutdown();
+    }
+
+    private static class CpuThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("report-cpu-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
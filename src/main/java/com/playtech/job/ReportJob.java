@@ -0,0 +1,67 @@
+package com.playtech.job;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// one (CSV, report XML, output directory) triple handled by the JobRunner
+public class ReportJob {
+    private final String csvDataFilePath;
+    private final String reportXmlFilePath;
+    private final Path outputDir;
+
+    public ReportJob(String csvDataFilePath, String reportXmlFilePath, Path outputDir) {
+        this.csvDataFilePath = csvDataFilePath;
+        this.reportXmlFilePath = reportXmlFilePath;
+        this.outputDir = outputDir;
+    }
+
+    /*
+     * Reads a jobs file, one job per line: <csv-input-path>,<xml-report-path>,<output-directory-path>
+     * Empty lines and lines starting with '#' are ignored.
+     */
+    public static List<ReportJob> readJobs(Path jobsFile) {
+        List<ReportJob> jobs = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(jobsFile, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = trimmed.split(",", -1);
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Invalid job on line " + lineNumber + " of " + jobsFile + ", expected <csv>,<xml>,<output-dir> but found: " + line);
+                }
+                jobs.add(new ReportJob(parts[0].trim(), parts[1].trim(), Paths.get(parts[2].trim())));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read jobs file: " + jobsFile, e);
+        }
+        return jobs;
+    }
+
+    public String getCsvDataFilePath() {
+        return csvDataFilePath;
+    }
+
+    public String getReportXmlFilePath() {
+        return reportXmlFilePath;
+    }
+
+    public Path getOutputDir() {
+        return outputDir;
+    }
+
+    @Override
+    public String toString() {
+        return csvDataFilePath + " x " + reportXmlFilePath + " -> " + outputDir;
+    }
+}
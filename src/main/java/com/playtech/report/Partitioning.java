@@ -0,0 +1,61 @@
+package com.playtech.report;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+
+/*
+ * Optional <partitioning> section of a report: splits the output into one directory per value of the
+ * <by> column (DATE and DATETIME values cut to the <granularity>), and rotates files after <maxRows> rows
+ * or <maxBytes> bytes. Either part can be used alone.
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class Partitioning {
+    private String by;
+    private Granularity granularity;
+    private Long maxRows;
+    private Long maxBytes;
+
+    public enum Granularity {
+        DAY,
+        MONTH,
+        YEAR
+    }
+
+    public String getBy() {
+        return by;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public Long getMaxRows() {
+        return maxRows;
+    }
+
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // partition name of a value, null when the value is null
+    public String partitionValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (granularity != null) {
+            LocalDate date = value instanceof ZonedDateTime dateTime ? dateTime.toLocalDate() : value instanceof LocalDate localDate ? localDate : null;
+            if (date != null) {
+                return switch (granularity) {
+                    case DAY -> date.toString();
+                    case MONTH -> YearMonth.from(date).toString();
+                    case YEAR -> String.valueOf(date.getYear());
+                };
+            }
+        }
+        return value.toString();
+    }
+}
@@ -2,12 +2,14 @@ package com.playtech.report;
 
 import com.playtech.report.column.Column;
 import com.playtech.report.transformer.Transformer;
+import com.playtech.util.reject.RejectSink;
 import com.playtech.util.xml.adapters.TransformerAdapter;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlElementWrapper;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlTransient;
 import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import java.util.List;
@@ -27,6 +29,10 @@ public class Report {
     @XmlElement(name = "transformer")
     @XmlJavaTypeAdapter(TransformerAdapter.class)
     private List<Transformer> transformers;
+    private Partitioning partitioning;
+    // runtime only, shared by the reader and transformers of this report run
+    @XmlTransient
+    private RejectSink rejectSink = RejectSink.stderrOnly();
 
     public enum FileFormat {
         CSV,
@@ -51,4 +57,16 @@ public class Report {
     public List<Transformer> getTransformers() {
         return transformers;
     }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    public RejectSink getRejectSink() {
+        return rejectSink;
+    }
+
+    public void setRejectSink(RejectSink rejectSink) {
+        this.rejectSink = rejectSink;
+    }
 }
@@ -0,0 +1,586 @@
+package com.playtech.report;
+
+import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
+import com.playtech.report.transformer.Transformer;
+import com.playtech.report.transformer.impl.AggregatorTransformer;
+import com.playtech.shard.ShardCoordinator;
+import com.playtech.util.cache.CacheKeys;
+import com.playtech.util.cache.ReportCache;
+import com.playtech.util.cache.RowCodec;
+import com.playtech.util.input.DateRange;
+import com.playtech.util.input.InputFiles;
+import com.playtech.util.metrics.PipelineMetrics;
+import com.playtech.util.offheap.OffHeapRows;
+import com.playtech.util.reject.RejectSink;
+import com.playtech.util.xml.CsvDataReader;
+import com.playtech.util.xml.CsvWriter;
+import com.playtech.util.xml.JsonlWriter;
+import com.playtech.util.xml.PartitionedWriter;
+import com.playtech.util.xml.XmlParser;
+import jakarta.xml.bind.JAXBException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One report run (CSV + report XML -> output directory), split into phases so callers can run
+ * the I/O bound phases (read, write) and the CPU bound phase (transform) on different threads.
+ * Phases must be called in order: prepare, read, transform, write.
+ *
+ * With a cache directory, read() first looks for the output of an identical earlier run and copies it,
+ * then transform() has nothing left to do. Otherwise it resumes from the rows cached after the last
+ * Aggregator the report shares with an earlier one, and transform() caches the rows after each Aggregator.
+ * The rejects up to a checkpoint are cached with its rows and replayed on resume, so a resumed run has the
+ * rejects file (and hits the reject budget) of a cold one.
+ *
+ * The CSV path may also be a directory or a glob matching several files (InputFiles). With a date range only
+ * rows whose date column is in it are kept, and files whose statistics rule that out are not even opened.
+ */
+public class ReportPipeline {
+    public static final String OPTION_MAX_REJECTS = "max-rejects";
+    public static final String OPTION_REJECT_SAMPLES = "reject-samples";
+    // "heap" (default) or "offheap"
+    public static final String OPTION_STORAGE = "storage";
+    public static final String OPTION_CACHE_DIR = "cache-dir";
+    public static final String OPTION_CACHE_MAX_MB = "cache-max-mb";
+    public static final long DEFAULT_CACHE_MAX_MB = 1024;
+    // threads writing the partitions of a partitioned output
+    public static final String OPTION_WRITER_THREADS = "writer-threads";
+    // threads reading the files of a multi-file input
+    public static final String OPTION_READER_THREADS = "reader-threads";
+    // "<from>..<to>", inclusive ISO dates
+    public static final String OPTION_DATE_RANGE = "date-range";
+    // DATE or DATETIME input column the date range applies to, the first one by default
+    public static final String OPTION_DATE_COLUMN = "date-column";
+
+    private static final String ROWS_SUFFIX = ".rows";
+
+    private final String csvDataFilePath;
+    private final String reportXmlFilePath;
+    private final Path outputDir;
+    private final Map<String, String> options;
+    private final boolean verbose;
+
+    private Report report;
+    private PipelineMetrics metrics;
+    private RejectSink rejectSink;
+    private List<Map<String, Object>> dataRows;
+    private Path outputFile;
+    private Path metricsFile;
+    private ReportCache cache;
+    private CacheKeys cacheKeys;
+    private boolean cacheHit;
+    private int firstTransformer;
+    // null when the input is one CSV file read without a date range
+    private InputFiles inputFiles;
+    private DateRange dateRange;
+    private Column dateColumn;
+
+    public ReportPipeline(String csvDataFilePath, String reportXmlFilePath, Path outputDir, Map<String, String> options, boolean verbose) {
+        this.csvDataFilePath = csvDataFilePath;
+        this.reportXmlFilePath = reportXmlFilePath;
+        this.outputDir = outputDir;
+        this.options = options;
+        this.verbose = verbose;
+    }
+
+    // parses and validates the report definition, throws IllegalArgumentException for unsupported reports
+    public Report prepare() throws JAXBException {
+        log("Parsing report definition XML...");
+        report = XmlParser.parseReport(reportXmlFilePath);
+        log("Successfully parsed report: " + report.getReportName());
+
+        // basic validation
+        if (report.getOutputFormat() == null) {
+            throw new IllegalArgumentException("Report definition requires an <outputFormat> (JSONL or CSV).");
+        }
+        if (report.getInputs() == null || report.getInputs().isEmpty()) {
+            throw new IllegalArgumentException("Report definition requires at least one input column.");
+        }
+        if (report.getOutputs() == null || report.getOutputs().isEmpty()) {
+            throw new IllegalArgumentException("Report definition requires at least one output column.");
+        }
+        for (Column column : report.getInputs()) {
+            checkDecimalScale(column);
+        }
+        for (Column column : report.getOutputs()) {
+            checkDecimalScale(column);
+        }
+        checkPartitioning(report);
+        resolveInputs();
+
+        metrics = new PipelineMetrics(report.getReportName());
+        rejectSink = RejectSink.forReport(
+                outputDir,
+                report.getReportName(),
+                Long.parseLong(options.getOrDefault(OPTION_MAX_REJECTS, String.valueOf(RejectSink.NO_BUDGET))),
+                Integer.parseInt(options.getOrDefault(OPTION_REJECT_SAMPLES, String.valueOf(RejectSink.DEFAULT_SAMPLES_PER_SECOND))));
+        report.setRejectSink(rejectSink);
+        openCache();
+        return report;
+    }
+
+    public void read() {
+        if (cache != null && (copyCachedOutput() || readCachedRows())) {
+            return;
+        }
+        int shards = Integer.parseInt(options.getOrDefault(ShardCoordinator.OPTION_SHARDS, "1"));
+        if (shards > 1 && inputFiles != null) {
+            System.err.println("Warning: --" + ShardCoordinator.OPTION_SHARDS + " only applies to a single CSV file without --" + OPTION_DATE_RANGE + ", reading in this process.");
+        } else if (shards > 1) {
+            readSharded(shards);
+            return;
+        }
+        if (inputFiles != null) {
+            readFiles();
+            return;
+        }
+        log("Reading and parsing CSV data...");
+        PipelineMetrics.Stage readStage = metrics.begin("read:" + Paths.get(csvDataFilePath).getFileName(), 0);
+        dataRows = CsvDataReader.readData(csvDataFilePath, report.getInputs(), rejectSink, newRowList());
+        readStage.end(dataRows.size(), sizeOf(Paths.get(csvDataFilePath)));
+        log("Read " + dataRows.size() + " valid data rows. (" + readStage.summary() + ")");
+        if (dataRows instanceof OffHeapRows offHeapRows) {
+            log("Rows are stored off-heap (" + offHeapRows.reservedBytes() / (1024 * 1024) + " MB reserved).");
+        }
+    }
+
+    // files of a multi-file input in parallel, rows in file order
+    private void readFiles() {
+        List<Path> files = inputFiles.getFiles();
+        log("Reading and parsing " + files.size() + " CSV files...");
+        int readerThreads = Integer.parseInt(options.getOrDefault(OPTION_READER_THREADS, String.valueOf(Runtime.getRuntime().availableProcessors())));
+        PipelineMetrics.Stage readStage = metrics.begin("read:" + files.size() + " files", 0);
+        dataRows = newRowList();
+        long bytes = inputFiles.read(report.getInputs(), rejectSink,
+                dateRange == null ? null : row -> dateRange.contains(row.get(dateColumn.getName())), dataRows, readerThreads);
+        readStage.end(dataRows.size(), bytes);
+        log("Read " + dataRows.size() + " valid data rows" + (dateRange != null ? " in " + dateRange : "") + ". (" + readStage.summary() + ")");
+    }
+
+    // the workers also apply the transformers up to the first blocking one, transform() continues after it
+    private void readSharded(int shards) {
+        log("Reading and parsing CSV data in " + shards + " worker processes...");
+        int retries = Integer.parseInt(options.getOrDefault(ShardCoordinator.OPTION_SHARD_RETRIES, String.valueOf(ShardCoordinator.DEFAULT_RETRIES)));
+        long heapMb = Long.parseLong(options.getOrDefault(ShardCoordinator.OPTION_SHARD_HEAP_MB, String.valueOf(ShardCoordinator.defaultHeapMb(shards))));
+        ShardCoordinator coordinator = new ShardCoordinator(csvDataFilePath, reportXmlFilePath, report, outputDir, shards, retries, heapMb, verbose);
+        PipelineMetrics.Stage readStage = metrics.begin("read:" + Paths.get(csvDataFilePath).getFileName() + ":" + shards + " shards", 0);
+        dataRows = newRowList();
+        firstTransformer = coordinator.run(dataRows, rejectSink);
+        readStage.end(dataRows.size(), sizeOf(Paths.get(csvDataFilePath)));
+        log("Merged " + dataRows.size() + " rows of " + shards + " shards, " + firstTransformer + " transformer(s) applied by the workers. (" + readStage.summary() + ")");
+        if (cache != null && firstTransformer > 0 && isCheckpoint(report.getTransformers().get(firstTransformer - 1))) {
+            storeRows(firstTransformer - 1);
+        }
+    }
+
+    // applies the transformers in the specified order
+    public void transform() {
+        log("Applying transformations...");
+        List<Transformer> transformers = report.getTransformers();
+        if (transformers == null || transformers.isEmpty()) {
+            log("No transformers defined in the report.");
+            return;
+        }
+        if (cacheHit) {
+            log("Output was taken from the cache, nothing to transform.");
+            return;
+        }
+        for (int i = firstTransformer; i < transformers.size(); i++) {
+            Transformer transformer = transformers.get(i);
+            String transformerName = transformer.getClass().getSimpleName();
+            log("Applying transformer " + (i + 1) + "/" + transformers.size() + ": " + transformerName);
+            PipelineMetrics.Stage stage = metrics.begin("transform:" + (i + 1) + ":" + transformerName, dataRows.size());
+            transformer.transform(report, dataRows);
+            stage.end(dataRows.size(), 0);
+            log(" -> Data rows after " + transformerName + ": " + dataRows.size() + " (" + stage.summary() + ")");
+            if (cache != null && isCheckpoint(transformer)) {
+                storeRows(i);
+            }
+        }
+    }
+
+    // writes the output and the metrics file, returns the output file
+    public Path write() {
+        if (cacheHit) {
+            return finish();
+        }
+        if (report.getPartitioning() != null) {
+            return writePartitioned();
+        }
+        log("Writing output file...");
+        outputFile = outputDir.resolve(report.getReportName() + outputSuffix());
+        PipelineMetrics.Stage writeStage = metrics.begin("write:" + outputFile.getFileName(), dataRows.size());
+        if (report.getOutputFormat() == Report.FileFormat.CSV) {
+            CsvWriter.writeData(outputDir, report.getReportName(), report.getOutputs(), dataRows);
+        } else {
+            JsonlWriter.writeData(
+                    outputDir,
+                    report.getReportName(),
+                    report.getOutputs(),
+                    dataRows
+            );
+        }
+        writeStage.end(dataRows.size(), sizeOf(outputFile));
+        log("Wrote " + dataRows.size() + " rows. (" + writeStage.summary() + ")");
+        return finish();
+    }
+
+    // returns the manifest, which lists the written files
+    private Path writePartitioned() {
+        log("Writing partitioned output...");
+        int writerThreads = Integer.parseInt(options.getOrDefault(OPTION_WRITER_THREADS, String.valueOf(Runtime.getRuntime().availableProcessors())));
+        PipelineMetrics.Stage writeStage = metrics.begin("write:" + report.getReportName() + "/", dataRows.size());
+        List<PartitionedWriter.Part> parts = PartitionedWriter.writeData(outputDir, report.getReportName(), report.getOutputFormat(),
+                report.getOutputs(), report.getPartitioning(), dataRows, writerThreads);
+        outputFile = PartitionedWriter.manifestFile(outputDir, report.getReportName());
+        writeStage.end(dataRows.size(), parts.stream().mapToLong(PartitionedWriter.Part::getBytes).sum());
+        log("Wrote " + dataRows.size() + " rows into " + parts.size() + " files. (" + writeStage.summary() + ")");
+        return finish();
+    }
+
+    private Path finish() {
+        rejectSink.close();
+        if (cache != null && !cacheHit && report.getPartitioning() == null) {
+            storeOutput();
+        }
+        metrics.setRejectCounts(rejectSink.getCounts());
+        metricsFile = metrics.writeJson(outputDir);
+        // rows are not needed anymore, lets a long running job runner reclaim the memory early
+        releaseRows();
+        return outputFile;
+    }
+
+    // releases the reject file and the rows on failure paths, safe to call more than once
+    public void close() {
+        if (rejectSink != null) {
+            rejectSink.close();
+        }
+        releaseRows();
+    }
+
+    private void openCache() {
+        String cacheDir = options.get(OPTION_CACHE_DIR);
+        if (cacheDir == null) {
+            return;
+        }
+        long maxBytes = Long.parseLong(options.getOrDefault(OPTION_CACHE_MAX_MB, String.valueOf(DEFAULT_CACHE_MAX_MB))) * 1024 * 1024;
+        try {
+            PipelineMetrics.Stage keyStage = metrics.begin("cache:keys", 0);
+            cache = new ReportCache(Paths.get(cacheDir), maxBytes);
+            // the budget decides whether a run fails, so a result is only reused under the same budget
+            List<Path> csvFiles = inputFiles != null ? inputFiles.getFiles() : List.of(Paths.get(csvDataFilePath));
+            String budget = OPTION_MAX_REJECTS + "=" + options.getOrDefault(OPTION_MAX_REJECTS, String.valueOf(RejectSink.NO_BUDGET));
+            cacheKeys = dateRange == null
+                    ? new CacheKeys(cache, csvFiles, Paths.get(reportXmlFilePath), budget)
+                    : new CacheKeys(cache, csvFiles, Paths.get(reportXmlFilePath), budget,
+                    OPTION_DATE_RANGE + "=" + dateRange, OPTION_DATE_COLUMN + "=" + dateColumn.getName());
+            keyStage.end(0, 0);
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Cache disabled for report " + report.getReportName() + ": " + e.getMessage());
+            cache = null;
+        }
+    }
+
+    // the output and the rejects of an identical run, both entries or nothing
+    private boolean copyCachedOutput() {
+        if (report.getPartitioning() != null) {
+            // a directory tree, only its rows are cached
+            return false;
+        }
+        Path cachedOutput = cache.lookup(cacheKeys.getFullKey(), outputSuffix());
+        Path cachedRejects = cache.lookup(cacheKeys.getFullKey(), RejectSink.FILE_SUFFIX);
+        if (cachedOutput == null || cachedRejects == null) {
+            return false;
+        }
+        outputFile = outputDir.resolve(report.getReportName() + outputSuffix());
+        PipelineMetrics.Stage hitStage = metrics.begin("cache:hit:" + outputFile.getFileName(), 0);
+        try {
+            Files.createDirectories(outputDir);
+            // copied, not linked: a later run without the cache rewrites the output in place
+            Files.copy(cachedOutput, outputFile, StandardCopyOption.REPLACE_EXISTING);
+            if (Files.size(cachedRejects) > 0) {
+                Files.copy(cachedRejects, rejectSink.getRejectFile(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to copy cached output " + cachedOutput + ", running the report: " + e.getMessage());
+            return false;
+        }
+        hitStage.end(0, sizeOf(outputFile));
+        log("Output found in the cache, copied to " + outputFile + ". (" + hitStage.summary() + ")");
+        cacheHit = true;
+        return true;
+    }
+
+    // resumes from the rows cached after the last checkpoint transformer this report shares with an earlier run
+    private boolean readCachedRows() {
+        List<Transformer> transformers = report.getTransformers();
+        if (transformers == null) {
+            return false;
+        }
+        for (int i = transformers.size() - 1; i >= 0; i--) {
+            if (!isCheckpoint(transformers.get(i))) {
+                continue;
+            }
+            Path cachedRows = cache.lookup(cacheKeys.getPrefixKey(i), ROWS_SUFFIX);
+            Path cachedRejects = cache.lookup(cacheKeys.getPrefixKey(i), RejectSink.FILE_SUFFIX);
+            if (cachedRows == null || cachedRejects == null) {
+                continue;
+            }
+            PipelineMetrics.Stage resumeStage = metrics.begin("cache:resume:" + (i + 1), 0);
+            dataRows = newRowList();
+            try (InputStream in = Files.newInputStream(cachedRows)) {
+                RowCodec.read(in, dataRows);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Warning: Failed to read cached rows " + cachedRows + ": " + e.getMessage());
+                releaseRows();
+                continue;
+            }
+            try {
+                rejectSink.replay(cachedRejects, 0);
+            } catch (IOException e) {
+                // nothing was recorded yet, the report runs from the start
+                System.err.println("Warning: Failed to read cached rejects " + cachedRejects + ": " + e.getMessage());
+                releaseRows();
+                return false;
+            }
+            resumeStage.end(dataRows.size(), sizeOf(cachedRows));
+            log("Resuming after transformer " + (i + 1) + "/" + transformers.size() + " with " + dataRows.size() + " cached rows. (" + resumeStage.summary() + ")");
+            firstTransformer = i + 1;
+            return true;
+        }
+        return false;
+    }
+
+    // blocking stages whose result is worth keeping, their output is usually much smaller than their input
+    private static boolean isCheckpoint(Transformer transformer) {
+        return transformer instanceof AggregatorTransformer;
+    }
+
+    // rejects first, like storeOutput, rows are only resumed together with the rejects that led to them
+    private void storeRows(int transformerIndex) {
+        PipelineMetrics.Stage storeStage = metrics.begin("cache:store:" + (transformerIndex + 1), dataRows.size());
+        try {
+            storeRejects(cacheKeys.getPrefixKey(transformerIndex));
+            cache.store(cacheKeys.getPrefixKey(transformerIndex), ROWS_SUFFIX, out -> RowCodec.write(dataRows, out));
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Failed to cache rows after transformer " + (transformerIndex + 1) + ": " + e.getMessage());
+            return;
+        }
+        storeStage.end(dataRows.size(), 0);
+    }
+
+    // rejects first, so that a cached output always comes with its (maybe empty) rejects
+    private void storeOutput() {
+        try {
+            storeRejects(cacheKeys.getFullKey());
+            cache.store(cacheKeys.getFullKey(), outputSuffix(), outputFile);
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Failed to cache output " + outputFile + ": " + e.getMessage());
+        }
+    }
+
+    // the rejects so far, an empty entry for a run without any
+    private void storeRejects(String key) {
+        Path rejectFile = rejectSink.getRejectFile();
+        if (rejectFile != null && rejectSink.hasRejectFile()) {
+            rejectSink.flush();
+            cache.store(key, RejectSink.FILE_SUFFIX, rejectFile);
+        } else {
+            cache.store(key, RejectSink.FILE_SUFFIX, out -> { });
+        }
+    }
+
+    // off-heap rows are laid out for the report's inputs and outputs, heap rows are the default
+    private List<Map<String, Object>> newRowList() {
+        String storage = options.getOrDefault(OPTION_STORAGE, "heap");
+        if (storage.equals("heap")) {
+            return new ArrayList<>();
+        }
+        if (!storage.equals("offheap")) {
+            throw new IllegalArgumentException("Unknown --" + OPTION_STORAGE + " '" + storage + "', expected heap or offheap.");
+        }
+        List<Column> columns = new ArrayList<>(report.getInputs());
+        columns.addAll(report.getOutputs());
+        try {
+            return OffHeapRows.create(columns);
+        } catch (UnsupportedOperationException e) {
+            System.err.println("Warning: " + e.getMessage() + ". Falling back to heap rows.");
+            return new ArrayList<>();
+        }
+    }
+
+    // frees off-heap rows right away instead of leaving them to the GC
+    private void releaseRows() {
+        if (dataRows instanceof OffHeapRows offHeapRows) {
+            offHeapRows.close();
+        }
+        dataRows = null;
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public RejectSink getRejectSink() {
+        return rejectSink;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    private static void checkDecimalScale(Column column) {
+        if (column.getType() != Column.DataType.DECIMAL) {
+            return;
+        }
+        if (column.getScale() == null || column.getScale() < 0 || column.getScale() > Decimal.MAX_SCALE) {
+            throw new IllegalArgumentException("DECIMAL column '" + column.getName() + "' requires a <scale> between 0 and " + Decimal.MAX_SCALE + ". Found: " + column.getScale());
+        }
+    }
+
+    private String outputSuffix() {
+        return report.getOutputFormat() == Report.FileFormat.CSV ? ".csv" : ".jsonl";
+    }
+
+    private static void checkPartitioning(Report report) {
+        Partitioning partitioning = report.getPartitioning();
+        if (partitioning == null) {
+            return;
+        }
+        if (partitioning.getBy() == null && partitioning.getMaxRows() == null && partitioning.getMaxBytes() == null) {
+            throw new IllegalArgumentException("<partitioning> requires a <by> column, <maxRows> or <maxBytes>.");
+        }
+        if (partitioning.getMaxRows() != null && partitioning.getMaxRows() <= 0) {
+            throw new IllegalArgumentException("<partitioning> <maxRows> must be positive. Found: " + partitioning.getMaxRows());
+        }
+        if (partitioning.getMaxBytes() != null && partitioning.getMaxBytes() <= 0) {
+            throw new IllegalArgumentException("<partitioning> <maxBytes> must be positive. Found: " + partitioning.getMaxBytes());
+        }
+        if (partitioning.getBy() == null) {
+            if (partitioning.getGranularity() != null) {
+                throw new IllegalArgumentException("<partitioning> <granularity> requires a <by> column.");
+            }
+            return;
+        }
+        Column by = findColumn(report.getOutputs(), partitioning.getBy());
+        if (by == null) {
+            by = findColumn(report.getInputs(), partitioning.getBy());
+        }
+        if (by == null) {
+            throw new IllegalArgumentException("<partitioning> column '" + partitioning.getBy() + "' is neither an input nor an output column.");
+        }
+        // an Aggregator replaces the rows with its groups, an input column it doesn't keep would put every row in by=_null
+        AggregatorTransformer aggregator = lastAggregator(report);
+        if (aggregator != null && findColumn(report.getOutputs(), by.getName()) == null && !aggregator.keepsColumn(by.getName())) {
+            throw new IllegalArgumentException("<partitioning> column '" + by.getName() + "' is an input column the Aggregator drops, partition by a groupBy or output column.");
+        }
+        if (partitioning.getGranularity() != null && by.getType() != Column.DataType.DATE && by.getType() != Column.DataType.DATETIME) {
+            throw new IllegalArgumentException("<partitioning> <granularity> requires a DATE or DATETIME column, '" + by.getName() + "' is " + by.getType());
+        }
+    }
+
+    private static AggregatorTransformer lastAggregator(Report report) {
+        AggregatorTransformer last = null;
+        if (report.getTransformers() != null) {
+            for (Transformer transformer : report.getTransformers()) {
+                if (transformer instanceof AggregatorTransformer aggregator) {
+                    last = aggregator;
+                }
+            }
+        }
+        return last;
+    }
+
+    // lists the input files and drops those that can't hold rows in the date range
+    private void resolveInputs() {
+        String range = options.get(OPTION_DATE_RANGE);
+        if (range == null && options.containsKey(OPTION_DATE_COLUMN)) {
+            throw new IllegalArgumentException("--" + OPTION_DATE_COLUMN + " requires --" + OPTION_DATE_RANGE + ".");
+        }
+        if (range == null && InputFiles.isSingleFile(csvDataFilePath)) {
+            return;
+        }
+        inputFiles = InputFiles.resolve(csvDataFilePath);
+        if (range == null) {
+            log("Input: " + inputFiles.getFiles().size() + " CSV files.");
+            return;
+        }
+        dateRange = DateRange.parse(range);
+        dateColumn = dateColumn(report, options.get(OPTION_DATE_COLUMN));
+        inputFiles = inputFiles.prune(dateColumn, dateRange);
+        log("Input: " + inputFiles.getFiles().size() + " of " + inputFiles.getMatched() + " CSV files may hold " + dateColumn.getName() + " in " + dateRange
+                + ", " + (inputFiles.getMatched() - inputFiles.getFiles().size()) + " skipped by their statistics.");
+    }
+
+    // bytes of the CSV files a run with these options reads, without parsing the report unless a date range prunes files
+    public static long inputBytes(String csvDataFilePath, String reportXmlFilePath, Map<String, String> options) throws JAXBException {
+        String range = options.get(OPTION_DATE_RANGE);
+        if (range == null && InputFiles.isSingleFile(csvDataFilePath)) {
+            return Math.max(0, sizeOf(Paths.get(csvDataFilePath)));
+        }
+        InputFiles inputFiles = InputFiles.resolve(csvDataFilePath);
+        if (range != null) {
+            inputFiles = inputFiles.prune(dateColumn(XmlParser.parseReport(reportXmlFilePath), options.get(OPTION_DATE_COLUMN)), DateRange.parse(range));
+        }
+        long bytes = 0;
+        for (Path file : inputFiles.getFiles()) {
+            bytes += Math.max(0, sizeOf(file));
+        }
+        return bytes;
+    }
+
+    private static Column dateColumn(Report report, String name) {
+        for (Column column : report.getInputs()) {
+            boolean date = column.getType() == Column.DataType.DATE || column.getType() == Column.DataType.DATETIME;
+            if (name == null ? date : column.getName().equals(name)) {
+                if (!date) {
+                    throw new IllegalArgumentException("--" + OPTION_DATE_COLUMN + " requires a DATE or DATETIME input column, '" + name + "' is " + column.getType());
+                }
+                return column;
+            }
+        }
+        throw new IllegalArgumentException(name == null
+                ? "--" + OPTION_DATE_RANGE + " requires a DATE or DATETIME input column."
+                : "--" + OPTION_DATE_COLUMN + " '" + name + "' is not an input column.");
+    }
+
+    private static Column findColumn(List<Column> columns, String name) {
+        for (Column column : columns) {
+            if (column.getName().equals(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -11,6 +11,8 @@ public class Column {
     @XmlID
     private String name;
     private DataType type;
+    // DECIMAL only, number of fraction digits kept in the scaled long
+    private Integer scale;
 
     public enum DataType {
         STRING,
@@ -18,6 +20,7 @@ public class Column {
         DOUBLE,
         DATE,
         DATETIME,
+        DECIMAL,
     }
 
     public String getName() {
@@ -27,4 +30,8 @@ public class Column {
     public DataType getType() {
         return type;
     }
+
+    public Integer getScale() {
+        return scale;
+    }
 }
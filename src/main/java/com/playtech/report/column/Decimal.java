@@ -0,0 +1,236 @@
+package com.playtech.report.column;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/*
+ * Value of a DECIMAL column: an unscaled long and a scale, e.g. 40.70 is (4070, 2).
+ * Arithmetic is exact and overflow checked (ArithmeticException), which keeps money columns free of
+ * floating point drift at long speed instead of BigDecimal cost.
+ * Unlike BigDecimal, equals and hashCode agree with compareTo: 1.5 and 1.50 are equal (and group, count and
+ * sort together), the scale only shows in toString and getScale.
+ */
+public final class Decimal extends Number implements Comparable<Decimal> {
+    public static final int MAX_SCALE = 18;
+
+    private static final long serialVersionUID = 1L;
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final long unscaled;
+    private final int scale;
+
+    private Decimal(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+    }
+
+    public static Decimal of(long unscaled, int scale) {
+        checkScale(scale);
+        return new Decimal(unscaled, scale);
+    }
+
+    /*
+     * Parses a plain decimal string ("-12.5", "3", ".25") into the given scale without going through double.
+     * Extra fraction digits are only accepted when they are zeros, anything else is not exact and is rejected.
+     */
+    public static Decimal parse(String value, int scale) {
+        checkScale(scale);
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        boolean seenDigit = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && !seenPoint) {
+                seenPoint = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid decimal value: \"" + value + "\"");
+            }
+            seenDigit = true;
+            if (seenPoint && fractionDigits == scale) {
+                if (c != '0') {
+                    throw new NumberFormatException("Decimal value \"" + value + "\" has more than " + scale + " fraction digits");
+                }
+                continue;
+            }
+            if (seenPoint) {
+                fractionDigits++;
+            }
+            try {
+                unscaled = Math.addExact(Math.multiplyExact(unscaled, 10), c - '0');
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Decimal value out of range: \"" + value + "\"");
+            }
+        }
+        if (!seenDigit) {
+            throw new NumberFormatException("Invalid decimal value: \"" + value + "\"");
+        }
+        try {
+            unscaled = Math.multiplyExact(unscaled, POWERS_OF_TEN[scale - fractionDigits]);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Decimal value out of range: \"" + value + "\"");
+        }
+        return new Decimal(negative ? -unscaled : unscaled, scale);
+    }
+
+    // converts any numeric cell value, doubles are rounded half up to the scale
+    public static Decimal valueOf(Number number, int scale) {
+        if (number instanceof Decimal decimal) {
+            return decimal.setScale(scale);
+        }
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return new Decimal(Math.multiplyExact(number.longValue(), powerOfTen(scale)), scale);
+        }
+        return new Decimal(BigDecimal.valueOf(number.doubleValue()).setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact(), scale);
+    }
+
+    // 10^scale, the multiplier between a whole number and its unscaled value
+    public static long powerOfTen(int scale) {
+        checkScale(scale);
+        return POWERS_OF_TEN[scale];
+    }
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    // unscaled value at a wider scale without creating a new Decimal, for arithmetic on primitive longs
+    public long unscaledAt(int newScale) {
+        if (newScale == scale) {
+            return unscaled;
+        }
+        if (newScale < scale) {
+            throw new ArithmeticException("Cannot narrow decimal scale from " + scale + " to " + newScale + " exactly");
+        }
+        return Math.multiplyExact(unscaled, powerOfTen(newScale - scale));
+    }
+
+    // only widening is exact, so narrowing is rejected
+    public Decimal setScale(int newScale) {
+        if (newScale == scale) {
+            return this;
+        }
+        if (newScale < scale) {
+            throw new ArithmeticException("Cannot narrow decimal scale from " + scale + " to " + newScale + " exactly");
+        }
+        return new Decimal(Math.multiplyExact(unscaled, powerOfTen(newScale - scale)), newScale);
+    }
+
+    public Decimal add(Decimal other) {
+        int resultScale = Math.max(scale, other.scale);
+        return new Decimal(Math.addExact(unscaledAt(resultScale), other.unscaledAt(resultScale)), resultScale);
+    }
+
+    public Decimal subtract(Decimal other) {
+        int resultScale = Math.max(scale, other.scale);
+        return new Decimal(Math.subtractExact(unscaledAt(resultScale), other.unscaledAt(resultScale)), resultScale);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    @Override
+    public long longValue() {
+        return unscaled / POWERS_OF_TEN[scale];
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        // exact for |unscaled| < 2^53, which covers any realistic money amount
+        return (double) unscaled / POWERS_OF_TEN[scale];
+    }
+
+    @Override
+    public int compareTo(Decimal other) {
+        if (scale == other.scale) {
+            return Long.compare(unscaled, other.unscaled);
+        }
+        try {
+            int commonScale = Math.max(scale, other.scale);
+            return Long.compare(unscaledAt(commonScale), other.unscaledAt(commonScale));
+        } catch (ArithmeticException e) {
+            return toBigDecimal().compareTo(other.toBigDecimal());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Decimal other && (scale == other.scale ? unscaled == other.unscaled : compareTo(other) == 0);
+    }
+
+    // of the value without trailing fraction zeros, so equal values of different scales hash alike
+    @Override
+    public int hashCode() {
+        long stripped = unscaled;
+        int strippedScale = scale;
+        while (strippedScale > 0 && stripped % 10 == 0) {
+            stripped /= 10;
+            strippedScale--;
+        }
+        return Long.hashCode(stripped) * 31 + strippedScale;
+    }
+
+    // plain notation with exactly scale fraction digits, e.g. "-53.60"
+    @Override
+    public String toString() {
+        if (scale == 0) {
+            return Long.toString(unscaled);
+        }
+        if (unscaled == Long.MIN_VALUE) {
+            // Math.abs overflows, fall back to the exact slow path
+            return toBigDecimal().toPlainString();
+        }
+        StringBuilder sb = new StringBuilder(24);
+        if (unscaled < 0) {
+            sb.append('-');
+        }
+        String digits = Long.toString(Math.abs(unscaled));
+        if (digits.length() <= scale) {
+            sb.append("0.");
+            sb.append("0".repeat(scale - digits.length()));
+            sb.append(digits);
+        } else {
+            sb.append(digits, 0, digits.length() - scale);
+            sb.append('.');
+            sb.append(digits, digits.length() - scale, digits.length());
+        }
+        return sb.toString();
+    }
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Decimal scale must be between 0 and " + MAX_SCALE + ". Found: " + scale);
+        }
+    }
+}
@@ -2,29 +2,83 @@ package com.playtech.report.transformer.impl;
 
 import com.playtech.report.Report;
 import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
 import com.playtech.report.transformer.Transformer;
+import com.playtech.report.transformer.impl.aggregate.Accumulator;
+import com.playtech.report.transformer.impl.aggregate.Accumulators;
+import com.playtech.report.transformer.impl.aggregate.GroupKeyTable;
+import com.playtech.report.transformer.impl.aggregate.HyperLogLog;
+import com.playtech.report.transformer.impl.aggregate.TDigest;
+import com.playtech.report.transformer.impl.aggregate.TumblingWindow;
+import com.playtech.report.transformer.impl.kernel.ArithmeticKernels;
+import com.playtech.util.cache.RowCodec;
+import com.playtech.util.reject.RejectReason;
+import com.playtech.util.reject.RejectSink;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlIDREF;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/*
+ * Groups rows by one or more columns and replaces them with one row per group.
+ * By default every group is held until the end of input. With sorted input (declared with <sortedInput>
+ * or an Ordering on the groupBy column right before this transformer) only the current group is kept and
+ * it is emitted as soon as the key changes. DATETIME groupBy columns can be bucketed into tumbling windows.
+ */
 public class AggregatorTransformer implements Transformer {
     public static final String NAME = "Aggregator";
 
-    private final String groupByColumnName;
+    // below this many rows splitting the input costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 200_000;
+    // rows per batch of group ids and gathered values
+    private static final int BATCH_SIZE = 1024;
+    // shorter runs of one group are added value by value, a kernel call doesn't pay off for them
+    private static final int MIN_KERNEL_RUN = 8;
+    private static final EnumSet<Method> NUMERIC_METHODS = EnumSet.of(Method.SUM, Method.AVG, Method.PERCENTILE);
+
+    private final List<String> groupByColumnNames;
     private final List<AggregateBy> aggregateColumns;
+    private final Reduction[] reductions;
+    private final boolean sortedInput;
+    private final TumblingWindow window; // null without windowing
+    private final boolean[] windowedKeyParts;
+
+    public AggregatorTransformer(List<Column> groupByColumns, List<AggregateBy> aggregateColumns) {
+        this(groupByColumns, aggregateColumns, false, null);
+    }
 
-    public AggregatorTransformer(Column groupByColumn, List<AggregateBy> aggregateColumns) {
-        Objects.requireNonNull(groupByColumn, "groupByColumn cannot be null");
+    // sortedInput: rows arrive with equal keys next to each other, window: bucket DATETIME groupBy columns
+    public AggregatorTransformer(List<Column> groupByColumns, List<AggregateBy> aggregateColumns, boolean sortedInput, TumblingWindow window) {
+        Objects.requireNonNull(groupByColumns, "groupByColumns cannot be null");
         Objects.requireNonNull(aggregateColumns, "aggregateColumns cannot be null");
-        this.groupByColumnName = groupByColumn.getName();
+        this.groupByColumnNames = groupByColumns.stream().map(Column::getName).toList();
         this.aggregateColumns = aggregateColumns;
+        if (groupByColumnNames.size() > GroupKeyTable.MAX_KEY_PARTS) {
+            throw new IllegalArgumentException("Aggregator supports at most " + GroupKeyTable.MAX_KEY_PARTS + " groupBy columns. Found: " + groupByColumnNames.size());
+        }
+        this.sortedInput = sortedInput;
+        this.window = window;
+        this.windowedKeyParts = new boolean[groupByColumns.size()];
+        for (int i = 0; i < windowedKeyParts.length; i++) {
+            windowedKeyParts[i] = window != null && groupByColumns.get(i).getType() == Column.DataType.DATETIME;
+        }
+        if (window != null && groupByColumns.stream().noneMatch(column -> column.getType() == Column.DataType.DATETIME)) {
+            throw new IllegalArgumentException("Aggregator window requires a DATETIME groupBy column. Found: " + groupByColumnNames);
+        }
 
 
         for(AggregateBy agg : aggregateColumns) {
@@ -32,18 +86,34 @@ public class AggregatorTransformer implements Transformer {
             Objects.requireNonNull(agg.getOutput(), "AggregateBy output column cannot be null");
             Objects.requireNonNull(agg.getMethod(), "AggregateBy method cannot be null");
             Column.DataType inputType = agg.getInput().getType();
-            if (inputType != Column.DataType.INTEGER && inputType != Column.DataType.DOUBLE) {
-                throw new IllegalArgumentException("Aggregator supports aggregation only on INTEGER/DOUBLE inputs. Found: " + inputType + " for input '" + agg.getInput().getName() + "'");
+            if (NUMERIC_METHODS.contains(agg.getMethod())
+                    && inputType != Column.DataType.INTEGER && inputType != Column.DataType.DOUBLE && inputType != Column.DataType.DECIMAL) {
+                throw new IllegalArgumentException("Aggregator supports " + agg.getMethod() + " only on INTEGER/DOUBLE/DECIMAL inputs. Found: " + inputType + " for input '" + agg.getInput().getName() + "'");
+            }
+            if (agg.getMethod() == Method.PERCENTILE && (agg.getPercentile() == null || agg.getPercentile() < 0 || agg.getPercentile() > 100)) {
+                throw new IllegalArgumentException("Aggregator PERCENTILE requires a percentile between 0 and 100. Found: " + agg.getPercentile() + " for input '" + agg.getInput().getName() + "'");
+            }
+            if (agg.getMethod() == Method.APPROX_COUNT_DISTINCT
+                    && (agg.getPrecisionOrDefault() < HyperLogLog.MIN_PRECISION || agg.getPrecisionOrDefault() > HyperLogLog.MAX_PRECISION)) {
+                throw new IllegalArgumentException("Aggregator APPROX_COUNT_DISTINCT precision must be between " + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION + ". Found: " + agg.getPrecisionOrDefault());
             }
         }
         if (aggregateColumns.isEmpty()) {
             System.err.println("Warning: AggregatorTransformer created with no aggregation columns specified.");
         }
+
+        this.reductions = new Reduction[aggregateColumns.size()];
+        for (int i = 0; i < reductions.length; i++) {
+            Accumulator accumulator = Accumulators.create(aggregateColumns.get(i));
+            reductions[i] = (accumulator instanceof Accumulators.DecimalSums) ? Reduction.DECIMAL_SUM
+                    : (accumulator instanceof Accumulators.DoubleSums) ? Reduction.DOUBLE_SUM
+                    : Reduction.PER_ROW;
+        }
     }
 
     @Override
     public void transform(Report report, List<Map<String, Object>> rows) {
-        if (groupByColumnName == null || groupByColumnName.isEmpty()) {
+        if (groupByColumnNames.isEmpty()) {
             System.err.println("Error: AggregatorTransformer has no groupBy column defined. Skipping aggregation.");
             return;
         }
@@ -53,20 +123,33 @@ public class AggregatorTransformer implements Transformer {
             return;
         }
 
-        Map<Object, AggregationState> groupedData = new LinkedHashMap<>();
+        if (sortedInput || isOrderedUpstream(report)) {
+            aggregateSorted(rows, report.getRejectSink());
+            return;
+        }
 
-        // groups data and accumulate sums/counts
-        for (Map<String, Object> row : rows) {
-            Object groupKey = row.get(groupByColumnName);
-            // groups null keys together
-            AggregationState state = groupedData.computeIfAbsent(groupKey, k -> new AggregationState(k, groupByColumnName, aggregateColumns));
-            state.accumulate(row);
+        GroupedData groupedData;
+        // a parallel stream runs in the pool of the calling thread, the job runner's CPU pool, otherwise the common pool
+        int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+        if (rows.size() >= PARALLEL_THRESHOLD && parallelism > 1) {
+            // partial aggregation per chunk, merged in chunk order so groups keep their first-seen order
+            int chunks = parallelism;
+            int chunkSize = (rows.size() + chunks - 1) / chunks;
+            List<GroupedData> partials = IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> aggregate(rows.subList(Math.min(rows.size(), c * chunkSize), Math.min(rows.size(), (c + 1) * chunkSize))))
+                    .toList();
+            groupedData = partials.get(0);
+            for (int c = 1; c < partials.size(); c++) {
+                groupedData.merge(partials.get(c));
+            }
+        } else {
+            groupedData = aggregate(rows);
         }
 
         // finalizes results and create output rows
-        List<Map<String, Object>> aggregatedRows = new ArrayList<>();
-        for (AggregationState state : groupedData.values()) {
-            aggregatedRows.add(state.getResult());
+        List<Map<String, Object>> aggregatedRows = new ArrayList<>(groupedData.states.size());
+        for (int group = 0; group < groupedData.states.size(); group++) {
+            aggregatedRows.add(groupedData.states.get(group).getResult(groupedData.keys.getKeyColumns(), groupedData.keys.keyValues(group), report.getRejectSink()));
         }
 
         // replaces original rows with aggregated results
@@ -74,54 +157,355 @@ public class AggregatorTransformer implements Transformer {
         rows.addAll(aggregatedRows);
     }
 
-    // helper class to manage state (sums, counts) for each group during aggregation
+    /*
+     * Groups data and accumulates it into one state per group, a batch of rows at a time: group ids first,
+     * then one aggregate column after the other. SUM/AVG gather their column into a primitive array and
+     * reduce runs of rows with the same group (sorted or clustered input) with ArithmeticKernels.
+     */
+    private GroupedData aggregate(List<Map<String, Object>> rows) {
+        GroupedData groupedData = new GroupedData(new GroupKeyTable(groupByColumnNames));
+        ArithmeticKernels kernels = ArithmeticKernels.get();
+        Batch batch = new Batch(Math.min(BATCH_SIZE, rows.size()));
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Map<String, Object>> batchRows = rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE));
+            for (int i = 0; i < batchRows.size(); i++) {
+                // null key parts group together
+                int group = (window == null) ? groupedData.keys.groupOf(batchRows.get(i)) : groupedData.keys.groupOf(keyOf(batchRows.get(i), batch.key));
+                if (group == groupedData.states.size()) {
+                    groupedData.states.add(new AggregationState(aggregateColumns));
+                }
+                batch.groups[i] = group;
+            }
+            accumulateBatch(groupedData.states, batchRows, batch, kernels);
+        }
+        return groupedData;
+    }
+
+    /*
+     * Streaming aggregation for rows where equal keys are adjacent. Only the groups of the current batch are
+     * held, every closed group is written over the already consumed rows at the front of the list, so memory
+     * doesn't grow with the number of groups. A key that shows up again later starts a new output row.
+     */
+    private void aggregateSorted(List<Map<String, Object>> rows, RejectSink rejectSink) {
+        String[] keyColumns = groupByColumnNames.toArray(new String[0]);
+        ArithmeticKernels kernels = ArithmeticKernels.get();
+        Batch batch = new Batch(Math.min(BATCH_SIZE, rows.size()));
+        List<AggregationState> states = new ArrayList<>();
+        List<Object[]> keys = new ArrayList<>();
+        int written = 0;
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Map<String, Object>> batchRows = rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE));
+            for (int i = 0; i < batchRows.size(); i++) {
+                Object[] key = keyOf(batchRows.get(i), batch.key);
+                if (keys.isEmpty() || !Arrays.equals(key, keys.get(keys.size() - 1))) {
+                    states.add(new AggregationState(aggregateColumns));
+                    keys.add(key.clone());
+                }
+                batch.groups[i] = states.size() - 1;
+            }
+            accumulateBatch(states, batchRows, batch, kernels);
+
+            // the last group may continue in the next batch, the others are closed
+            int closed = states.size() - 1;
+            for (int group = 0; group < closed; group++) {
+                rows.set(written++, states.get(group).getResult(keyColumns, keys.get(group), rejectSink));
+            }
+            states.subList(0, closed).clear();
+            keys.subList(0, closed).clear();
+        }
+        if (!states.isEmpty()) {
+            rows.set(written++, states.get(0).getResult(keyColumns, keys.get(0), rejectSink));
+        }
+        rows.subList(written, rows.size()).clear();
+    }
+
+    // true if the aggregated rows hold the column, i.e. it is a groupBy column or an aggregate output
+    public boolean keepsColumn(String name) {
+        return groupByColumnNames.contains(name) || aggregateColumns.stream().anyMatch(agg -> agg.getOutput().getName().equals(name));
+    }
+
+    /*
+     * Partial aggregation of one shard of a sharded run: the groups of these rows with their accumulator
+     * states, in first-seen order (or as runs of equal keys with sorted input). The coordinator reads the
+     * partials of all shards in shard order with mergePartials.
+     */
+    public void writePartial(List<Map<String, Object>> rows, DataOutput out) throws IOException {
+        List<Object[]> keys = new ArrayList<>();
+        List<AggregationState> states = new ArrayList<>();
+        if (sortedInput) {
+            aggregateRuns(rows, keys, states);
+        } else {
+            GroupedData groupedData = aggregate(rows);
+            for (int group = 0; group < groupedData.states.size(); group++) {
+                keys.add(groupedData.keys.keyValues(group));
+            }
+            states = groupedData.states;
+        }
+        out.writeInt(states.size());
+        for (int group = 0; group < states.size(); group++) {
+            for (Object keyValue : keys.get(group)) {
+                RowCodec.writeValue(out, keyValue);
+            }
+            for (Accumulator accumulator : states.get(group).accumulators) {
+                accumulator.writeState(out);
+            }
+        }
+    }
+
+    /*
+     * Merges the partials of all shards (in input order) into the output rows of this transformer, the same
+     * groups in the same order a single run over the whole input produces. With sorted input only a run that
+     * continues across a shard boundary is merged, like the streaming aggregation does.
+     */
+    public void mergePartials(Report report, List<? extends DataInput> partials, List<Map<String, Object>> rows) throws IOException {
+        GroupedData groupedData = new GroupedData(new GroupKeyTable(groupByColumnNames));
+        List<Object[]> runKeys = new ArrayList<>();
+        List<AggregationState> runStates = new ArrayList<>();
+        for (DataInput in : partials) {
+            int groups = in.readInt();
+            for (int g = 0; g < groups; g++) {
+                Object[] key = new Object[groupByColumnNames.size()];
+                for (int part = 0; part < key.length; part++) {
+                    key[part] = RowCodec.readValue(in);
+                }
+                AggregationState state = new AggregationState(aggregateColumns);
+                for (Accumulator accumulator : state.accumulators) {
+                    accumulator.readState(in);
+                }
+                if (sortedInput) {
+                    if (!runKeys.isEmpty() && Arrays.equals(key, runKeys.get(runKeys.size() - 1))) {
+                        runStates.get(runStates.size() - 1).merge(state);
+                    } else {
+                        runKeys.add(key);
+                        runStates.add(state);
+                    }
+                } else {
+                    int group = groupedData.keys.groupOf(key);
+                    if (group == groupedData.states.size()) {
+                        groupedData.states.add(state);
+                    } else {
+                        groupedData.states.get(group).merge(state);
+                    }
+                }
+            }
+        }
+
+        rows.clear();
+        String[] keyColumns = groupByColumnNames.toArray(new String[0]);
+        if (sortedInput) {
+            for (int run = 0; run < runStates.size(); run++) {
+                rows.add(runStates.get(run).getResult(keyColumns, runKeys.get(run), report.getRejectSink()));
+            }
+        } else {
+            for (int group = 0; group < groupedData.states.size(); group++) {
+                rows.add(groupedData.states.get(group).getResult(groupedData.keys.getKeyColumns(), groupedData.keys.keyValues(group), report.getRejectSink()));
+            }
+        }
+    }
+
+    // like aggregateSorted, but keeps every run's state instead of writing results
+    private void aggregateRuns(List<Map<String, Object>> rows, List<Object[]> keys, List<AggregationState> states) {
+        ArithmeticKernels kernels = ArithmeticKernels.get();
+        Batch batch = new Batch(Math.min(BATCH_SIZE, rows.size()));
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Map<String, Object>> batchRows = rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE));
+            for (int i = 0; i < batchRows.size(); i++) {
+                Object[] key = keyOf(batchRows.get(i), batch.key);
+                if (keys.isEmpty() || !Arrays.equals(key, keys.get(keys.size() - 1))) {
+                    states.add(new AggregationState(aggregateColumns));
+                    keys.add(key.clone());
+                }
+                batch.groups[i] = states.size() - 1;
+            }
+            accumulateBatch(states, batchRows, batch, kernels);
+        }
+    }
+
+    // an Ordering on the only groupBy column right before this transformer makes equal keys adjacent
+    private boolean isOrderedUpstream(Report report) {
+        List<Transformer> transformers = report.getTransformers();
+        if (transformers == null || groupByColumnNames.size() != 1) {
+            return false;
+        }
+        for (int i = 1; i < transformers.size(); i++) {
+            if (transformers.get(i) == this) {
+                return transformers.get(i - 1) instanceof OrderingTransformer ordering
+                        && groupByColumnNames.get(0).equals(ordering.getInputColumnName());
+            }
+        }
+        return false;
+    }
+
+    // key values of the row, DATETIME parts bucketed to their window start
+    private Object[] keyOf(Map<String, Object> row, Object[] into) {
+        for (int part = 0; part < into.length; part++) {
+            Object value = row.get(groupByColumnNames.get(part));
+            into[part] = windowedKeyParts[part] ? window.start(value) : value;
+        }
+        return into;
+    }
+
+    // accumulates a batch whose group ids are already set, one aggregate column after the other
+    private void accumulateBatch(List<AggregationState> states, List<Map<String, Object>> rows, Batch batch, ArithmeticKernels kernels) {
+        for (int a = 0; a < reductions.length; a++) {
+            switch (reductions[a]) {
+                case DOUBLE_SUM -> sumDoubles(states, a, rows, batch, kernels);
+                case DECIMAL_SUM -> sumDecimals(states, a, rows, batch, kernels);
+                case PER_ROW -> accumulateRows(states, a, rows, batch, 0, rows.size());
+            }
+        }
+    }
+
+    private void sumDoubles(List<AggregationState> states, int a, List<Map<String, Object>> rows, Batch batch, ArithmeticKernels kernels) {
+        String column = aggregateColumns.get(a).getInput().getName();
+        int n = rows.size();
+        for (int i = 0; i < n; i++) {
+            boolean present = rows.get(i).get(column) instanceof Number;
+            batch.doubles[i] = present ? ((Number) rows.get(i).get(column)).doubleValue() : 0;
+            batch.counts[i + 1] = batch.counts[i] + (present ? 1 : 0);
+        }
+        for (int start = 0, end; start < n; start = end) {
+            end = runEnd(batch.groups, start, n);
+            Accumulators.DoubleSums accumulator = (Accumulators.DoubleSums) states.get(batch.groups[start]).accumulators[a];
+            if (end - start >= MIN_KERNEL_RUN) {
+                accumulator.addSum(kernels.sum(batch.doubles, start, end), batch.counts[end] - batch.counts[start]);
+            } else {
+                for (int i = start; i < end; i++) {
+                    accumulator.addSum(batch.doubles[i], batch.counts[i + 1] - batch.counts[i]);
+                }
+            }
+        }
+    }
+
+    // values are gathered at the declared scale, a batch with wider values falls back to row by row
+    private void sumDecimals(List<AggregationState> states, int a, List<Map<String, Object>> rows, Batch batch, ArithmeticKernels kernels) {
+        Column input = aggregateColumns.get(a).getInput();
+        int scale = input.getScale() != null ? input.getScale() : 0;
+        int n = rows.size();
+        for (int i = 0; i < n; i++) {
+            Object value = rows.get(i).get(input.getName());
+            long unscaled;
+            if (value instanceof Decimal decimal && decimal.getScale() <= scale) {
+                unscaled = decimal.unscaledAt(scale);
+            } else if (value instanceof Number) {
+                accumulateRows(states, a, rows, batch, 0, n);
+                return;
+            } else {
+                unscaled = 0;
+            }
+            batch.longs[i] = unscaled;
+            batch.counts[i + 1] = batch.counts[i] + (value instanceof Number ? 1 : 0);
+        }
+        for (int start = 0, end; start < n; start = end) {
+            end = runEnd(batch.groups, start, n);
+            Accumulators.DecimalSums accumulator = (Accumulators.DecimalSums) states.get(batch.groups[start]).accumulators[a];
+            if (end - start >= MIN_KERNEL_RUN) {
+                long sum;
+                try {
+                    sum = kernels.sum(batch.longs, start, end);
+                } catch (ArithmeticException e) {
+                    // the run alone overflows, row by row decides whether the group total does
+                    accumulateRows(states, a, rows, batch, start, end);
+                    continue;
+                }
+                accumulator.addUnscaledSum(sum, scale, batch.counts[end] - batch.counts[start]);
+            } else {
+                for (int i = start; i < end; i++) {
+                    accumulator.addUnscaledSum(batch.longs[i], scale, batch.counts[i + 1] - batch.counts[i]);
+                }
+            }
+        }
+    }
+
+    private void accumulateRows(List<AggregationState> states, int a, List<Map<String, Object>> rows, Batch batch, int from, int to) {
+        String column = aggregateColumns.get(a).getInput().getName();
+        for (int i = from; i < to; i++) {
+            states.get(batch.groups[i]).accumulators[a].accumulate(rows.get(i).get(column));
+        }
+    }
+
+    private static int runEnd(int[] groups, int start, int n) {
+        int end = start + 1;
+        while (end < n && groups[end] == groups[start]) {
+            end++;
+        }
+        return end;
+    }
+
+    private enum Reduction { DOUBLE_SUM, DECIMAL_SUM, PER_ROW }
+
+    // reusable per-batch columns: group id per row, gathered values and a running count of non-null values
+    private class Batch {
+        private final Object[] key = new Object[groupByColumnNames.size()];
+        private final int[] groups;
+        private final double[] doubles;
+        private final long[] longs;
+        private final int[] counts;
+
+        Batch(int size) {
+            this.groups = new int[size];
+            this.doubles = new double[size];
+            this.longs = new long[size];
+            this.counts = new int[size + 1];
+        }
+    }
+
+    // group keys and their states, states are indexed by the group id of the key table
+    private static class GroupedData {
+        private final GroupKeyTable keys;
+        private final List<AggregationState> states = new ArrayList<>();
+
+        GroupedData(GroupKeyTable keys) {
+            this.keys = keys;
+        }
+
+        void merge(GroupedData other) {
+            for (int otherGroup = 0; otherGroup < other.states.size(); otherGroup++) {
+                int group = keys.groupOf(other.keys.keyValues(otherGroup));
+                if (group == states.size()) {
+                    states.add(other.states.get(otherGroup));
+                } else {
+                    states.get(group).merge(other.states.get(otherGroup));
+                }
+            }
+        }
+    }
+
+    // helper class to manage state (one accumulator per aggregateBy) for each group during aggregation
     private static class AggregationState {
-        private final Object groupKeyValue;
-        private final String groupByKeyName;
         private final List<AggregateBy> aggregatesToPerform;
-        private final Map<String, Double> sums = new HashMap<>();
-        private final Map<String, Integer> counts = new HashMap<>();
+        private final Accumulator[] accumulators;
 
-        AggregationState(Object groupKey, String groupByKeyName, List<AggregateBy> aggregatesToPerform) {
-            this.groupKeyValue = groupKey;
-            this.groupByKeyName = groupByKeyName;
+        AggregationState(List<AggregateBy> aggregatesToPerform) {
             this.aggregatesToPerform = aggregatesToPerform;
-            for (AggregateBy agg : aggregatesToPerform) {
-                sums.put(agg.getOutput().getName(), 0.0);
-                counts.put(agg.getInput().getName(), 0);
+            this.accumulators = new Accumulator[aggregatesToPerform.size()];
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = Accumulators.create(aggregatesToPerform.get(i));
             }
         }
 
-        // accumulates values from one row into the group's state
-        void accumulate(Map<String, Object> row) {
-            for (AggregateBy agg : aggregatesToPerform) {
-                String inputName = agg.getInput().getName();
-                String outputName = agg.getOutput().getName();
-                Object valueObj = row.get(inputName);
-
-                if (valueObj instanceof Number) {
-                    double value = ((Number) valueObj).doubleValue();
-                    sums.put(outputName, sums.get(outputName) + value);
-                    counts.put(inputName, counts.get(inputName) + 1);
-                }
+        // folds a partial state of the same group (e.g. from another chunk of rows) into this one
+        void merge(AggregationState other) {
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].merge(other.accumulators[i]);
             }
         }
 
-        Map<String, Object> getResult() {
+        // every groupBy column is part of the result row, a DECIMAL total that overflowed is null and rejected
+        Map<String, Object> getResult(String[] keyColumns, Object[] keyValues, RejectSink rejectSink) {
             Map<String, Object> resultRow = new HashMap<>();
-            resultRow.put(groupByKeyName, groupKeyValue);
-
-            for (AggregateBy agg : aggregatesToPerform) {
-                String inputName = agg.getInput().getName();
-                String outputName = agg.getOutput().getName();
-                double sum = sums.get(outputName);
-                int count = counts.get(inputName);
-
-                if (agg.getMethod() == Method.SUM) {
-                    resultRow.put(outputName, sum);
-                } else if (agg.getMethod() == Method.AVG) {
-                    // avoids division by zero if no valid inputs
-                    resultRow.put(outputName, (count == 0) ? 0.0 : sum / count);
+            for (int i = 0; i < keyColumns.length; i++) {
+                resultRow.put(keyColumns[i], keyValues[i]);
+            }
+
+            for (int i = 0; i < accumulators.length; i++) {
+                AggregateBy aggregate = aggregatesToPerform.get(i);
+                resultRow.put(aggregate.getOutput().getName(), accumulators[i].result());
+                if (accumulators[i] instanceof Accumulators.DecimalSums sums && sums.overflow() != null) {
+                    rejectSink.reject(RejectReason.TRANSFORM_ERROR, NAME, -1,
+                            "Failed " + aggregate.getMethod() + " of '" + aggregate.getInput().getName() + "' for group " + String.join(", ", keyColumns)
+                                    + ", the exact DECIMAL total does not fit. Error: " + sums.overflow(),
+                            Arrays.stream(keyValues).map(String::valueOf).collect(Collectors.joining(", ")));
                 }
             }
             return resultRow;
@@ -132,9 +516,18 @@ public class AggregatorTransformer implements Transformer {
         @XmlIDREF private Column input;
         private Method method;
         @XmlIDREF private Column output;
+        // PERCENTILE only, 0-100
+        private Double percentile;
+        // APPROX_COUNT_DISTINCT only, log2 of the HyperLogLog register count
+        private Integer precision;
+        // PERCENTILE only, t-digest compression (higher is more accurate and uses more memory)
+        private Double compression;
         public Column getInput() { return input; }
         public Method getMethod() { return method; }
         public Column getOutput() { return output; }
+        public Double getPercentile() { return percentile; }
+        public int getPrecisionOrDefault() { return precision != null ? precision : HyperLogLog.DEFAULT_PRECISION; }
+        public double getCompressionOrDefault() { return compression != null ? compression : TDigest.DEFAULT_COMPRESSION; }
     }
-    public enum Method { SUM, AVG }
+    public enum Method { SUM, AVG, COUNT, MIN, MAX, COUNT_DISTINCT, APPROX_COUNT_DISTINCT, PERCENTILE }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.playtech.report.transformer.impl;
 import com.playtech.report.Report;
 import com.playtech.report.column.Column;
 import com.playtech.report.transformer.Transformer;
+import com.playtech.util.reject.RejectReason;
+import com.playtech.util.reject.RejectSink;
 
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
@@ -37,6 +39,7 @@ public class DateTimeFormatterTransformer implements Transformer {
             return;
         }
 
+        RejectSink rejectSink = report.getRejectSink();
         for (Map<String, Object> row : rows) {
             Object value = row.get(inputColumnName);
 
@@ -50,12 +53,14 @@ public class DateTimeFormatterTransformer implements Transformer {
                     String formattedDate = formatter.format((TemporalAccessor) value);
                     row.put(outputColumnName, formattedDate);
                 } catch (Exception e) {
-                    System.err.println("Warning: Failed to format date/time for column '" + inputColumnName + "' in row: " + row + ". Error: " + e.getMessage());
                     row.put(outputColumnName, null);
+                    rejectSink.reject(RejectReason.TRANSFORM_ERROR, NAME, -1,
+                            "Failed to format date/time for column '" + inputColumnName + "'. Error: " + e.getMessage(), value.toString());
                 }
             } else {
-                System.err.println("Warning: DateTimeFormatterTransformer expected DATE or DATETIME for input '" + inputColumnName + "', but found type " + value.getClass().getName() + ". Setting output to null.");
                 row.put(outputColumnName, null);
+                rejectSink.reject(RejectReason.TYPE_MISMATCH, NAME, -1,
+                        "Expected DATE or DATETIME for input '" + inputColumnName + "', but found type " + value.getClass().getName() + ". Setting output to null.", value.toString());
             }
         }
     }
@@ -0,0 +1,77 @@
+package com.playtech.report.transformer.impl;
+
+import com.playtech.report.Report;
+import com.playtech.report.column.Column;
+import com.playtech.report.transformer.Transformer;
+import com.playtech.util.index.DimensionIndex;
+import com.playtech.util.reject.RejectReason;
+import com.playtech.util.xml.CsvDataReader;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Enriches rows from a dimension CSV (left join on an INTEGER key): every output column is filled from the
+ * dimension column of the same name, parsed as the output's type. Rows without a match get null outputs.
+ * The dimension is compiled into a memory-mapped DimensionIndex on first use and shared between reports.
+ */
+public class LookupTransformer implements Transformer {
+    public final static String NAME = "Lookup";
+
+    private final String inputColumnName;
+    private final Path dimensionPath;
+    private final String keyColumnName;
+    private final List<Column> outputs;
+
+    public LookupTransformer(Column input, String dimension, String key, List<Column> outputs) {
+        Objects.requireNonNull(input, "Lookup input column cannot be null");
+        if (dimension == null || dimension.isBlank()) {
+            throw new IllegalArgumentException("LookupTransformer requires a <dimension> CSV path.");
+        }
+        if (input.getType() != Column.DataType.INTEGER) {
+            throw new IllegalArgumentException("LookupTransformer only supports INTEGER keys. Found: " + input.getType() + " for column '" + input.getName() + "'");
+        }
+        if (outputs == null || outputs.isEmpty()) {
+            throw new IllegalArgumentException("LookupTransformer requires at least one output column.");
+        }
+        this.inputColumnName = input.getName();
+        this.dimensionPath = Paths.get(dimension);
+        // the dimension key column defaults to the input column name
+        this.keyColumnName = (key != null && !key.isBlank()) ? key : input.getName();
+        this.outputs = outputs;
+    }
+
+    @Override
+    public void transform(Report report, List<Map<String, Object>> rows) {
+        DimensionIndex index = DimensionIndex.open(dimensionPath, keyColumnName);
+        int[] dimensionColumns = new int[outputs.size()];
+        for (int i = 0; i < dimensionColumns.length; i++) {
+            dimensionColumns[i] = index.columnIndex(outputs.get(i).getName());
+            if (dimensionColumns[i] < 0) {
+                throw new IllegalArgumentException("Lookup output column '" + outputs.get(i).getName() + "' not found in dimension " + dimensionPath + ". Available: " + index.getColumns());
+            }
+        }
+
+        for (Map<String, Object> row : rows) {
+            int record = (row.get(inputColumnName) instanceof Integer key) ? index.find(key) : -1;
+            for (int i = 0; i < dimensionColumns.length; i++) {
+                Column output = outputs.get(i);
+                if (record < 0) {
+                    row.put(output.getName(), null);
+                    continue;
+                }
+                String rawValue = index.value(record, dimensionColumns[i]);
+                try {
+                    row.put(output.getName(), rawValue.isEmpty() && output.getType() != Column.DataType.STRING ? null : CsvDataReader.parseValue(rawValue, output));
+                } catch (RuntimeException e) {
+                    row.put(output.getName(), null);
+                    report.getRejectSink().reject(RejectReason.TYPE_MISMATCH, NAME, -1,
+                            "Failed to parse dimension value for column '" + output.getName() + "' as type " + output.getType() + ". Setting output to null.", rawValue);
+                }
+            }
+        }
+    }
+}
@@ -2,39 +2,70 @@ package com.playtech.report.transformer.impl;
 
 import com.playtech.report.Report;
 import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
 import com.playtech.report.transformer.Transformer;
+import com.playtech.report.transformer.impl.kernel.ArithmeticKernels;
+import com.playtech.util.reject.RejectReason;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/*
+ * Folds two or more numeric input columns left to right: ((in1 op in2) op in3) ...
+ * Rows are processed in batches, the input columns are gathered into primitive arrays and
+ * combined with ArithmeticKernels (SIMD when available) before the results are written back.
+ */
 public class MathOperationTransformer implements Transformer {
     public final static String NAME = "MathOperation";
 
+    // big enough to amortize the gather/scatter, small enough to stay in L1/L2
+    private static final int BATCH_SIZE = 1024;
+
     private final List<String> inputColumnNames;
     private final MathOperation operation;
     private final String outputColumnName;
-    private final Column.DataType resultType; // INTEGER or DOUBLE
+    private final Column.DataType resultType; // INTEGER, DOUBLE or DECIMAL
+    private final int decimalScale; // DECIMAL only, widest declared input scale
 
     public MathOperationTransformer(List<Column> inputs, MathOperation operation, Column output) {
         this.inputColumnNames = inputs.stream().map(Column::getName).collect(Collectors.toList());
         this.operation = operation;
         this.outputColumnName = output.getName();
 
-        if (this.inputColumnNames.size() != 2) {
-            throw new IllegalArgumentException("MathOperationTransformer (ADD/SUBTRACT) requires exactly 2 input columns. Found: " + this.inputColumnNames.size());
+        if (this.inputColumnNames.size() < 2) {
+            throw new IllegalArgumentException("MathOperationTransformer requires at least 2 input columns. Found: " + this.inputColumnNames.size());
         }
 
 
         boolean anyDouble = false;
+        boolean anyDecimal = false;
+        int scale = 0;
         for (Column input : inputs) {
             Column.DataType type = input.getType();
-            if (type != Column.DataType.INTEGER && type != Column.DataType.DOUBLE) {
-                throw new IllegalArgumentException("MathOperationTransformer only supports INTEGER and DOUBLE inputs. Found: " + type + " for column '" + input.getName() + "'");
+            if (type != Column.DataType.INTEGER && type != Column.DataType.DOUBLE && type != Column.DataType.DECIMAL) {
+                throw new IllegalArgumentException("MathOperationTransformer only supports INTEGER, DOUBLE and DECIMAL inputs. Found: " + type + " for column '" + input.getName() + "'");
             }
             if (type == Column.DataType.DOUBLE) anyDouble = true;
+            if (type == Column.DataType.DECIMAL) {
+                anyDecimal = true;
+                scale = Math.max(scale, input.getScale() != null ? input.getScale() : 0);
+            }
         }
-        this.resultType = anyDouble ? Column.DataType.DOUBLE : Column.DataType.INTEGER;
+        // DOUBLE wins over DECIMAL, as mixing them can't be exact anyway
+        if (anyDouble) {
+            this.resultType = Column.DataType.DOUBLE;
+        } else if (anyDecimal) {
+            this.resultType = Column.DataType.DECIMAL;
+        } else {
+            // integer division isn't what reports mean by DIVIDE
+            this.resultType = (operation == MathOperation.DIVIDE) ? Column.DataType.DOUBLE : Column.DataType.INTEGER;
+        }
+        this.decimalScale = scale;
     }
 
     @Override
@@ -44,35 +75,238 @@ public class MathOperationTransformer implements Transformer {
             return;
         }
 
-        String input1Name = inputColumnNames.get(0);
-        String input2Name = inputColumnNames.get(1);
+        ArithmeticKernels kernels = ArithmeticKernels.get();
+        Batch batch = new Batch(Math.min(BATCH_SIZE, rows.size()));
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Map<String, Object>> batchRows = rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE));
+            switch (resultType) {
+                case DOUBLE -> transformDoubles(report, batchRows, batch, kernels);
+                case DECIMAL -> {
+                    if (operation == MathOperation.ADD || operation == MathOperation.SUBTRACT) {
+                        transformDecimals(report, batchRows, batch, kernels);
+                    } else {
+                        // MULTIPLY/DIVIDE round to the scale, that stays per row
+                        for (Map<String, Object> row : batchRows) {
+                            transformRow(report, row);
+                        }
+                    }
+                }
+                default -> transformIntegers(batchRows, batch, kernels);
+            }
+        }
+    }
+
+    private void transformDoubles(Report report, List<Map<String, Object>> rows, Batch batch, ArithmeticKernels kernels) {
+        int n = rows.size();
+        double[] acc = batch.doubles;
+        double[] next = batch.nextDoubles;
+        gatherDoubles(rows, inputColumnNames.get(0), acc);
+        for (int input = 1; input < inputColumnNames.size(); input++) {
+            gatherDoubles(rows, inputColumnNames.get(input), next);
+            switch (operation) {
+                case ADD -> kernels.add(acc, next, acc, n);
+                case SUBTRACT -> kernels.subtract(acc, next, acc, n);
+                case MULTIPLY -> kernels.multiply(acc, next, acc, n);
+                case DIVIDE -> kernels.divide(acc, next, acc, n);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (operation == MathOperation.DIVIDE && !Double.isFinite(acc[i])) {
+                // division by zero, the row path rejects it with the input values
+                transformRow(report, rows.get(i));
+            } else {
+                rows.get(i).put(outputColumnName, acc[i]);
+            }
+        }
+    }
+
+    // INTEGER results wrap around like int arithmetic, folding in longs and narrowing at the end gives the same bits
+    private void transformIntegers(List<Map<String, Object>> rows, Batch batch, ArithmeticKernels kernels) {
+        int n = rows.size();
+        long[] acc = batch.longs;
+        long[] next = batch.nextLongs;
+        gatherInts(rows, inputColumnNames.get(0), acc);
+        for (int input = 1; input < inputColumnNames.size(); input++) {
+            gatherInts(rows, inputColumnNames.get(input), next);
+            switch (operation) {
+                case ADD -> kernels.add(acc, next, acc, n);
+                case SUBTRACT -> kernels.subtract(acc, next, acc, n);
+                case MULTIPLY -> kernels.multiply(acc, next, acc, n);
+                case DIVIDE -> throw new IllegalStateException("DIVIDE always has a DOUBLE result");
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            rows.get(i).put(outputColumnName, (int) acc[i]);
+        }
+    }
+
+    // exact ADD/SUBTRACT on unscaled longs, a batch that overflows or has wider values is redone row by row
+    private void transformDecimals(Report report, List<Map<String, Object>> rows, Batch batch, ArithmeticKernels kernels) {
+        int n = rows.size();
+        long[] acc = batch.longs;
+        long[] next = batch.nextLongs;
+        boolean exact = gatherUnscaled(rows, inputColumnNames.get(0), acc);
+        for (int input = 1; exact && input < inputColumnNames.size(); input++) {
+            exact = gatherUnscaled(rows, inputColumnNames.get(input), next)
+                    && !(operation == MathOperation.ADD ? kernels.add(acc, next, acc, n) : kernels.subtract(acc, next, acc, n));
+        }
+        if (!exact) {
+            for (Map<String, Object> row : rows) {
+                transformRow(report, row);
+            }
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            rows.get(i).put(outputColumnName, Decimal.of(acc[i], decimalScale));
+        }
+    }
+
+    // one row with exact scalar math, failures are rejected and leave a null result
+    private void transformRow(Report report, Map<String, Object> row) {
+        Number[] values = new Number[inputColumnNames.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = row.get(inputColumnNames.get(i));
+            values[i] = (value instanceof Number) ? (Number) value : 0;
+        }
+        try {
+            row.put(outputColumnName, apply(values));
+        } catch (Exception e) {
+            row.put(outputColumnName, null);
+            report.getRejectSink().reject(RejectReason.TRANSFORM_ERROR, NAME, -1,
+                    "Failed math operation '" + operation + "' for inputs '" + String.join("', '", inputColumnNames) + "'. Error: " + e.getMessage(),
+                    Arrays.stream(values).map(String::valueOf).collect(Collectors.joining(", ")));
+        }
+    }
+
+    private Number apply(Number[] values) {
+        if (resultType == Column.DataType.DOUBLE) {
+            double result = values[0].doubleValue();
+            for (int i = 1; i < values.length; i++) {
+                double d = values[i].doubleValue();
+                result = switch (operation) {
+                    case ADD -> result + d;
+                    case SUBTRACT -> result - d;
+                    case MULTIPLY -> result * d;
+                    case DIVIDE -> {
+                        if (d == 0) {
+                            throw new ArithmeticException("Division by zero");
+                        }
+                        yield result / d;
+                    }
+                };
+            }
+            return result;
+        }
+        if (resultType == Column.DataType.DECIMAL) {
+            return (operation == MathOperation.ADD || operation == MathOperation.SUBTRACT) ? addDecimals(values) : multiplyDecimals(values);
+        }
+        // all inputs were INTEGER
+        int result = values[0].intValue();
+        for (int i = 1; i < values.length; i++) {
+            int v = values[i].intValue();
+            result = switch (operation) {
+                case ADD -> result + v;
+                case SUBTRACT -> result - v;
+                case MULTIPLY -> result * v;
+                case DIVIDE -> throw new IllegalStateException("DIVIDE always has a DOUBLE result");
+            };
+        }
+        return result;
+    }
 
-        for (Map<String, Object> row : rows) {
-            Object val1Obj = row.get(input1Name);
-            Object val2Obj = row.get(input2Name);
+    // exact, overflow surfaces as ArithmeticException and is rejected by the caller
+    private Decimal addDecimals(Number[] values) {
+        int scale = decimalScale;
+        for (Number value : values) {
+            scale = Math.max(scale, scaleOf(value));
+        }
+        long unscaled = unscaledOf(values[0], scale);
+        for (int i = 1; i < values.length; i++) {
+            long u = unscaledOf(values[i], scale);
+            unscaled = (operation == MathOperation.ADD) ? Math.addExact(unscaled, u) : Math.subtractExact(unscaled, u);
+        }
+        return Decimal.of(unscaled, scale);
+    }
 
+    // products and quotients are rounded half up to the declared scale once, at the end
+    private Decimal multiplyDecimals(Number[] values) {
+        BigDecimal result = toBigDecimal(values[0]);
+        for (int i = 1; i < values.length; i++) {
+            BigDecimal v = toBigDecimal(values[i]);
+            result = (operation == MathOperation.MULTIPLY) ? result.multiply(v) : result.divide(v, MathContext.DECIMAL128);
+        }
+        return Decimal.of(result.setScale(decimalScale, RoundingMode.HALF_UP).unscaledValue().longValueExact(), decimalScale);
+    }
 
-            Number num1 = (val1Obj instanceof Number) ? (Number) val1Obj : 0;
-            Number num2 = (val2Obj instanceof Number) ? (Number) val2Obj : 0;
+    private void gatherDoubles(List<Map<String, Object>> rows, String column, double[] out) {
+        for (int i = 0; i < rows.size(); i++) {
+            out[i] = (rows.get(i).get(column) instanceof Number number) ? number.doubleValue() : 0;
+        }
+    }
 
-            try {
-                Number result;
-                if (resultType == Column.DataType.DOUBLE) {
-                    double d1 = num1.doubleValue();
-                    double d2 = num2.doubleValue();
-                    result = (operation == MathOperation.ADD) ? (d1 + d2) : (d1 - d2);
-                } else { // both inputs were INTEGER
-                    int i1 = num1.intValue();
-                    int i2 = num2.intValue();
-                    result = (operation == MathOperation.ADD) ? (i1 + i2) : (i1 - i2);
+    private void gatherInts(List<Map<String, Object>> rows, String column, long[] out) {
+        for (int i = 0; i < rows.size(); i++) {
+            out[i] = (rows.get(i).get(column) instanceof Number number) ? number.intValue() : 0;
+        }
+    }
+
+    // false if a value doesn't fit the declared scale exactly, the caller then takes the row path
+    private boolean gatherUnscaled(List<Map<String, Object>> rows, String column, long[] out) {
+        for (int i = 0; i < rows.size(); i++) {
+            Object value = rows.get(i).get(column);
+            if (value instanceof Decimal decimal) {
+                if (decimal.getScale() > decimalScale) {
+                    return false;
+                }
+                out[i] = decimal.unscaledAt(decimalScale);
+            } else if (value instanceof Integer || value instanceof Long) {
+                long whole = ((Number) value).longValue();
+                long unscaled = whole * Decimal.powerOfTen(decimalScale);
+                if (unscaled / Decimal.powerOfTen(decimalScale) != whole) {
+                    return false;
                 }
-                row.put(outputColumnName, result);
-            } catch (Exception e) {
-                System.err.println("Warning: Failed math operation '" + operation + "' for inputs '" + input1Name + "', '" + input2Name + "' in row: " + row + ". Error: " + e.getMessage());
-                row.put(outputColumnName, null);
+                out[i] = unscaled;
+            } else if (value == null) {
+                out[i] = 0;
+            } else {
+                return false;
             }
         }
+        return true;
+    }
+
+    private static int scaleOf(Number number) {
+        return (number instanceof Decimal decimal) ? decimal.getScale() : 0;
+    }
+
+    private static long unscaledOf(Number number, int scale) {
+        return (number instanceof Decimal decimal) ? decimal.unscaledAt(scale) : Decimal.valueOf(number, scale).getUnscaled();
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof Decimal decimal) {
+            return decimal.toBigDecimal();
+        }
+        if (number instanceof Integer || number instanceof Long) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return BigDecimal.valueOf(number.doubleValue());
+    }
+
+    // reusable primitive columns for one batch
+    private static class Batch {
+        private final double[] doubles;
+        private final double[] nextDoubles;
+        private final long[] longs;
+        private final long[] nextLongs;
+
+        Batch(int size) {
+            this.doubles = new double[size];
+            this.nextDoubles = new double[size];
+            this.longs = new long[size];
+            this.nextLongs = new long[size];
+        }
     }
 
-    public enum MathOperation { ADD, SUBTRACT }
-}
\ No newline at end of file
+    public enum MathOperation { ADD, SUBTRACT, MULTIPLY, DIVIDE }
+}
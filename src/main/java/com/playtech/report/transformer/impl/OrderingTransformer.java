@@ -3,6 +3,7 @@ package com.playtech.report.transformer.impl;
 import com.playtech.report.Report;
 import com.playtech.report.column.Column;
 import com.playtech.report.transformer.Transformer;
+import com.playtech.util.reject.RejectReason;
 
 import java.util.Comparator;
 import java.util.List;
@@ -24,6 +25,10 @@ public class OrderingTransformer implements Transformer {
         }
     }
 
+    public String getInputColumnName() {
+        return inputColumnName;
+    }
+
     @Override
     public void transform(Report report, List<Map<String, Object>> rows) {
         if (inputColumnName == null || inputColumnName.isEmpty()) {
@@ -31,7 +36,13 @@ public class OrderingTransformer implements Transformer {
             return;
         }
 
-        Comparator<Map<String, Object>> comparator = (row1, row2) -> {
+        // Sort the list in place
+        rows.sort(comparator(report));
+    }
+
+    // row order of this transformer, also used to merge the sorted runs of a sharded run
+    public Comparator<Map<String, Object>> comparator(Report report) {
+        return (row1, row2) -> {
             Object val1 = row1.get(inputColumnName);
             Object val2 = row2.get(inputColumnName);
 
@@ -50,13 +61,11 @@ public class OrderingTransformer implements Transformer {
                 return (sortOrder == Order.DESC) ? -compareResult : compareResult;
             } catch (ClassCastException e) {
                 // just in case
-                System.err.println("Warning: Type mismatch during sorting column '" + inputColumnName + "'. Values: '" + val1 + "', '" + val2 + "'. Treating as equal.");
+                report.getRejectSink().reject(RejectReason.TYPE_MISMATCH, NAME, -1,
+                        "Type mismatch during sorting column '" + inputColumnName + "'. Treating as equal.", val1 + ", " + val2);
                 return 0;
             }
         };
-
-        // Sort the list in place
-        rows.sort(comparator);
     }
 
     public enum Order {
@@ -2,7 +2,9 @@ package com.playtech.report.transformer.impl;
 
 import com.playtech.report.Report;
 import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
 import com.playtech.report.transformer.Transformer;
+import com.playtech.util.reject.RejectReason;
 
 import java.util.List;
 import java.util.Map;
@@ -39,13 +41,20 @@ public class StringFormatterTransformer implements Transformer {
             try {
                 Object[] args = inputColumnNames.stream()
                         .map(row::get) // gets value, lets String.format handle nulls/types
+                        .map(StringFormatterTransformer::formatArgument)
                         .toArray();
                 String formattedString = String.format(formatString, args);
                 row.put(outputColumnName, formattedString);
             } catch (Exception e) {
-                System.err.println("Warning: Failed to format string for output '" + outputColumnName + "' in row: " + row + ". Error: " + e.getMessage());
                 row.put(outputColumnName, null);
+                report.getRejectSink().reject(RejectReason.TRANSFORM_ERROR, NAME, -1,
+                        "Failed to format string for output '" + outputColumnName + "' with format '" + formatString + "'. Error: " + e.getMessage(), null);
             }
         }
     }
+
+    // %f only accepts Float, Double and BigDecimal, DECIMAL values go through BigDecimal so they format exactly
+    private static Object formatArgument(Object value) {
+        return (value instanceof Decimal decimal) ? decimal.toBigDecimal() : value;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * Per-group state of one aggregation (e.g. the running sum of BetAmount for one StartDate).
+ * Accumulators of the same kind can be merged, so groups can be aggregated in parts (in parallel or per shard)
+ * and combined afterwards.
+ */
+public interface Accumulator {
+    // null values are passed in as well, each accumulator decides whether they count
+    void accumulate(Object value);
+
+    // folds another accumulator of the same kind into this one
+    void merge(Accumulator other);
+
+    Object result();
+
+    // partial state of a shard, read back into a fresh accumulator of the same kind before merging
+    void writeState(DataOutput out) throws IOException;
+
+    void readState(DataInput in) throws IOException;
+}
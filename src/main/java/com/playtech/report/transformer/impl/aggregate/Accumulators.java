@@ -0,0 +1,481 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
+import com.playtech.report.transformer.impl.AggregatorTransformer;
+import com.playtech.util.cache.RowCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+// accumulator implementations for every AggregatorTransformer.Method
+public final class Accumulators {
+
+    private Accumulators() {
+    }
+
+    public static Accumulator create(AggregatorTransformer.AggregateBy aggregateBy) {
+        Column input = aggregateBy.getInput();
+        boolean decimal = input.getType() == Column.DataType.DECIMAL;
+        int scale = (decimal && input.getScale() != null) ? input.getScale() : 0;
+        return switch (aggregateBy.getMethod()) {
+            case SUM -> decimal ? new DecimalSum(scale) : new Sum();
+            case AVG -> decimal ? new DecimalAvg(scale) : new Avg();
+            case COUNT -> new Count();
+            case MIN -> new MinMax(false);
+            case MAX -> new MinMax(true);
+            case COUNT_DISTINCT -> new CountDistinct();
+            case APPROX_COUNT_DISTINCT -> new ApproxCountDistinct(aggregateBy.getPrecisionOrDefault());
+            case PERCENTILE -> new Percentile(aggregateBy.getPercentile(), aggregateBy.getCompressionOrDefault());
+        };
+    }
+
+    // SUM/AVG over doubles that can take an already reduced run of values, e.g. a kernel sum of a batch
+    public interface DoubleSums extends Accumulator {
+        void addSum(double sum, long count);
+    }
+
+    // SUM/AVG over DECIMAL values that can take an already reduced run of unscaled values
+    public interface DecimalSums extends Accumulator {
+        void addUnscaledSum(long unscaled, int scale, long count);
+
+        // why the group's total could not be kept exact, null while it fits
+        String overflow();
+    }
+
+    // sum of the numeric values, 0.0 for a group without any
+    public static class Sum implements DoubleSums {
+        double sum;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value instanceof Number number) {
+                sum += number.doubleValue();
+            }
+        }
+
+        @Override
+        public void addSum(double sum, long count) {
+            this.sum += sum;
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            sum += ((Sum) other).sum;
+        }
+
+        @Override
+        public Object result() {
+            return sum;
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeDouble(sum);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            sum = in.readDouble();
+        }
+    }
+
+    // average of the numeric values, 0.0 for a group without any
+    public static class Avg implements DoubleSums {
+        double sum;
+        long count;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value instanceof Number number) {
+                sum += number.doubleValue();
+                count++;
+            }
+        }
+
+        @Override
+        public void addSum(double sum, long count) {
+            this.sum += sum;
+            this.count += count;
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            Avg avg = (Avg) other;
+            sum += avg.sum;
+            count += avg.count;
+        }
+
+        @Override
+        public Object result() {
+            // avoids division by zero if no valid inputs
+            return (count == 0) ? 0.0 : sum / count;
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeDouble(sum);
+            out.writeLong(count);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            sum = in.readDouble();
+            count = in.readLong();
+        }
+    }
+
+    // exact sum of DECIMAL values as a scaled long, a total that overflows it makes the result null
+    public static class DecimalSum implements DecimalSums {
+        int scale;
+        long unscaled;
+        String overflow;
+
+        DecimalSum(int scale) {
+            this.scale = scale;
+        }
+
+        @Override
+        public void accumulate(Object value) {
+            if (value instanceof Number number && overflow == null) {
+                try {
+                    // unscaledOf may widen the sum first, so it has to run before the sum is read
+                    long added = unscaledOf(number);
+                    unscaled = Math.addExact(unscaled, added);
+                } catch (ArithmeticException e) {
+                    overflow = e.getMessage();
+                }
+            }
+        }
+
+        @Override
+        public void addUnscaledSum(long unscaled, int scale, long count) {
+            if (overflow != null) {
+                return;
+            }
+            try {
+                widenTo(scale);
+                this.unscaled = Math.addExact(this.unscaled, Math.multiplyExact(unscaled, Decimal.powerOfTen(this.scale - scale)));
+            } catch (ArithmeticException e) {
+                overflow = e.getMessage();
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            DecimalSum sum = (DecimalSum) other;
+            if (overflow != null || sum.overflow != null) {
+                overflow = overflow != null ? overflow : sum.overflow;
+                return;
+            }
+            try {
+                widenTo(sum.scale);
+                unscaled = Math.addExact(unscaled, Math.multiplyExact(sum.unscaled, Decimal.powerOfTen(scale - sum.scale)));
+            } catch (ArithmeticException e) {
+                overflow = e.getMessage();
+            }
+        }
+
+        @Override
+        public String overflow() {
+            return overflow;
+        }
+
+        @Override
+        public Object result() {
+            return overflow != null ? null : Decimal.of(unscaled, scale);
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeInt(scale);
+            out.writeLong(unscaled);
+            out.writeUTF(overflow != null ? overflow : "");
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            scale = in.readInt();
+            unscaled = in.readLong();
+            String message = in.readUTF();
+            overflow = message.isEmpty() ? null : message;
+        }
+
+        // values with more fraction digits than declared widen the sum instead of losing precision
+        long unscaledOf(Number number) {
+            if (number instanceof Decimal decimal) {
+                widenTo(decimal.getScale());
+                return decimal.unscaledAt(scale);
+            }
+            return Decimal.valueOf(number, scale).getUnscaled();
+        }
+
+        void widenTo(int newScale) {
+            if (newScale > scale) {
+                unscaled = Math.multiplyExact(unscaled, Decimal.powerOfTen(newScale - scale));
+                scale = newScale;
+            }
+        }
+    }
+
+    // exact DECIMAL average, rounded half up to the scale, 0 for a group without values
+    public static class DecimalAvg extends DecimalSum {
+        long count;
+
+        DecimalAvg(int scale) {
+            super(scale);
+        }
+
+        @Override
+        public void accumulate(Object value) {
+            super.accumulate(value);
+            if (value instanceof Number) {
+                count++;
+            }
+        }
+
+        @Override
+        public void addUnscaledSum(long unscaled, int scale, long count) {
+            super.addUnscaledSum(unscaled, scale, count);
+            this.count += count;
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            super.merge(other);
+            count += ((DecimalAvg) other).count;
+        }
+
+        @Override
+        public Object result() {
+            if (overflow != null) {
+                return null;
+            }
+            if (count == 0) {
+                return Decimal.of(0, scale);
+            }
+            long quotient = unscaled / count;
+            long remainder = unscaled % count;
+            if (Math.abs(remainder) * 2 >= count) {
+                quotient += Long.signum(unscaled);
+            }
+            return Decimal.of(quotient, scale);
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            super.writeState(out);
+            out.writeLong(count);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            super.readState(in);
+            count = in.readLong();
+        }
+    }
+
+    // number of non-null values
+    public static class Count implements Accumulator {
+        long count;
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null) {
+                count++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            count += ((Count) other).count;
+        }
+
+        @Override
+        public Object result() {
+            return count;
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeLong(count);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            count = in.readLong();
+        }
+    }
+
+    // smallest or largest non-null value, keeps the input type (numbers, strings, dates)
+    public static class MinMax implements Accumulator {
+        private final boolean max;
+        Comparable<Object> current;
+
+        MinMax(boolean max) {
+            this.max = max;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") // inputs are validated to comparable column types in AggregatorTransformer
+        public void accumulate(Object value) {
+            if (value == null) {
+                return;
+            }
+            Comparable<Object> candidate = (Comparable<Object>) value;
+            if (current == null) {
+                current = candidate;
+                return;
+            }
+            int compared = compare(candidate, current);
+            if (max ? compared > 0 : compared < 0) {
+                current = candidate;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            accumulate(((MinMax) other).current);
+        }
+
+        @Override
+        public Object result() {
+            return current;
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            RowCodec.writeValue(out, current);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            current = null;
+            accumulate(RowCodec.readValue(in));
+        }
+
+        // Integer and Double inputs can meet after merging partial states, compare them numerically
+        private static int compare(Comparable<Object> a, Comparable<Object> b) {
+            if (a instanceof Number na && b instanceof Number nb && a.getClass() != b.getClass()) {
+                return Double.compare(na.doubleValue(), nb.doubleValue());
+            }
+            return a.compareTo(b);
+        }
+    }
+
+    // exact distinct count, memory grows with the number of distinct values in the group
+    public static class CountDistinct implements Accumulator {
+        final Set<Object> values = new HashSet<>();
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null) {
+                values.add(value);
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            values.addAll(((CountDistinct) other).values);
+        }
+
+        @Override
+        public Object result() {
+            return (long) values.size();
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeInt(values.size());
+            for (Object value : values) {
+                RowCodec.writeValue(out, value);
+            }
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            values.clear();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                values.add(RowCodec.readValue(in));
+            }
+        }
+    }
+
+    // approximate distinct count with fixed memory per group
+    public static class ApproxCountDistinct implements Accumulator {
+        final HyperLogLog sketch;
+
+        ApproxCountDistinct(int precision) {
+            this.sketch = new HyperLogLog(precision);
+        }
+
+        @Override
+        public void accumulate(Object value) {
+            if (value != null) {
+                sketch.add(value);
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            sketch.merge(((ApproxCountDistinct) other).sketch);
+        }
+
+        @Override
+        public Object result() {
+            return sketch.estimate();
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            sketch.writeTo(out);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            sketch.readFrom(in);
+        }
+    }
+
+    // approximate percentile (0-100) with memory per group growing with log n, null for a group without values
+    public static class Percentile implements Accumulator {
+        final TDigest digest;
+        private final double quantile;
+
+        Percentile(double percentile, double compression) {
+            this.digest = new TDigest(compression);
+            this.quantile = percentile / 100.0;
+        }
+
+        @Override
+        public void accumulate(Object value) {
+            if (value instanceof Number number) {
+                digest.add(number.doubleValue());
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            digest.merge(((Percentile) other).digest);
+        }
+
+        @Override
+        public Object result() {
+            return digest.size() == 0 ? null : digest.quantile(quantile);
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            digest.writeTo(out);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            digest.readFrom(in);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Open-addressing hash table from composite group keys (one part per groupBy column) to dense group ids.
+ * Each key part is encoded straight from the cell value into a long slot: int and long values as is,
+ * dates as epoch days, doubles as their bits, and everything else (strings, date-times) as a per-column
+ * dictionary code. A 4 bit tag per part keeps null, 5 and 5L apart. Looking up a row therefore hashes
+ * the slot values without building a key object; allocation only happens once per new group or new
+ * dictionary value. Group ids are handed out in first-seen order.
+ */
+public class GroupKeyTable {
+    public static final int MAX_KEY_PARTS = 16;
+
+    private static final int TAG_BITS = 4;
+    private static final long TAG_NULL = 0;
+    private static final long TAG_INT = 1;
+    private static final long TAG_LONG = 2;
+    private static final long TAG_DATE = 3;
+    private static final long TAG_DOUBLE = 4;
+    private static final long TAG_DICTIONARY = 5;
+    private static final int EMPTY = -1;
+
+    private final String[] keyColumns;
+    private final int width;
+    private final List<Map<Object, Integer>> dictionaries = new ArrayList<>();
+    private final List<Object[]> groupKeyValues = new ArrayList<>();
+
+    // per-lookup scratch space, the table is not thread safe
+    private final long[] scratchParts;
+    private long scratchTags;
+
+    private long[] slotParts;
+    private long[] slotTags;
+    private int[] slotHashes;
+    private int[] slotGroups;
+    private int mask;
+
+    public GroupKeyTable(List<String> keyColumns) {
+        if (keyColumns.isEmpty() || keyColumns.size() > MAX_KEY_PARTS) {
+            throw new IllegalArgumentException("Group keys need 1 to " + MAX_KEY_PARTS + " columns. Found: " + keyColumns.size());
+        }
+        this.keyColumns = keyColumns.toArray(new String[0]);
+        this.width = this.keyColumns.length;
+        for (int i = 0; i < width; i++) {
+            dictionaries.add(new HashMap<>());
+        }
+        this.scratchParts = new long[width];
+        allocate(64);
+    }
+
+    // group id of the row's key, new ids are size() - 1 right after the call
+    public int groupOf(Map<String, Object> row) {
+        scratchTags = 0;
+        for (int part = 0; part < width; part++) {
+            encode(part, row.get(keyColumns[part]));
+        }
+        int group = probe();
+        if (group != EMPTY) {
+            return group;
+        }
+        Object[] values = new Object[width];
+        for (int part = 0; part < width; part++) {
+            values[part] = row.get(keyColumns[part]);
+        }
+        return insert(values);
+    }
+
+    // same as groupOf(row) for key values taken from another table (merging partial aggregations)
+    public int groupOf(Object[] keyValues) {
+        scratchTags = 0;
+        for (int part = 0; part < width; part++) {
+            encode(part, keyValues[part]);
+        }
+        int group = probe();
+        return group != EMPTY ? group : insert(keyValues.clone());
+    }
+
+    public Object[] keyValues(int group) {
+        return groupKeyValues.get(group);
+    }
+
+    public String[] getKeyColumns() {
+        return keyColumns;
+    }
+
+    public int size() {
+        return groupKeyValues.size();
+    }
+
+    private void encode(int part, Object value) {
+        long tag;
+        long encoded;
+        if (value == null) {
+            tag = TAG_NULL;
+            encoded = 0;
+        } else if (value instanceof Integer i) {
+            tag = TAG_INT;
+            encoded = i;
+        } else if (value instanceof Long l) {
+            tag = TAG_LONG;
+            encoded = l;
+        } else if (value instanceof LocalDate date) {
+            tag = TAG_DATE;
+            encoded = date.toEpochDay();
+        } else if (value instanceof Double d) {
+            tag = TAG_DOUBLE;
+            encoded = Double.doubleToLongBits(d); // canonical NaN, same equality as Double.equals
+        } else {
+            tag = TAG_DICTIONARY;
+            Map<Object, Integer> dictionary = dictionaries.get(part);
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+            }
+            encoded = code;
+        }
+        scratchParts[part] = encoded;
+        scratchTags |= tag << (part * TAG_BITS);
+    }
+
+    private int hashScratch() {
+        long h = HyperLogLog.mix64(scratchTags);
+        for (int part = 0; part < width; part++) {
+            h = HyperLogLog.mix64(h ^ scratchParts[part]);
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // returns the group of the scratch key, or EMPTY with the scratch hash left for insert()
+    private int probe() {
+        int hash = hashScratch();
+        int slot = hash & mask;
+        while (slotGroups[slot] != EMPTY) {
+            if (slotHashes[slot] == hash && slotTags[slot] == scratchTags && partsEqual(slot)) {
+                return slotGroups[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private boolean partsEqual(int slot) {
+        int base = slot * width;
+        for (int part = 0; part < width; part++) {
+            if (slotParts[base + part] != scratchParts[part]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insert(Object[] values) {
+        int group = groupKeyValues.size();
+        groupKeyValues.add(values);
+        if ((group + 1) * 2 > slotGroups.length) {
+            resize();
+        }
+        place(hashScratch(), scratchTags, scratchParts, 0, group);
+        return group;
+    }
+
+    private void place(int hash, long tags, long[] parts, int partsOffset, int group) {
+        int slot = hash & mask;
+        while (slotGroups[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slotGroups[slot] = group;
+        slotHashes[slot] = hash;
+        slotTags[slot] = tags;
+        System.arraycopy(parts, partsOffset, slotParts, slot * width, width);
+    }
+
+    // keeps the load factor at or below 1/2
+    private void resize() {
+        long[] oldParts = slotParts;
+        long[] oldTags = slotTags;
+        int[] oldHashes = slotHashes;
+        int[] oldGroups = slotGroups;
+        allocate(oldGroups.length * 2);
+        for (int slot = 0; slot < oldGroups.length; slot++) {
+            if (oldGroups[slot] != EMPTY) {
+                place(oldHashes[slot], oldTags[slot], oldParts, slot * width, oldGroups[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slotParts = new long[capacity * width];
+        slotTags = new long[capacity];
+        slotHashes = new int[capacity];
+        slotGroups = new int[capacity];
+        Arrays.fill(slotGroups, EMPTY);
+        mask = capacity - 1;
+    }
+}
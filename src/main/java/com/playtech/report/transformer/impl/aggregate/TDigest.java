@@ -0,0 +1,235 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Merging t-digest for approximate quantiles (Dunning & Ertl).
+ * Values are buffered and periodically merged into centroids, where a centroid near quantile q may hold at
+ * most 4 * n * q * (1 - q) / compression points. This keeps the tails accurate; the price is that the
+ * centroid count grows with log n (about compression * ln(n) / 2, ~700 for 200k values at compression 100)
+ * instead of staying fixed. Digests merge by re-clustering the other digest's centroids.
+ */
+public class TDigest {
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int bufferCount;
+
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int centroidCount;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("t-digest compression must be at least 10. Found: " + compression);
+        }
+        this.compression = compression;
+        int bufferSize = (int) (5 * compression);
+        this.bufferMeans = new double[bufferSize];
+        this.bufferWeights = new double[bufferSize];
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (bufferCount == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroidCount; i++) {
+            if (bufferCount == bufferMeans.length) {
+                compress();
+            }
+            bufferMeans[bufferCount] = other.means[i];
+            bufferWeights[bufferCount] = other.weights[i];
+            bufferCount++;
+        }
+        totalWeight += other.totalWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    // q in [0, 1], NaN when nothing was added
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1. Found: " + q);
+        }
+        compress();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1) {
+            return means[0];
+        }
+
+        double index = q * totalWeight;
+        if (index <= weights[0] / 2) {
+            // between the minimum and the first centroid
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + step > index) {
+                double z = (index - weightSoFar) / step;
+                return means[i] + z * (means[i + 1] - means[i]);
+            }
+            weightSoFar += step;
+        }
+        // between the last centroid and the maximum
+        int last = centroidCount - 1;
+        double z = Math.min(1.0, (index - weightSoFar) / (weights[last] / 2));
+        return means[last] + z * (max - means[last]);
+    }
+
+    public long size() {
+        return Math.round(totalWeight);
+    }
+
+    public int centroidCount() {
+        compress();
+        return centroidCount;
+    }
+
+    // the compressed centroids and the totals, buffered values are merged in first
+    public void writeTo(DataOutput out) throws IOException {
+        compress();
+        out.writeInt(centroidCount);
+        for (int i = 0; i < centroidCount; i++) {
+            out.writeDouble(means[i]);
+            out.writeDouble(weights[i]);
+        }
+        out.writeDouble(totalWeight);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+
+    // replaces the state with a digest written by writeTo
+    public void readFrom(DataInput in) throws IOException {
+        bufferCount = 0;
+        centroidCount = in.readInt();
+        means = new double[centroidCount];
+        weights = new double[centroidCount];
+        for (int i = 0; i < centroidCount; i++) {
+            means[i] = in.readDouble();
+            weights[i] = in.readDouble();
+        }
+        totalWeight = in.readDouble();
+        min = in.readDouble();
+        max = in.readDouble();
+    }
+
+    private void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+        int n = centroidCount + bufferCount;
+        double[] allMeans = new double[n];
+        double[] allWeights = new double[n];
+        System.arraycopy(means, 0, allMeans, 0, centroidCount);
+        System.arraycopy(weights, 0, allWeights, 0, centroidCount);
+        System.arraycopy(bufferMeans, 0, allMeans, centroidCount, bufferCount);
+        System.arraycopy(bufferWeights, 0, allWeights, centroidCount, bufferCount);
+        bufferCount = 0;
+
+        sortByMean(allMeans, allWeights, 0, n - 1);
+
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += allWeights[i];
+        }
+
+        double[] newMeans = new double[n];
+        double[] newWeights = new double[n];
+        int count = 0;
+        double currentMean = allMeans[0];
+        double currentWeight = allWeights[0];
+        double weightSoFar = 0;
+        for (int i = 1; i < n; i++) {
+            double proposed = currentWeight + allWeights[i];
+            double q0 = weightSoFar / total;
+            double q2 = (weightSoFar + proposed) / total;
+            double limit = total * Math.min(maxSize(q0), maxSize(q2));
+            if (proposed <= limit) {
+                currentMean += (allMeans[i] - currentMean) * allWeights[i] / proposed;
+                currentWeight = proposed;
+            } else {
+                newMeans[count] = currentMean;
+                newWeights[count] = currentWeight;
+                count++;
+                weightSoFar += currentWeight;
+                currentMean = allMeans[i];
+                currentWeight = allWeights[i];
+            }
+        }
+        newMeans[count] = currentMean;
+        newWeights[count] = currentWeight;
+        count++;
+
+        means = Arrays.copyOf(newMeans, count);
+        weights = Arrays.copyOf(newWeights, count);
+        centroidCount = count;
+    }
+
+    // quicksort of the parallel mean/weight arrays, avoids boxing an index array on every compress
+    private static void sortByMean(double[] means, double[] weights, int from, int to) {
+        while (from < to) {
+            double pivot = means[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (means[i] < pivot) i++;
+                while (means[j] > pivot) j--;
+                if (i <= j) {
+                    double mean = means[i];
+                    means[i] = means[j];
+                    means[j] = mean;
+                    double weight = weights[i];
+                    weights[i] = weights[j];
+                    weights[j] = weight;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into the smaller half, loop on the larger one
+            if (j - from < to - i) {
+                sortByMean(means, weights, from, j);
+                from = i;
+            } else {
+                sortByMean(means, weights, i, to);
+                to = j;
+            }
+        }
+    }
+
+    private double maxSize(double q) {
+        return 4 * q * (1 - q) / compression;
+    }
+
+    double getCompression() {
+        return compression;
+    }
+}
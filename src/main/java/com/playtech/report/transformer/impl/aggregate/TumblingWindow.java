@@ -0,0 +1,67 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Fixed-size, non-overlapping time buckets for DATETIME group keys, e.g. 1h or 1d.
+ * Buckets are aligned to the epoch, so 1d buckets start at midnight UTC, the value keeps its zone.
+ */
+public class TumblingWindow {
+    private static final Pattern SHORT_FORM = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+
+    private final Duration size;
+    private final long sizeMillis;
+
+    public TumblingWindow(Duration size) {
+        if (size.isNegative() || size.isZero()) {
+            throw new IllegalArgumentException("Window size must be positive. Found: " + size);
+        }
+        // buckets are computed on epoch millis
+        if (size.toMillis() == 0) {
+            throw new IllegalArgumentException("Window size must be at least 1 ms. Found: " + size);
+        }
+        if (size.toNanosPart() % 1_000_000 != 0) {
+            throw new IllegalArgumentException("Window size must be a whole number of milliseconds. Found: " + size);
+        }
+        this.size = size;
+        this.sizeMillis = size.toMillis();
+    }
+
+    // "15m", "1h", "1d" or an ISO-8601 duration like "PT30M"
+    public static TumblingWindow parse(String window) {
+        String trimmed = window.trim();
+        Matcher matcher = SHORT_FORM.matcher(trimmed);
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            return new TumblingWindow(switch (matcher.group(2)) {
+                case "ms" -> Duration.ofMillis(amount);
+                case "s" -> Duration.ofSeconds(amount);
+                case "m" -> Duration.ofMinutes(amount);
+                case "h" -> Duration.ofHours(amount);
+                default -> Duration.ofDays(amount);
+            });
+        }
+        try {
+            return new TumblingWindow(Duration.parse(trimmed));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid window '" + window + "', expected e.g. 15m, 1h, 1d or PT1H", e);
+        }
+    }
+
+    // start of the bucket the value falls into, anything but a date-time is returned as is
+    public Object start(Object value) {
+        if (!(value instanceof ZonedDateTime dateTime)) {
+            return value;
+        }
+        long start = Math.floorDiv(dateTime.toInstant().toEpochMilli(), sizeMillis) * sizeMillis;
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(start), dateTime.getZone());
+    }
+
+    public Duration getSize() {
+        return size;
+    }
+}
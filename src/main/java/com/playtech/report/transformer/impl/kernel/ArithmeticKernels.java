@@ -0,0 +1,59 @@
+package com.playtech.report.transformer.impl.kernel;
+
+/*
+ * Element-wise arithmetic and reductions over primitive column batches.
+ * Long operations report overflow instead of throwing, so callers can redo just that batch with exact scalar math.
+ */
+public interface ArithmeticKernels {
+    // system property to force the scalar kernels, e.g. to compare against the SIMD ones
+    String SCALAR_PROPERTY = "report.kernels.scalar";
+
+    void add(double[] a, double[] b, double[] out, int n);
+
+    void subtract(double[] a, double[] b, double[] out, int n);
+
+    void multiply(double[] a, double[] b, double[] out, int n);
+
+    void divide(double[] a, double[] b, double[] out, int n);
+
+    // returns true if any element overflowed, out is then undefined for those elements
+    boolean add(long[] a, long[] b, long[] out, int n);
+
+    boolean subtract(long[] a, long[] b, long[] out, int n);
+
+    // wraps around like long multiplication, no overflow check
+    void multiply(long[] a, long[] b, long[] out, int n);
+
+    double sum(double[] values, int from, int to);
+
+    // exact sum, throws ArithmeticException on overflow
+    long sum(long[] values, int from, int to);
+
+    String name();
+
+    // SIMD kernels when jdk.incubator.vector is available at runtime, scalar kernels otherwise
+    static ArithmeticKernels get() {
+        return KernelHolder.INSTANCE;
+    }
+
+    // lazy, one-time kernel selection. Member classes of an interface are always public, so the constructor
+    // and the field are private instead
+    final class KernelHolder {
+        private static final ArithmeticKernels INSTANCE = select();
+
+        private KernelHolder() {
+        }
+
+        private static ArithmeticKernels select() {
+            if (Boolean.getBoolean(SCALAR_PROPERTY)) {
+                return new ScalarKernels();
+            }
+            try {
+                return new VectorApiKernels();
+            } catch (LinkageError e) {
+                // the incubator module isn't resolved (no --add-modules jdk.incubator.vector)
+                return new ScalarKernels();
+            }
+        }
+    }
+}
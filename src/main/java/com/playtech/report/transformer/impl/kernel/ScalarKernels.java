@@ -0,0 +1,85 @@
+package com.playtech.report.transformer.impl.kernel;
+
+// plain loops, used when the Vector API isn't available (the JIT may still auto-vectorize some of them)
+public class ScalarKernels implements ArithmeticKernels {
+
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void subtract(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] - b[i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public void divide(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] / b[i];
+        }
+    }
+
+    @Override
+    public boolean add(long[] a, long[] b, long[] out, int n) {
+        long overflow = 0;
+        for (int i = 0; i < n; i++) {
+            long r = a[i] + b[i];
+            overflow |= (a[i] ^ r) & (b[i] ^ r);
+            out[i] = r;
+        }
+        return overflow < 0;
+    }
+
+    @Override
+    public boolean subtract(long[] a, long[] b, long[] out, int n) {
+        long overflow = 0;
+        for (int i = 0; i < n; i++) {
+            long r = a[i] - b[i];
+            overflow |= (a[i] ^ b[i]) & (a[i] ^ r);
+            out[i] = r;
+        }
+        return overflow < 0;
+    }
+
+    @Override
+    public void multiply(long[] a, long[] b, long[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public double sum(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long sum(long[] values, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum = Math.addExact(sum, values[i]);
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,163 @@
+package com.playtech.report.transformer.impl.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * SIMD kernels on the incubating Vector API, using the widest species the CPU supports.
+ * Loading this class fails with a LinkageError unless the JVM runs with --add-modules jdk.incubator.vector,
+ * ArithmeticKernels.get() then falls back to ScalarKernels. Tails shorter than a vector run as scalar loops.
+ */
+public class VectorApiKernels implements ArithmeticKernels {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    private final ScalarKernels tail = new ScalarKernels();
+
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, a, i).add(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void subtract(double[] a, double[] b, double[] out, int n) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, a, i).sub(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] - b[i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, double[] b, double[] out, int n) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, a, i).mul(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public void divide(double[] a, double[] b, double[] out, int n) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, a, i).div(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] / b[i];
+        }
+    }
+
+    @Override
+    public boolean add(long[] a, long[] b, long[] out, int n) {
+        int i = 0;
+        LongVector overflow = LongVector.zero(LONGS);
+        for (int bound = LONGS.loopBound(n); i < bound; i += LONGS.length()) {
+            LongVector va = LongVector.fromArray(LONGS, a, i);
+            LongVector vb = LongVector.fromArray(LONGS, b, i);
+            LongVector r = va.add(vb);
+            // sign bit set where both operands differ in sign from the result
+            overflow = overflow.or(va.lanewise(VectorOperators.XOR, r).and(vb.lanewise(VectorOperators.XOR, r)));
+            r.intoArray(out, i);
+        }
+        boolean overflowed = overflow.compare(VectorOperators.LT, 0).anyTrue();
+        for (; i < n; i++) {
+            long r = a[i] + b[i];
+            overflowed |= ((a[i] ^ r) & (b[i] ^ r)) < 0;
+            out[i] = r;
+        }
+        return overflowed;
+    }
+
+    @Override
+    public boolean subtract(long[] a, long[] b, long[] out, int n) {
+        int i = 0;
+        LongVector overflow = LongVector.zero(LONGS);
+        for (int bound = LONGS.loopBound(n); i < bound; i += LONGS.length()) {
+            LongVector va = LongVector.fromArray(LONGS, a, i);
+            LongVector vb = LongVector.fromArray(LONGS, b, i);
+            LongVector r = va.sub(vb);
+            overflow = overflow.or(va.lanewise(VectorOperators.XOR, vb).and(va.lanewise(VectorOperators.XOR, r)));
+            r.intoArray(out, i);
+        }
+        boolean overflowed = overflow.compare(VectorOperators.LT, 0).anyTrue();
+        for (; i < n; i++) {
+            long r = a[i] - b[i];
+            overflowed |= ((a[i] ^ b[i]) & (a[i] ^ r)) < 0;
+            out[i] = r;
+        }
+        return overflowed;
+    }
+
+    @Override
+    public void multiply(long[] a, long[] b, long[] out, int n) {
+        int i = 0;
+        for (int bound = LONGS.loopBound(n); i < bound; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, a, i).mul(LongVector.fromArray(LONGS, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public double sum(double[] values, int from, int to) {
+        int i = from;
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long sum(long[] values, int from, int to) {
+        int i = from;
+        LongVector acc = LongVector.zero(LONGS);
+        LongVector overflow = LongVector.zero(LONGS);
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            LongVector v = LongVector.fromArray(LONGS, values, i);
+            LongVector r = acc.add(v);
+            overflow = overflow.or(acc.lanewise(VectorOperators.XOR, r).and(v.lanewise(VectorOperators.XOR, r)));
+            acc = r;
+        }
+        if (overflow.compare(VectorOperators.LT, 0).anyTrue()) {
+            // a lane overflowed, the exact scalar sum decides whether the total really does
+            return tail.sum(values, from, to);
+        }
+        try {
+            long sum = 0;
+            for (int lane = 0; lane < LONGS.length(); lane++) {
+                sum = Math.addExact(sum, acc.lane(lane));
+            }
+            for (; i < to; i++) {
+                sum = Math.addExact(sum, values[i]);
+            }
+            return sum;
+        } catch (ArithmeticException e) {
+            // lane partials can overflow in a different order than the rows, same as above
+            return tail.sum(values, from, to);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + DOUBLES.vectorBitSize() + "bit";
+    }
+}
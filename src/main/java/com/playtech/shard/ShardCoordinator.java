@@ -0,0 +1,320 @@
+package com.playtech.shard;
+
+import com.playtech.report.Report;
+import com.playtech.report.transformer.Transformer;
+import com.playtech.report.transformer.impl.AggregatorTransformer;
+import com.playtech.report.transformer.impl.OrderingTransformer;
+import com.playtech.util.cache.RowCodec;
+import com.playtech.util.reject.RejectSink;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/*
+ * Runs the read phase of one report in several local worker processes (ShardWorker, same classpath and JVM
+ * options as this one, except for debugging and recording agents and the heap size, which is `heapMb` each).
+ * The CSV is cut into equal byte ranges, every worker reads its range and applies the transformers up to
+ * the first blocking one (Aggregator or Ordering), then the partials are merged here:
+ * rows are concatenated, sorted runs are merged, aggregation states are merged per group. The rejects of the
+ * workers are replayed into the report's sink with CSV line numbers, in input order.
+ * A failed worker (non-zero exit, no partial file) is started again up to `retries` times.
+ */
+public class ShardCoordinator {
+    public static final String OPTION_SHARDS = "shards";
+    public static final String OPTION_SHARD_RETRIES = "shard-retries";
+    public static final String OPTION_SHARD_HEAP_MB = "shard-heap-mb";
+    public static final int DEFAULT_RETRIES = 2;
+
+    private static final int LOG_TAIL_LINES = 20;
+
+    private final String csvDataFilePath;
+    private final String reportXmlFilePath;
+    private final Report report;
+    private final Path outputDir;
+    private final int shards;
+    private final int retries;
+    private final long heapMb;
+    private final boolean verbose;
+    private final Set<Process> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean aborted;
+
+    public ShardCoordinator(String csvDataFilePath, String reportXmlFilePath, Report report, Path outputDir, int shards, int retries, long heapMb, boolean verbose) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("--" + OPTION_SHARDS + " must be at least 1. Found: " + shards);
+        }
+        if (retries < 0) {
+            throw new IllegalArgumentException("--" + OPTION_SHARD_RETRIES + " must not be negative. Found: " + retries);
+        }
+        if (heapMb < 1) {
+            throw new IllegalArgumentException("--" + OPTION_SHARD_HEAP_MB + " must be at least 1. Found: " + heapMb);
+        }
+        this.csvDataFilePath = csvDataFilePath;
+        this.reportXmlFilePath = reportXmlFilePath;
+        this.report = report;
+        this.outputDir = outputDir;
+        this.shards = shards;
+        this.retries = retries;
+        this.heapMb = heapMb;
+        this.verbose = verbose;
+    }
+
+    // the coordinator's max heap split between the workers, which hold the rows while this process waits
+    public static long defaultHeapMb(int shards) {
+        return Math.max(1, Runtime.getRuntime().maxMemory() / (1024 * 1024) / Math.max(1, shards));
+    }
+
+    // index of the first Aggregator or Ordering, the transformers before it work row by row
+    static int firstBlocking(List<Transformer> transformers) {
+        for (int i = 0; i < transformers.size(); i++) {
+            if (transformers.get(i) instanceof AggregatorTransformer || transformers.get(i) instanceof OrderingTransformer) {
+                return i;
+            }
+        }
+        return transformers.size();
+    }
+
+    /*
+     * Runs the workers and appends the merged rows to rows. Returns the index of the first transformer
+     * that still has to be applied to them.
+     */
+    public int run(List<Map<String, Object>> rows, RejectSink rejectSink) {
+        Path workDir;
+        long size;
+        try {
+            size = Files.size(Paths.get(csvDataFilePath));
+            Files.createDirectories(outputDir);
+            workDir = Files.createTempDirectory(outputDir, "." + report.getReportName() + ".shards-");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to prepare sharded run of: " + csvDataFilePath, e);
+        }
+        try {
+            runWorkers(workDir, size);
+            return merge(workDir, rows, rejectSink);
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    private void runWorkers(Path workDir, long size) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int shard = 0; shard < shards; shard++) {
+                int index = shard;
+                long from = size * shard / shards;
+                long to = size * (shard + 1) / shards;
+                futures.add(executor.submit(() -> {
+                    runShard(workDir, index, from, to);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                abort();
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new RuntimeException("Shard worker failed", e.getCause());
+            } catch (InterruptedException e) {
+                abort();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for shard workers", e);
+            }
+        }
+    }
+
+    // stops the remaining workers, they would only be merged into a failed run
+    private void abort() {
+        aborted = true;
+        running.forEach(Process::destroyForcibly);
+    }
+
+    private void runShard(Path workDir, int shard, long from, long to) throws IOException, InterruptedException {
+        Path log = workDir.resolve("shard-" + shard + ".log");
+        for (int attempt = 1; ; attempt++) {
+            if (aborted) {
+                return;
+            }
+            long start = System.nanoTime();
+            ProcessBuilder builder = new ProcessBuilder(command(workDir, shard, from, to))
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile());
+            Process process = builder.start();
+            running.add(process);
+            int exitCode;
+            try {
+                exitCode = process.waitFor();
+            } finally {
+                running.remove(process);
+                process.destroyForcibly();
+            }
+            if (aborted) {
+                return;
+            }
+            if (exitCode == 0 && Files.isRegularFile(partialFile(workDir, shard))) {
+                log("Shard " + (shard + 1) + "/" + shards + " (bytes " + from + "-" + to + ") done in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                return;
+            }
+            if (attempt > retries) {
+                throw new RuntimeException("Shard " + (shard + 1) + "/" + shards + " failed after " + attempt + " attempt(s), last exit code " + exitCode + ". Worker output:"
+                        + System.lineSeparator() + tail(log));
+            }
+            System.err.println("Warning: Shard " + (shard + 1) + "/" + shards + " failed with exit code " + exitCode + ", retrying (" + attempt + "/" + retries + ")");
+        }
+    }
+
+    private List<String> command(Path workDir, int shard, long from, long to) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // a debugger agent would try to listen on the coordinator's port, a recording would write the coordinator's file,
+            // and n copies of the coordinator's heap may not fit next to it
+            if (!argument.startsWith("-agentlib:jdwp") && !argument.startsWith("-XX:StartFlightRecording")
+                    && !argument.startsWith("-XX:FlightRecorderOptions") && !argument.startsWith("-Xmx") && !argument.startsWith("-XX:MaxHeapSize")) {
+                command.add(argument);
+            }
+        }
+        command.add("-Xmx" + heapMb + "m");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(csvDataFilePath);
+        command.add(reportXmlFilePath);
+        command.add(String.valueOf(from));
+        command.add(String.valueOf(to));
+        command.add(partialFile(workDir, shard).toString());
+        command.add(workDir.resolve("shard-" + shard + RejectSink.FILE_SUFFIX).toString());
+        return command;
+    }
+
+    private int merge(Path workDir, List<Map<String, Object>> rows, RejectSink rejectSink) {
+        List<DataInputStream> partials = new ArrayList<>();
+        try {
+            long linesBefore = 0;
+            int blocking = -1;
+            byte kind = -1;
+            for (int shard = 0; shard < shards; shard++) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(partialFile(workDir, shard)), 1 << 16));
+                partials.add(in);
+                if (in.readInt() != ShardWorker.MAGIC || in.readInt() != ShardWorker.VERSION) {
+                    throw new IOException("Not a partial file of this version: " + partialFile(workDir, shard));
+                }
+                long lines = in.readLong();
+                blocking = in.readInt();
+                kind = in.readByte();
+                replayRejects(workDir.resolve("shard-" + shard + RejectSink.FILE_SUFFIX), linesBefore, rejectSink);
+                linesBefore += lines;
+            }
+
+            List<Transformer> transformers = report.getTransformers() != null ? report.getTransformers() : List.of();
+            switch (kind) {
+                case ShardWorker.KIND_ROWS -> {
+                    for (DataInputStream in : partials) {
+                        RowCodec.read(in, rows);
+                    }
+                    return transformers.size();
+                }
+                case ShardWorker.KIND_SORTED_RUN -> {
+                    List<List<Map<String, Object>>> runs = new ArrayList<>();
+                    for (DataInputStream in : partials) {
+                        runs.add(RowCodec.read(in, new ArrayList<>()));
+                    }
+                    mergeRuns(runs, ((OrderingTransformer) transformers.get(blocking)).comparator(report), rows);
+                    return blocking + 1;
+                }
+                case ShardWorker.KIND_GROUPS -> {
+                    ((AggregatorTransformer) transformers.get(blocking)).mergePartials(report, partials, rows);
+                    return blocking + 1;
+                }
+                default -> throw new IOException("Unknown partial kind " + kind);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to merge shard results of: " + csvDataFilePath, e);
+        } finally {
+            for (DataInputStream in : partials) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // read only
+                }
+            }
+        }
+    }
+
+    // k-way merge, equal rows are taken from the earlier shard first, like a stable sort of the whole input
+    private static void mergeRuns(List<List<Map<String, Object>>> runs, Comparator<Map<String, Object>> comparator, List<Map<String, Object>> rows) {
+        int[] positions = new int[runs.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>((a, b) -> {
+            int compared = comparator.compare(runs.get(a).get(positions[a]), runs.get(b).get(positions[b]));
+            return compared != 0 ? compared : Integer.compare(a, b);
+        });
+        for (int run = 0; run < runs.size(); run++) {
+            if (!runs.get(run).isEmpty()) {
+                heads.add(run);
+            }
+        }
+        while (!heads.isEmpty()) {
+            int run = heads.poll();
+            rows.add(runs.get(run).get(positions[run]++));
+            if (positions[run] < runs.get(run).size()) {
+                heads.add(run);
+            }
+        }
+    }
+
+    // worker line numbers count from the start of their range, the header is line 1 of the file
+    private static void replayRejects(Path rejectFile, long linesBefore, RejectSink rejectSink) throws IOException {
+        if (Files.isRegularFile(rejectFile)) {
+            rejectSink.replay(rejectFile, 1 + linesBefore);
+        }
+    }
+
+    private static Path partialFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".partial");
+    }
+
+    private static String tail(Path log) {
+        try {
+            List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+            return String.join(System.lineSeparator(), lines.subList(Math.max(0, lines.size() - LOG_TAIL_LINES), lines.size()));
+        } catch (IOException e) {
+            return "(no output: " + e.getMessage() + ")";
+        }
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to remove shard work directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+}
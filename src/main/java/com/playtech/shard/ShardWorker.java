@@ -0,0 +1,90 @@
+package com.playtech.shard;
+
+import com.playtech.report.Report;
+import com.playtech.report.transformer.Transformer;
+import com.playtech.report.transformer.impl.AggregatorTransformer;
+import com.playtech.report.transformer.impl.OrderingTransformer;
+import com.playtech.util.cache.RowCodec;
+import com.playtech.util.reject.RejectSink;
+import com.playtech.util.xml.CsvDataReader;
+import com.playtech.util.xml.XmlParser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Worker process of a sharded run, started by ShardCoordinator with the coordinator's classpath:
+ *   ShardWorker <csv> <report-xml> <from-byte> <to-byte> <partial-file> <rejects-file>
+ * Reads the lines starting in its byte range, applies the transformers up to the first blocking one and
+ * writes a partial file: a header (magic, version, lines read, index of the blocking transformer, kind)
+ * followed by the transformed rows, the sorted run of an Ordering or the group states of an Aggregator.
+ * Rejects go to the rejects file with line numbers relative to the range, the coordinator renumbers them.
+ * Exits with 1 on any failure, the partial file only appears once it is complete.
+ */
+public class ShardWorker {
+    static final int MAGIC = 0x53485244; // "SHRD"
+    static final int VERSION = 1;
+    static final byte KIND_ROWS = 0;
+    static final byte KIND_SORTED_RUN = 1;
+    static final byte KIND_GROUPS = 2;
+
+    public static void main(String[] args) {
+        if (args.length != 6) {
+            System.err.println("Usage: java com.playtech.shard.ShardWorker <csv> <report-xml> <from-byte> <to-byte> <partial-file> <rejects-file>");
+            System.exit(1);
+        }
+        try {
+            run(args[0], args[1], Long.parseLong(args[2]), Long.parseLong(args[3]), Paths.get(args[4]), Paths.get(args[5]));
+        } catch (Exception e) {
+            System.err.println("FATAL: Shard worker failed for bytes " + args[2] + "-" + args[3] + " of " + args[0] + ":");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void run(String csvDataFilePath, String reportXmlFilePath, long fromByte, long toByte, Path partialFile, Path rejectFile) throws Exception {
+        Report report = XmlParser.parseReport(reportXmlFilePath);
+        // samples are printed by the coordinator when it replays the rejects
+        RejectSink rejectSink = new RejectSink(rejectFile, RejectSink.NO_BUDGET, 0);
+        report.setRejectSink(rejectSink);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        long lines = CsvDataReader.readRange(csvDataFilePath, report.getInputs(), rejectSink, rows, fromByte, toByte);
+        List<Transformer> transformers = report.getTransformers() != null ? report.getTransformers() : List.of();
+        int blocking = ShardCoordinator.firstBlocking(transformers);
+        for (int i = 0; i < blocking; i++) {
+            transformers.get(i).transform(report, rows);
+        }
+
+        Path temp = partialFile.resolveSibling(partialFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lines);
+            out.writeInt(blocking);
+            if (blocking == transformers.size()) {
+                out.writeByte(KIND_ROWS);
+                out.flush();
+                RowCodec.write(rows, out);
+            } else if (transformers.get(blocking) instanceof OrderingTransformer ordering) {
+                // a stable sort per shard, the coordinator's merge keeps equal rows in shard order
+                rows.sort(ordering.comparator(report));
+                out.writeByte(KIND_SORTED_RUN);
+                out.flush();
+                RowCodec.write(rows, out);
+            } else {
+                out.writeByte(KIND_GROUPS);
+                ((AggregatorTransformer) transformers.get(blocking)).writePartial(rows, out);
+            }
+        }
+        rejectSink.close();
+        Files.move(temp, partialFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
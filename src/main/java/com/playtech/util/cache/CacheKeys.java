@@ -0,0 +1,221 @@
+package com.playtech.util.cache;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/*
+ * Cache keys of one report run. The full key covers the tool version, the CSV content (names and contents of
+ * every file read for a multi-file input), the whole report definition and the options that change results,
+ * so a hit can reuse the previous output as is.
+ * A prefix key covers the state after transformers [0..i]: the inputs, those transformers and the output
+ * columns they mention, so reports that only differ in later transformers (or in unused outputs) share it.
+ * The XML is canonicalized first, formatting, comments and attribute order don't change a key.
+ */
+public class CacheKeys {
+    private static volatile String toolVersion;
+
+    private final String fullKey;
+    private final List<String> prefixKeys = new ArrayList<>();
+
+    public CacheKeys(ReportCache cache, List<Path> csvFiles, Path reportXmlFile, String... resultOptions) {
+        Element report = parse(reportXmlFile);
+        String csvHash = csvHash(cache, csvFiles);
+        String options = String.join("\n", resultOptions);
+        String version = toolVersion(cache);
+
+        List<Element> transformers = new ArrayList<>();
+        Element transformersElement = child(report, "transformers");
+        if (transformersElement != null) {
+            transformers.addAll(children(transformersElement, "transformer"));
+        }
+        StringBuilder dimensions = new StringBuilder();
+        dimensionHashes(cache, report, dimensions);
+        fullKey = ReportCache.key("report", version, csvHash, options, canonical(report), dimensions.toString());
+
+        String inputs = canonical(child(report, "inputs"));
+        StringBuilder prefix = new StringBuilder();
+        StringBuilder prefixDimensions = new StringBuilder();
+        Set<String> mentioned = new HashSet<>();
+        for (Element transformer : transformers) {
+            prefix.append(canonical(transformer));
+            dimensionHashes(cache, transformer, prefixDimensions);
+            texts(transformer, mentioned);
+            prefixKeys.add(ReportCache.key("prefix", version, csvHash, options, inputs, prefix.toString(),
+                    mentionedOutputs(child(report, "outputs"), mentioned), prefixDimensions.toString()));
+        }
+    }
+
+    public String getFullKey() {
+        return fullKey;
+    }
+
+    // key of the rows after transformer index (0 based)
+    public String getPrefixKey(int index) {
+        return prefixKeys.get(index);
+    }
+
+    // a single file keeps the plain content hash, so its keys don't depend on how the file was named
+    private static String csvHash(ReportCache cache, List<Path> csvFiles) {
+        if (csvFiles.size() == 1) {
+            return cache.contentHash(csvFiles.get(0));
+        }
+        List<String> parts = new ArrayList<>();
+        parts.add("files");
+        for (Path file : csvFiles) {
+            parts.add(file.toString());
+            parts.add(cache.contentHash(file));
+        }
+        return ReportCache.key(parts.toArray(new String[0]));
+    }
+
+    /*
+     * Hash of the code that computes the results: the jar this class was loaded from, or every file
+     * under the classes directory when running from a build tree.
+     */
+    public static String toolVersion(ReportCache cache) {
+        String version = toolVersion;
+        if (version != null) {
+            return version;
+        }
+        try {
+            Path source = Paths.get(CacheKeys.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (Files.isDirectory(source)) {
+                List<String> parts = new ArrayList<>();
+                try (Stream<Path> files = Files.walk(source)) {
+                    for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                        parts.add(source.relativize(file).toString());
+                        parts.add(ReportCache.hashFile(file));
+                    }
+                }
+                version = ReportCache.key(parts.toArray(new String[0]));
+            } else {
+                version = cache.contentHash(source);
+            }
+        } catch (IOException | URISyntaxException | SecurityException | NullPointerException e) {
+            throw new RuntimeException("Failed to determine the tool version for the cache", e);
+        }
+        toolVersion = version;
+        return version;
+    }
+
+    private static Element parse(Path file) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setIgnoringComments(true);
+            factory.setExpandEntityReferences(false);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(file.toFile()).getDocumentElement();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read report definition for the cache key: " + file, e);
+        }
+    }
+
+    // element names, sorted attributes and trimmed text, whitespace-only text dropped
+    private static String canonical(Element element) {
+        if (element == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        appendCanonical(element, builder);
+        return builder.toString();
+    }
+
+    private static void appendCanonical(Element element, StringBuilder builder) {
+        builder.append('<').append(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            sorted.put(attributes.item(i).getNodeName(), attributes.item(i).getNodeValue());
+        }
+        sorted.forEach((name, value) -> builder.append(' ').append(name).append("=\"").append(escape(value)).append('"'));
+        builder.append('>');
+        NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element child) {
+                appendCanonical(child, builder);
+            } else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                String text = node.getNodeValue().trim();
+                if (!text.isEmpty()) {
+                    builder.append(escape(text));
+                }
+            }
+        }
+        builder.append("</").append(element.getTagName()).append('>');
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+
+    // output declarations whose name appears anywhere in the transformers so far
+    private static String mentionedOutputs(Element outputs, Set<String> mentioned) {
+        if (outputs == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Element output : children(outputs, "output")) {
+            Element name = child(output, "name");
+            if (name != null && mentioned.contains(name.getTextContent().trim())) {
+                appendCanonical(output, builder);
+            }
+        }
+        return builder.toString();
+    }
+
+    // a Lookup result depends on the dimension file's content, not only on its path
+    private static void dimensionHashes(ReportCache cache, Element element, StringBuilder target) {
+        NodeList dimensions = element.getElementsByTagName("dimension");
+        for (int i = 0; i < dimensions.getLength(); i++) {
+            Path dimension = Paths.get(dimensions.item(i).getTextContent().trim());
+            target.append(dimension).append('=');
+            target.append(Files.isRegularFile(dimension) ? cache.contentHash(dimension) : "missing").append('\n');
+        }
+    }
+
+    private static void texts(Element element, Set<String> target) {
+        NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element child) {
+                texts(child, target);
+            } else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                String text = node.getNodeValue().trim();
+                if (!text.isEmpty()) {
+                    target.add(text);
+                }
+            }
+        }
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> found = children(parent, name);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> found = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof Element child && child.getTagName().equals(name)) {
+                found.add(child);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,180 @@
+package com.playtech.util.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Local content-addressed cache directory: one file per entry, named "<sha-256 key><suffix>".
+ * Entries are written through a temp file and an atomic move, so concurrent jobs only ever see complete
+ * entries. A lookup refreshes the entry's modification time, and after every store the least recently
+ * used entries are deleted until the directory fits into maxBytes.
+ */
+public class ReportCache {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // writes an entry's content
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public ReportCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create cache directory: " + directory, e);
+        }
+    }
+
+    // the cached file, or null on a miss
+    public Path lookup(String key, String suffix) {
+        Path entry = directory.resolve(key + suffix);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted in the meantime
+            return null;
+        }
+        return entry;
+    }
+
+    public void store(String key, String suffix, Content content) {
+        Path entry = directory.resolve(key + suffix);
+        Path temp = directory.resolve(key + suffix + "." + ProcessHandle.current().pid() + "." + Thread.currentThread().threadId() + TEMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                content.writeTo(out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store cache entry: " + entry, e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // best effort, eviction skips temp files anyway
+            }
+        }
+        evict();
+    }
+
+    public void store(String key, String suffix, Path file) {
+        store(key, suffix, out -> Files.copy(file, out));
+    }
+
+    // deletes least recently used entries until the cache fits
+    public synchronized void evict() {
+        List<Path> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && !file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    entries.add(file);
+                    total += Files.size(file);
+                }
+            }
+            entries.sort(Comparator.comparing(ReportCache::lastModified));
+            for (Path entry : entries) {
+                if (total <= maxBytes) {
+                    break;
+                }
+                long size = Files.size(entry);
+                if (Files.deleteIfExists(entry)) {
+                    total -= size;
+                }
+            }
+        } catch (IOException e) {
+            // another job evicting at the same time, the next store tries again
+            System.err.println("Warning: Cache eviction in " + directory + " failed: " + e.getMessage());
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // sha-256 over the parts, each one length-prefixed so that ("ab", "c") and ("a", "bc") differ
+    public static String key(String... parts) {
+        MessageDigest digest = sha256();
+        for (String part : parts) {
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+            digest.update(bytes);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String hashFile(Path file) {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to hash file: " + file, e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /*
+     * Content hash of a file, memoized in the cache under its path, size and modification time,
+     * so that re-running a report on an unchanged multi-GB CSV doesn't read it just to hash it.
+     */
+    public String contentHash(Path file) {
+        try {
+            Path absolute = file.toAbsolutePath().normalize();
+            String statKey = key("stat", absolute.toString(), String.valueOf(Files.size(absolute)), String.valueOf(Files.getLastModifiedTime(absolute).toMillis()));
+            Path memo = lookup(statKey, ".hash");
+            if (memo != null) {
+                try {
+                    return Files.readString(memo).trim();
+                } catch (IOException e) {
+                    // evicted between lookup and read, hash again
+                }
+            }
+            String hash = hashFile(absolute);
+            store(statKey, ".hash", out -> out.write(hash.getBytes(StandardCharsets.UTF_8)));
+            return hash;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to hash file: " + file, e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every JDK", e);
+        }
+    }
+}
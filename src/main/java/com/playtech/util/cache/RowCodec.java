@@ -0,0 +1,160 @@
+package com.playtech.util.cache;
+
+import com.playtech.report.column.Decimal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Binary form of intermediate rows for the cache, keeps the exact value types (Integer vs Long,
+ * Decimal scale, date-time zone) so a resumed report continues with the same values it would have computed.
+ * Layout: magic, column name table, row count, then per row the cell count and (name index, tag, value) cells.
+ */
+public class RowCodec {
+    private static final int MAGIC = 0x524F5753; // "ROWS"
+    private static final int VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_DECIMAL = 4;
+    private static final byte TAG_DATE = 5;
+    private static final byte TAG_DATETIME = 6;
+    private static final byte TAG_STRING = 7;
+    private static final byte TAG_BOOLEAN = 8;
+
+    private RowCodec() {
+    }
+
+    public static void write(List<Map<String, Object>> rows, OutputStream target) throws IOException {
+        Map<String, Integer> nameIndexes = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            for (String name : row.keySet()) {
+                if (nameIndexes.putIfAbsent(name, names.size()) == null) {
+                    names.add(name);
+                }
+            }
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+        out.writeInt(rows.size());
+        for (Map<String, Object> row : rows) {
+            out.writeInt(row.size());
+            for (Map.Entry<String, Object> cell : row.entrySet()) {
+                out.writeInt(nameIndexes.get(cell.getKey()));
+                writeValue(out, cell.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    // appends the rows to target and returns it
+    public static List<Map<String, Object>> read(InputStream source, List<Map<String, Object>> target) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, 1 << 16));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a cached row file (or an old version)");
+        }
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = in.readUTF();
+        }
+        int rows = in.readInt();
+        for (int r = 0; r < rows; r++) {
+            int cells = in.readInt();
+            Map<String, Object> row = new HashMap<>();
+            for (int c = 0; c < cells; c++) {
+                String name = names[in.readInt()];
+                row.put(name, readValue(in));
+            }
+            target.add(row);
+        }
+        return target;
+    }
+
+    // one tagged value, also used for partial aggregation states of sharded runs
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer i) {
+            out.writeByte(TAG_INT);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(TAG_LONG);
+            out.writeLong(l);
+        } else if (value instanceof Double d) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof Decimal decimal) {
+            out.writeByte(TAG_DECIMAL);
+            out.writeLong(decimal.getUnscaled());
+            out.writeByte(decimal.getScale());
+        } else if (value instanceof LocalDate date) {
+            out.writeByte(TAG_DATE);
+            out.writeLong(date.toEpochDay());
+        } else if (value instanceof ZonedDateTime dateTime) {
+            out.writeByte(TAG_DATETIME);
+            out.writeUTF(dateTime.toString());
+        } else if (value instanceof String string) {
+            out.writeByte(TAG_STRING);
+            writeString(out, string);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean(b);
+        } else {
+            throw new IllegalArgumentException("Can't cache " + value.getClass().getName() + " values");
+        }
+    }
+
+    public static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_INT -> in.readInt();
+            case TAG_LONG -> in.readLong();
+            case TAG_DOUBLE -> in.readDouble();
+            case TAG_DECIMAL -> {
+                long unscaled = in.readLong();
+                yield Decimal.of(unscaled, in.readByte());
+            }
+            case TAG_DATE -> LocalDate.ofEpochDay(in.readLong());
+            case TAG_DATETIME -> ZonedDateTime.parse(in.readUTF());
+            case TAG_STRING -> readString(in);
+            case TAG_BOOLEAN -> in.readBoolean();
+            default -> throw new IOException("Corrupt cached row, unknown value tag " + tag);
+        };
+    }
+
+    // writeUTF is limited to 64 KB, strings can be longer
+    private static void writeString(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
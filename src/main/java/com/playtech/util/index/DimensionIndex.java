@@ -0,0 +1,336 @@
+package com.playtech.util.index;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Read-only int-keyed index over a dimension CSV, compiled once into "<csv>.<keyColumn>.idx" next to the CSV
+ * and memory-mapped, so even million-row dimensions cost next to no heap and later runs open it instantly.
+ * The index is rebuilt when the CSV's size or modification time no longer match the ones recorded in it, or when
+ * the file is truncated or its sections don't add up.
+ *
+ * Layout (big endian):
+ *   header   magic, version, column count, source size, source mtime, slot count, record count,
+ *            table/records/strings offsets, then the column names (short length + UTF-8)
+ *   table    slot count x (int key, int record + 1), open addressing with linear probing, 0 marks an empty slot
+ *   records  record count x column count x (int offset, int length) into the strings section
+ *   strings  UTF-8 cell values
+ * A lookup is one probe sequence on primitive ints plus decoding the requested cells.
+ */
+public class DimensionIndex {
+    private static final long MAGIC = 0x5250_5449_4458_3031L; // "RPTIDX01"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 8;
+    private static final int CELL_BYTES = 8;
+
+    // opened indexes, shared by every report (and job) in the JVM
+    private static final Map<String, DimensionIndex> OPEN = new ConcurrentHashMap<>();
+
+    private final Path indexFile;
+    private final MappedByteBuffer buffer;
+    private final String[] columns;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int slotMask;
+    private final int recordCount;
+    private final long tableOffset;
+    private final long recordsOffset;
+    private final long stringsOffset;
+
+    private DimensionIndex(Path indexFile, MappedByteBuffer buffer) {
+        this.indexFile = indexFile;
+        this.buffer = buffer;
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+            throw new IllegalStateException("Not a dimension index (or an old version): " + indexFile);
+        }
+        int columnCount = buffer.getInt(12);
+        // every column name takes at least its 2 length bytes
+        if (columnCount <= 0 || columnCount > (buffer.capacity() - FIXED_HEADER_BYTES) / 2) {
+            throw corrupt("column count");
+        }
+        this.columns = new String[columnCount];
+        this.sourceSize = buffer.getLong(16);
+        this.sourceModified = buffer.getLong(24);
+        this.slotMask = buffer.getInt(32) - 1;
+        this.recordCount = buffer.getInt(36);
+        this.tableOffset = buffer.getLong(40);
+        this.recordsOffset = buffer.getLong(48);
+        this.stringsOffset = buffer.getLong(56);
+        int position = FIXED_HEADER_BYTES;
+        for (int i = 0; i < columns.length; i++) {
+            if (position + 2 > buffer.capacity()) {
+                throw corrupt("column names");
+            }
+            int length = Short.toUnsignedInt(buffer.getShort(position));
+            if (position + 2 + length > buffer.capacity()) {
+                throw corrupt("column names");
+            }
+            byte[] name = new byte[length];
+            buffer.get(position + 2, name);
+            columns[i] = new String(name, StandardCharsets.UTF_8);
+            position += 2 + length;
+        }
+        validateSections(position);
+    }
+
+    /*
+     * A truncated or partly overwritten file can still carry a valid header and a matching source size and
+     * mtime, and would then fail with an IndexOutOfBoundsException (or probe forever) on the first lookup.
+     * The sections must follow each other exactly as build writes them, every table entry must point to a
+     * record, no more slots may be used than there are records, and every cell must lie in the strings
+     * section. One pass over the table and the records, paid once per JVM when the file is mapped.
+     */
+    private void validateSections(int namesEnd) {
+        long slots = slotMask + 1L;
+        if (slots < 2 || (slots & slotMask) != 0 || recordCount < 0 || recordCount > slots / 2
+                || tableOffset != namesEnd
+                || recordsOffset != tableOffset + slots * SLOT_BYTES
+                || stringsOffset != recordsOffset + (long) recordCount * columns.length * CELL_BYTES
+                || stringsOffset > buffer.capacity()) {
+            throw corrupt("section offsets");
+        }
+        // at most one slot per record, so a probe sequence always reaches an empty slot
+        int used = 0;
+        for (long position = tableOffset; position < recordsOffset; position += SLOT_BYTES) {
+            int record = buffer.getInt((int) position + 4);
+            if (record < 0 || record > recordCount || (record != 0 && ++used > recordCount)) {
+                throw corrupt("lookup table");
+            }
+        }
+        long stringsLength = buffer.capacity() - stringsOffset;
+        for (long position = recordsOffset; position < stringsOffset; position += CELL_BYTES) {
+            int offset = buffer.getInt((int) position);
+            int length = buffer.getInt((int) position + 4);
+            if (offset < 0 || length < 0 || (long) offset + length > stringsLength) {
+                throw corrupt("records");
+            }
+        }
+    }
+
+    private IllegalStateException corrupt(String section) {
+        return new IllegalStateException("Corrupt dimension index, bad " + section + ": " + indexFile);
+    }
+
+    // opens the index for the dimension CSV, compiling it first if it is missing or stale
+    public static DimensionIndex open(Path dimensionCsv, String keyColumn) {
+        Path csv = dimensionCsv.toAbsolutePath().normalize();
+        Path indexFile = csv.resolveSibling(csv.getFileName() + "." + keyColumn + ".idx");
+        return OPEN.compute(indexFile.toString(), (name, current) -> {
+            try {
+                long size = Files.size(csv);
+                long modified = Files.getLastModifiedTime(csv).toMillis();
+                if (current != null && current.isFor(size, modified)) {
+                    return current;
+                }
+                if (Files.exists(indexFile)) {
+                    DimensionIndex existing = map(indexFile);
+                    if (existing != null && existing.isFor(size, modified)) {
+                        return existing;
+                    }
+                }
+                build(csv, keyColumn, indexFile, size, modified);
+                return map(indexFile);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open dimension index for: " + csv, e);
+            }
+        });
+    }
+
+    // record index of the key, -1 if the dimension has no such key
+    public int find(int key) {
+        int slot = hash(key) & slotMask;
+        while (true) {
+            long position = tableOffset + (long) slot * SLOT_BYTES;
+            int record = buffer.getInt((int) position + 4);
+            if (record == 0) {
+                return -1;
+            }
+            if (buffer.getInt((int) position) == key) {
+                return record - 1;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    // cell value as it was in the CSV (trimmed)
+    public String value(int record, int column) {
+        int cell = (int) (recordsOffset + ((long) record * columns.length + column) * CELL_BYTES);
+        int offset = buffer.getInt(cell);
+        int length = buffer.getInt(cell + 4);
+        byte[] bytes = new byte[length];
+        buffer.get((int) stringsOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // -1 if the dimension has no such column
+    public int columnIndex(String name) {
+        return Arrays.asList(columns).indexOf(name);
+    }
+
+    public List<String> getColumns() {
+        return List.of(columns);
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    private boolean isFor(long size, long modified) {
+        return sourceSize == size && sourceModified == modified;
+    }
+
+    private static DimensionIndex map(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Dimension index over 2 GB is not supported: " + indexFile);
+            }
+            if (channel.size() < FIXED_HEADER_BYTES) {
+                return null;
+            }
+            // the mapping stays valid after the channel is closed
+            return new DimensionIndex(indexFile, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IllegalStateException e) {
+            // foreign, outdated or corrupt file, rebuilt by the caller
+            return null;
+        }
+    }
+
+    // reads the CSV once and writes the index through a temp file, so concurrent builders never see a partial index
+    private static void build(Path csv, String keyColumn, Path indexFile, long sourceSize, long sourceModified) throws IOException {
+        String[] columns;
+        int keyIndex;
+        int[] keys = new int[1024];
+        int[] cells = new int[1024];
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        int records = 0;
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IllegalArgumentException("Dimension CSV is empty or missing header: " + csv);
+            }
+            columns = Arrays.stream(headerLine.split(",")).map(String::trim).toArray(String[]::new);
+            keyIndex = Arrays.asList(columns).indexOf(keyColumn);
+            if (keyIndex < 0) {
+                throw new IllegalArgumentException("Key column '" + keyColumn + "' not found in dimension CSV header: " + csv);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",", -1);
+                int key;
+                try {
+                    key = Integer.parseInt(values[keyIndex].trim());
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    skipped++;
+                    continue;
+                }
+                if (values.length != columns.length) {
+                    skipped++;
+                    continue;
+                }
+                if (records == keys.length) {
+                    keys = Arrays.copyOf(keys, records * 2);
+                }
+                if ((records + 1) * columns.length * 2 > cells.length) {
+                    cells = Arrays.copyOf(cells, Math.max(cells.length * 2, (records + 1) * columns.length * 2));
+                }
+                keys[records] = key;
+                for (int column = 0; column < columns.length; column++) {
+                    byte[] bytes = values[column].trim().getBytes(StandardCharsets.UTF_8);
+                    cells[(records * columns.length + column) * 2] = strings.size();
+                    cells[(records * columns.length + column) * 2 + 1] = bytes.length;
+                    strings.write(bytes);
+                }
+                records++;
+            }
+        }
+        if (skipped > 0) {
+            System.err.println("Warning: Skipped " + skipped + " dimension rows without an integer key or with a wrong column count in " + csv);
+        }
+
+        // load factor at most 1/2 keeps probe sequences short
+        int slots = Integer.highestOneBit(Math.max(2, records) * 2 - 1) << 1;
+        int[] table = new int[slots * 2];
+        int duplicates = 0;
+        for (int record = 0; record < records; record++) {
+            int slot = hash(keys[record]) & (slots - 1);
+            while (table[slot * 2 + 1] != 0 && table[slot * 2] != keys[record]) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            if (table[slot * 2 + 1] != 0) {
+                duplicates++; // first row with the key wins
+                continue;
+            }
+            table[slot * 2] = keys[record];
+            table[slot * 2 + 1] = record + 1;
+        }
+        if (duplicates > 0) {
+            System.err.println("Warning: " + duplicates + " duplicate keys in " + csv + ", the first row of each key is used.");
+        }
+
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        DataOutputStream namesOut = new DataOutputStream(names);
+        for (String column : columns) {
+            byte[] bytes = column.getBytes(StandardCharsets.UTF_8);
+            namesOut.writeShort(bytes.length);
+            namesOut.write(bytes);
+        }
+        long tableOffset = FIXED_HEADER_BYTES + names.size();
+        long recordsOffset = tableOffset + (long) slots * SLOT_BYTES;
+        long stringsOffset = recordsOffset + (long) records * columns.length * CELL_BYTES;
+        if (stringsOffset + strings.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Dimension index over 2 GB is not supported: " + csv);
+        }
+
+        // not Files.createTempFile, the index should get the default permissions so other users can share it
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + "." + ProcessHandle.current().pid() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES);
+                header.putLong(MAGIC).putInt(VERSION).putInt(columns.length)
+                        .putLong(sourceSize).putLong(sourceModified)
+                        .putInt(slots).putInt(records)
+                        .putLong(tableOffset).putLong(recordsOffset).putLong(stringsOffset);
+                out.write(header.array());
+                names.writeTo(out);
+                for (int value : table) {
+                    out.writeInt(value);
+                }
+                for (int i = 0; i < records * columns.length * 2; i++) {
+                    out.writeInt(cells[i]);
+                }
+                strings.writeTo(out);
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,53 @@
+package com.playtech.util.input;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+/*
+ * Inclusive range of dates given as "<from>..<to>" (ISO dates, either end may be left out). DATETIME values
+ * are compared by their date in their own offset, rows without a date are outside every range.
+ */
+public class DateRange {
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public DateRange(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public static DateRange parse(String text) {
+        int separator = text.indexOf("..");
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid date range '" + text + "', expected <from>..<to> (e.g. 2025-01-01..2025-01-03)");
+        }
+        try {
+            String from = text.substring(0, separator).trim();
+            String to = text.substring(separator + 2).trim();
+            DateRange range = new DateRange(from.isEmpty() ? null : LocalDate.parse(from), to.isEmpty() ? null : LocalDate.parse(to));
+            if (range.from != null && range.to != null && range.from.isAfter(range.to)) {
+                throw new IllegalArgumentException("Invalid date range '" + text + "', the start is after the end");
+            }
+            return range;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date range '" + text + "': " + e.getMessage(), e);
+        }
+    }
+
+    // value of a DATE or DATETIME column
+    public boolean contains(Object value) {
+        LocalDate date = value instanceof ZonedDateTime dateTime ? dateTime.toLocalDate() : value instanceof LocalDate localDate ? localDate : null;
+        return date != null && (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+
+    // whether any date in [min, max] is in this range
+    public boolean overlaps(LocalDate min, LocalDate max) {
+        return (from == null || !max.isBefore(from)) && (to == null || !min.isAfter(to));
+    }
+
+    @Override
+    public String toString() {
+        return (from != null ? from.toString() : "") + ".." + (to != null ? to.toString() : "");
+    }
+}
@@ -0,0 +1,298 @@
+package com.playtech.util.input;
+
+import com.playtech.report.column.Column;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Statistics of one input CSV, kept in a small "<csv>.stats" sidecar next to it: the number of data lines
+ * and the min/max of DATE, DATETIME and numeric columns, so files that can't hold a wanted row are skipped
+ * without opening them. Like a dimension index the sidecar records the CSV's size and modification time
+ * and is ignored once they no longer match.
+ *
+ * Values are taken from the raw cells of every line with the header's column count, whether or not the line
+ * is valid for a particular report, so the statistics hold for any report reading the file. DATETIME values
+ * count with their date in their own offset (as the date range does), numbers as doubles. A column without
+ * any value has no min/max.
+ *
+ * Format (UTF-8, tab separated):
+ *   #csv-stats  1
+ *   size        <bytes>
+ *   modified    <epoch millis>
+ *   rows        <data lines>
+ *   column      <name>  <type>  <min>  <max>
+ */
+public class FileStats {
+    public static final String SUFFIX = ".stats";
+    private static final String MAGIC = "#csv-stats";
+    private static final String VERSION = "1";
+
+    private final long size;
+    private final long modified;
+    private final long rows;
+    // column name -> statistics, sorted so rewriting an unchanged sidecar gives the same bytes
+    private final Map<String, ColumnStats> columns;
+
+    // min/max of one column, both null when the column had no values
+    public static class ColumnStats {
+        private final Column.DataType type;
+        private final Comparable<Object> min;
+        private final Comparable<Object> max;
+
+        ColumnStats(Column.DataType type, Comparable<Object> min, Comparable<Object> max) {
+            this.type = type;
+            this.min = min;
+            this.max = max;
+        }
+
+        public Column.DataType getType() {
+            return type;
+        }
+
+        // LocalDate for DATE and DATETIME, Double otherwise
+        public Object getMin() {
+            return min;
+        }
+
+        public Object getMax() {
+            return max;
+        }
+    }
+
+    FileStats(long size, long modified, long rows, Map<String, ColumnStats> columns) {
+        this.size = size;
+        this.modified = modified;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    public static Path sidecar(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + SUFFIX);
+    }
+
+    // columns worth keeping statistics for
+    public static List<Column> statsColumns(List<Column> columns) {
+        List<Column> result = new ArrayList<>();
+        for (Column column : columns) {
+            if (column.getType() != Column.DataType.STRING) {
+                result.add(column);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * The sidecar of the CSV, or null when it is missing, unreadable or stale. Only the CSV's attributes are
+     * read, not its content.
+     */
+    public static FileStats read(Path csv) {
+        Path sidecar = sidecar(csv);
+        try {
+            long size = Files.size(csv);
+            long modified = Files.getLastModifiedTime(csv).toMillis();
+            try (BufferedReader reader = Files.newBufferedReader(sidecar, StandardCharsets.UTF_8)) {
+                String[] header = split(reader.readLine(), 2);
+                if (header == null || !header[0].equals(MAGIC) || !header[1].equals(VERSION)) {
+                    return null;
+                }
+                String[] sizeLine = split(reader.readLine(), 2);
+                String[] modifiedLine = split(reader.readLine(), 2);
+                String[] rowsLine = split(reader.readLine(), 2);
+                if (sizeLine == null || modifiedLine == null || rowsLine == null
+                        || Long.parseLong(sizeLine[1]) != size || Long.parseLong(modifiedLine[1]) != modified) {
+                    return null;
+                }
+                Map<String, ColumnStats> columns = new TreeMap<>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = split(line, 5);
+                    if (fields == null || !fields[0].equals("column")) {
+                        return null;
+                    }
+                    Column.DataType type = Column.DataType.valueOf(fields[2]);
+                    columns.put(fields[1], new ColumnStats(type, parse(fields[3], type), parse(fields[4], type)));
+                }
+                return new FileStats(size, modified, Long.parseLong(rowsLine[1]), columns);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("Warning: Ignoring unreadable statistics file " + sidecar + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // writes the sidecar through a temp file, returns false when the directory is not writable
+    public boolean write(Path csv) {
+        Path sidecar = sidecar(csv);
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + "." + ProcessHandle.current().pid() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(MAGIC + "\t" + VERSION + "\n");
+                writer.write("size\t" + size + "\n");
+                writer.write("modified\t" + modified + "\n");
+                writer.write("rows\t" + rows + "\n");
+                for (Map.Entry<String, ColumnStats> entry : columns.entrySet()) {
+                    ColumnStats stats = entry.getValue();
+                    writer.write("column\t" + entry.getKey() + "\t" + stats.type + "\t" + format(stats.min) + "\t" + format(stats.max) + "\n");
+                }
+            }
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // the directory is most likely read-only, nothing was created
+            }
+            return false;
+        }
+    }
+
+    // these statistics plus the columns of older ones (of the same file) that these don't have
+    public FileStats withColumnsOf(FileStats older) {
+        if (older == null || older.size != size || older.modified != modified) {
+            return this;
+        }
+        Map<String, ColumnStats> merged = new TreeMap<>(older.columns);
+        merged.putAll(columns);
+        return new FileStats(size, modified, rows, merged);
+    }
+
+    // true when every column has statistics of its type
+    public boolean covers(List<Column> columns) {
+        for (Column column : columns) {
+            if (getColumn(column) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // statistics of the column, null when there are none for its name and type
+    public ColumnStats getColumn(Column column) {
+        ColumnStats stats = columns.get(column.getName());
+        return stats != null && stats.type == column.getType() ? stats : null;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private static String[] split(String line, int fields) {
+        if (line == null) {
+            return null;
+        }
+        String[] split = line.split("\t", -1);
+        return split.length == fields ? split : null;
+    }
+
+    private static String format(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> parse(String value, Column.DataType type) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        Object parsed = type == Column.DataType.DATE || type == Column.DataType.DATETIME ? LocalDate.parse(value) : Double.valueOf(value);
+        return (Comparable<Object>) parsed;
+    }
+
+    // collects the statistics while a file is read, one collector per file
+    public static class Collector {
+        private final List<Column> columns;
+        private int[] indexes;
+        private int headerCount;
+        // Comparable<Object> values, generic arrays can't be created
+        private Object[] min;
+        private Object[] max;
+        private long rows;
+
+        public Collector(List<Column> columns) {
+            this.columns = columns;
+        }
+
+        public void header(Map<String, Integer> headerIndexMap, int headerCount) {
+            this.headerCount = headerCount;
+            indexes = new int[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                indexes[i] = headerIndexMap.getOrDefault(columns.get(i).getName(), -1);
+            }
+            min = new Object[columns.size()];
+            max = new Object[columns.size()];
+        }
+
+        // one data line split with trailing empty strings, lines with a wrong column count only count as rows
+        public void line(String[] values) {
+            rows++;
+            if (values.length != headerCount) {
+                return;
+            }
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i] < 0) {
+                    continue;
+                }
+                Comparable<Object> value = value(values[indexes[i]].trim(), columns.get(i).getType());
+                if (value == null) {
+                    continue;
+                }
+                if (min[i] == null || value.compareTo(min[i]) < 0) {
+                    min[i] = value;
+                }
+                if (max[i] == null || value.compareTo(max[i]) > 0) {
+                    max[i] = value;
+                }
+            }
+        }
+
+        // statistics of the file read, with the attributes it had before reading
+        public FileStats build(long size, long modified) {
+            Map<String, ColumnStats> stats = new TreeMap<>();
+            for (int i = 0; indexes != null && i < indexes.length; i++) {
+                // a column missing from the header has no values in this file
+                stats.put(columns.get(i).getName(), new ColumnStats(columns.get(i).getType(), comparable(min[i]), comparable(max[i])));
+            }
+            return new FileStats(size, modified, rows, stats);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Comparable<Object> comparable(Object value) {
+            return (Comparable<Object>) value;
+        }
+
+        // the cell as its statistics value, null when it is empty or doesn't parse
+        @SuppressWarnings("unchecked")
+        private static Comparable<Object> value(String raw, Column.DataType type) {
+            if (raw.isEmpty()) {
+                return null;
+            }
+            try {
+                Object value = switch (type) {
+                    case DATE -> LocalDate.parse(raw);
+                    case DATETIME -> ZonedDateTime.parse(raw).toLocalDate();
+                    case INTEGER -> (double) Integer.parseInt(raw);
+                    default -> Double.parseDouble(raw);
+                };
+                return (Comparable<Object>) value;
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.playtech.util.input;
+
+import com.playtech.report.column.Column;
+import com.playtech.util.reject.RejectSink;
+import com.playtech.util.xml.CsvDataReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/*
+ * The CSV files of a report's input: a single file, every *.csv under a directory, or the files matching a glob
+ * (e.g. "data/2025-01-0?.csv" or "data/**.csv"), in path order, which is also the order of their rows.
+ * Files whose sidecar statistics (FileStats) show that no row can be in the date range are pruned before
+ * reading, the others are read in parallel and get their sidecar written or completed on the way.
+ */
+public class InputFiles {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final List<Path> files;
+    private final int matched;
+    // fresh sidecars of the files, missing when there is none
+    private final Map<Path, FileStats> stats = new HashMap<>();
+
+    private InputFiles(List<Path> files, int matched) {
+        this.files = files;
+        this.matched = matched;
+    }
+
+    public static InputFiles resolve(String input) {
+        List<Path> files = new ArrayList<>();
+        int glob = firstGlobCharacter(input);
+        try {
+            if (glob >= 0) {
+                // walk from the last directory before the first wildcard
+                int slash = Math.max(input.lastIndexOf('/', glob), input.lastIndexOf(File.separatorChar, glob));
+                Path base = Paths.get(slash < 0 ? "." : input.substring(0, slash + 1));
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + (slash < 0 ? base.resolve(input).toString() : input));
+                if (Files.isDirectory(base)) {
+                    try (Stream<Path> walk = Files.walk(base)) {
+                        walk.filter(path -> matcher.matches(path) && Files.isRegularFile(path) && !isSidecar(path)).forEach(files::add);
+                    }
+                }
+            } else if (Files.isDirectory(Paths.get(input))) {
+                try (Stream<Path> walk = Files.walk(Paths.get(input))) {
+                    walk.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(".csv")).forEach(files::add);
+                }
+            } else {
+                files.add(Paths.get(input));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list input files: " + input, e);
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No CSV files found for input: " + input);
+        }
+        files.sort(null);
+        InputFiles inputFiles = new InputFiles(files, files.size());
+        for (Path file : files) {
+            FileStats fileStats = FileStats.read(file);
+            if (fileStats != null) {
+                inputFiles.stats.put(file, fileStats);
+            }
+        }
+        return inputFiles;
+    }
+
+    // true for a path that is one plain file, which the single-file readers handle
+    public static boolean isSingleFile(String input) {
+        return firstGlobCharacter(input) < 0 && Files.isRegularFile(Paths.get(input));
+    }
+
+    // the files that may hold rows whose date column is in the range, files without usable statistics are kept
+    public InputFiles prune(Column dateColumn, DateRange range) {
+        List<Path> kept = new ArrayList<>();
+        for (Path file : files) {
+            FileStats fileStats = stats.get(file);
+            FileStats.ColumnStats column = fileStats != null ? fileStats.getColumn(dateColumn) : null;
+            if (column == null) {
+                kept.add(file);
+            } else if (column.getMin() != null && range.overlaps((LocalDate) column.getMin(), (LocalDate) column.getMax())) {
+                kept.add(file);
+            }
+        }
+        InputFiles pruned = new InputFiles(kept, matched);
+        for (Path file : kept) {
+            if (stats.containsKey(file)) {
+                pruned.stats.put(file, stats.get(file));
+            }
+        }
+        return pruned;
+    }
+
+    /*
+     * Reads the files with the given number of threads and appends their rows to dataRows in file order.
+     * Rows not accepted by rowFilter (may be null) are dropped. Returns the number of bytes read.
+     */
+    public long read(List<Column> inputColumns, RejectSink rejectSink, Predicate<Map<String, Object>> rowFilter,
+                     List<Map<String, Object>> dataRows, int threads) {
+        if (files.isEmpty()) {
+            // every file was pruned, the report has no rows
+            return 0;
+        }
+        List<Column> statsColumns = FileStats.statsColumns(inputColumns);
+        AtomicBoolean warned = new AtomicBoolean();
+        int inFlight = Math.max(1, Math.min(threads, files.size()));
+        ExecutorService readers = Executors.newFixedThreadPool(inFlight);
+        long bytes = 0;
+        try {
+            // only `inFlight` files are read ahead, so the rows of files not appended yet stay bounded
+            List<Future<List<Map<String, Object>>>> read = new ArrayList<>();
+            for (int i = 0; i < inFlight; i++) {
+                read.add(submit(readers, files.get(i), inputColumns, statsColumns, rejectSink, rowFilter, warned));
+            }
+            // appended in file order while later files are still being read
+            for (int i = 0; i < files.size(); i++) {
+                dataRows.addAll(read.get(i).get());
+                read.set(i, null);
+                bytes += sizeOf(files.get(i));
+                if (i + inFlight < files.size()) {
+                    read.add(submit(readers, files.get(i + inFlight), inputColumns, statsColumns, rejectSink, rowFilter, warned));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading input files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to read input files", e.getCause());
+        } finally {
+            readers.shutdownNow();
+        }
+        return bytes;
+    }
+
+    private Future<List<Map<String, Object>>> submit(ExecutorService readers, Path file, List<Column> inputColumns, List<Column> statsColumns,
+                                                     RejectSink rejectSink, Predicate<Map<String, Object>> rowFilter, AtomicBoolean warned) {
+        return readers.submit(() -> readFile(file, inputColumns, statsColumns, rejectSink, rowFilter, warned));
+    }
+
+    private List<Map<String, Object>> readFile(Path file, List<Column> inputColumns, List<Column> statsColumns, RejectSink rejectSink,
+                                               Predicate<Map<String, Object>> rowFilter, AtomicBoolean warned) throws IOException {
+        FileStats known = stats.get(file);
+        boolean collect = known == null || !known.covers(statsColumns);
+        // taken before reading, a file changed meanwhile gets a sidecar that is already stale
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        FileStats.Collector collector = collect ? new FileStats.Collector(statsColumns) : null;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        CsvDataReader.readFile(file, inputColumns, rejectSink, rowFilter, collector, rows);
+        if (collector != null && !collector.build(size, modified).withColumnsOf(known).write(file) && !warned.getAndSet(true)) {
+            System.err.println("Warning: Failed to write statistics next to " + file + ", later runs can't skip files in that directory.");
+        }
+        return rows;
+    }
+
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    // files matched before pruning
+    public int getMatched() {
+        return matched;
+    }
+
+    private static int firstGlobCharacter(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSidecar(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(FileStats.SUFFIX) || name.endsWith(".tmp");
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.playtech.util.metrics;
+
+import com.playtech.util.xml.JsonlWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Collects per-stage runtime metrics of one report run and mirrors each stage as a JFR event.
+ * Allocated bytes are those of the thread that began and ended the stage. Work the stage hands to other
+ * threads (reader threads of a multi-file input, chunks of a parallel aggregation, shard worker processes)
+ * is not included, so for those stages the number is a lower bound.
+ */
+public class PipelineMetrics {
+    public static final String FILE_SUFFIX = ".metrics.json";
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = resolveThreadMxBean();
+
+    private final String reportName;
+    private final Instant startedAt = Instant.now();
+    private final List<Stage> stages = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Long> rejectCounts = new LinkedHashMap<>();
+    // stages are recorded when they end, so overlapping stages take their index from here when they begin
+    private final AtomicInteger nextIndex = new AtomicInteger(1);
+
+    public PipelineMetrics(String reportName) {
+        this.reportName = reportName;
+    }
+
+    // starts measuring a stage on the calling thread, allocation is tracked for this thread only
+    public Stage begin(String stageName, long rowsIn) {
+        return new Stage(stageName, nextIndex.getAndIncrement(), rowsIn);
+    }
+
+    public List<Stage> getStages() {
+        synchronized (stages) {
+            return new ArrayList<>(stages);
+        }
+    }
+
+    public synchronized void setRejectCounts(Map<? extends Enum<?>, Long> counts) {
+        rejectCounts.clear();
+        counts.forEach((reason, count) -> rejectCounts.put(reason.name(), count));
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (Stage stage : getStages()) {
+            total += stage.getWallNanos();
+        }
+        return total;
+    }
+
+    // writes <reportName>.metrics.json into the given directory and returns its path
+    public Path writeJson(Path outputDir) {
+        Path metricsFile = outputDir.resolve(reportName + FILE_SUFFIX);
+        try {
+            Files.createDirectories(outputDir);
+            try (BufferedWriter writer = Files.newBufferedWriter(metricsFile, StandardCharsets.UTF_8)) {
+                writer.write(toJson());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing metrics file: " + metricsFile);
+            throw new RuntimeException("Failed to write metrics file: " + metricsFile, e);
+        }
+        return metricsFile;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"reportName\":\"").append(JsonlWriter.escapeJsonString(reportName)).append("\",");
+        sb.append("\"startedAt\":\"").append(startedAt).append("\",");
+        sb.append("\"totalMillis\":").append(formatDouble(getTotalNanos() / 1_000_000.0)).append(",");
+        sb.append("\"stages\":[");
+        boolean first = true;
+        for (Stage stage : getStages()) {
+            if (!first) {
+                sb.append(",");
+            }
+            sb.append(stage.toJson());
+            first = false;
+        }
+        sb.append("],\"rejects\":{");
+        first = true;
+        for (Map.Entry<String, Long> entry : rejectCounts.entrySet()) {
+            if (!first) {
+                sb.append(",");
+            }
+            sb.append("\"").append(entry.getKey()).append("\":").append(entry.getValue());
+            first = false;
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    private static String formatDouble(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static com.sun.management.ThreadMXBean resolveThreadMxBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+                return sunBean;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            System.err.println("Warning: Per-thread allocation tracking is not available: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    public class Stage {
+        private final String name;
+        private final int index;
+        private final long rowsIn;
+        private final long startNanos;
+        private final long startAllocated;
+        private final StageEvent event = new StageEvent();
+        private long rowsOut;
+        private long bytes;
+        private long wallNanos;
+        private long allocatedBytes;
+
+        private Stage(String name, int index, long rowsIn) {
+            this.name = name;
+            this.index = index;
+            this.rowsIn = rowsIn;
+            this.event.begin();
+            this.startAllocated = currentThreadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        // finishes the stage, bytes is the amount read or written (0 for in-memory stages)
+        public Stage end(long rowsOut, long bytes) {
+            this.wallNanos = System.nanoTime() - startNanos;
+            long endAllocated = currentThreadAllocatedBytes();
+            this.allocatedBytes = (startAllocated < 0 || endAllocated < 0) ? -1 : endAllocated - startAllocated;
+            this.rowsOut = rowsOut;
+            this.bytes = bytes;
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.reportName = reportName;
+                event.stage = name;
+                event.index = index;
+                event.rowsIn = rowsIn;
+                event.rowsOut = rowsOut;
+                event.rowsPerSecond = getRowsPerSecond();
+                event.bytes = bytes;
+                event.allocatedBytes = allocatedBytes;
+                event.commit();
+            }
+            stages.add(this);
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getRowsIn() {
+            return rowsIn;
+        }
+
+        public long getRowsOut() {
+            return rowsOut;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        // of the stage's own thread only, -1 when the JVM can't tell
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        // throughput is based on the larger side, so a reading stage (0 in) and a reducing stage both make sense
+        public double getRowsPerSecond() {
+            if (wallNanos <= 0) {
+                return 0.0;
+            }
+            return Math.max(rowsIn, rowsOut) * 1_000_000_000.0 / wallNanos;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "%d ms, %d -> %d rows, %.0f rows/s, %d bytes allocated",
+                    wallNanos / 1_000_000, rowsIn, rowsOut, getRowsPerSecond(), allocatedBytes);
+        }
+
+        private String toJson() {
+            return "{\"index\":" + index +
+                    ",\"stage\":\"" + JsonlWriter.escapeJsonString(name) + "\"" +
+                    ",\"wallMillis\":" + formatDouble(wallNanos / 1_000_000.0) +
+                    ",\"rowsIn\":" + rowsIn +
+                    ",\"rowsOut\":" + rowsOut +
+                    ",\"rowsPerSecond\":" + formatDouble(getRowsPerSecond()) +
+                    ",\"bytes\":" + bytes +
+                    ",\"allocatedBytes\":" + allocatedBytes +
+                    "}";
+        }
+    }
+}
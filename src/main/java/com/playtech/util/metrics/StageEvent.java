@@ -0,0 +1,44 @@
+package com.playtech.util.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event emitted once per pipeline stage, duration is measured by begin()/commit()
+@Name("com.playtech.report.Stage")
+@Label("Report Stage")
+@Category({"Playtech", "Report"})
+@Description("One stage of the report pipeline (CSV read, transformer or output write)")
+@StackTrace(false)
+public class StageEvent extends Event {
+    @Label("Report")
+    String reportName;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Stage Index")
+    int index;
+
+    @Label("Rows In")
+    long rowsIn;
+
+    @Label("Rows Out")
+    long rowsOut;
+
+    @Label("Rows Per Second")
+    double rowsPerSecond;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Allocated Bytes")
+    @Description("Allocated by the thread running the stage, work handed to other threads is not included")
+    @DataAmount
+    long allocatedBytes;
+}
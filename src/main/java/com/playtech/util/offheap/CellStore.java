@@ -0,0 +1,39 @@
+package com.playtech.util.offheap;
+
+/*
+ * Raw cell storage behind OffHeapRows: per column a growable array of 16 byte cells (a header long with the
+ * value tag and a long payload) plus an append-only byte heap for strings. Kept free of java.lang.foreign
+ * types so that classes using it load without --enable-preview, only SegmentCellStore needs it.
+ */
+interface CellStore extends AutoCloseable {
+
+    // makes room for at least this many rows in every column, new cells read as header 0
+    void ensureRows(int rows);
+
+    // adds an empty column sized to the current capacity, returns its index
+    int addColumn();
+
+    long header(int column, int row);
+
+    long payload(int column, int row);
+
+    void set(int column, int row, long header, long payload);
+
+    // appends the bytes to the string heap, returns a handle for readBytes
+    long appendBytes(byte[] bytes);
+
+    byte[] readBytes(long handle, int length);
+
+    // writes the bytes over a string appended before, which must be at least as long
+    void overwriteBytes(long handle, byte[] bytes);
+
+    // forgets every string, their space is reused by later appends
+    void resetBytes();
+
+    // bytes reserved off-heap
+    long reservedBytes();
+
+    // frees all memory at once, the store can't be used afterwards
+    @Override
+    void close();
+}
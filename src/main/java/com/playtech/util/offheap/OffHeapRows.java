@@ -0,0 +1,376 @@
+package com.playtech.util.offheap;
+
+import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Row list whose cells live off-heap, so tens of millions of parsed rows don't sit in the old generation.
+ * Columns start with the report's inputs and outputs, a column put by a transformer under a new name is
+ * added on the fly. Each cell is a 16 byte (header, payload) pair: the header holds the value tag and
+ * small extras (decimal scale, string length, time zone and nanos), strings go to a separate byte heap.
+ *
+ * get(i) returns a view of row i, not a copy. add and set copy the given map into the arena, so they can
+ * be handed plain HashMaps. Values read from a view are fresh heap objects and stay valid after close().
+ * A string replaced in place (set or put on a view) reuses the old string's bytes when the new one is no
+ * longer, a longer one is appended, and the byte heap only shrinks on clear(). So a row whose string column
+ * is rewritten n times with growing strings holds on to all n versions until then.
+ * Map.put on a view returns null instead of the previous value, nothing in the pipeline reads it.
+ * close() frees the memory at once, the list can't be used afterwards.
+ */
+public class OffHeapRows extends AbstractList<Map<String, Object>> implements AutoCloseable {
+    private static final int TAG_ABSENT = 0; // zeroed memory, the key isn't in the row
+    private static final int TAG_NULL = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_DECIMAL = 5;
+    private static final int TAG_DATE = 6;
+    private static final int TAG_DATETIME = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_BOOLEAN = 9;
+    private static final int NANO_BITS = 30;
+
+    private final CellStore store;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<ZoneId> zones = new ArrayList<>();
+    private final Map<ZoneId, Integer> zoneIndexes = new HashMap<>();
+    private int size;
+
+    private OffHeapRows(CellStore store, List<Column> columns) {
+        this.store = store;
+        for (Column column : columns) {
+            columnIndex(column.getName(), true);
+        }
+    }
+
+    /*
+     * Off-heap rows laid out for the given columns. Throws UnsupportedOperationException if the
+     * Foreign Function & Memory API isn't available (Java 21 needs --enable-preview for it).
+     */
+    public static OffHeapRows create(List<Column> columns) {
+        CellStore store;
+        try {
+            store = new SegmentCellStore();
+        } catch (LinkageError e) {
+            throw new UnsupportedOperationException("Off-heap rows need the Foreign Function & Memory API, run Java 21 with --enable-preview", e);
+        }
+        return new OffHeapRows(store, columns);
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        checkIndex(index, size);
+        return new RowView(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Map<String, Object> row) {
+        store.ensureRows(size + 1);
+        size++;
+        // the slot may still hold cells of a removed row, whose strings were moved to a live one
+        clearRow(size - 1);
+        write(size - 1, row);
+        return true;
+    }
+
+    // returns null instead of the previous row, the slot is overwritten in place
+    @Override
+    public Map<String, Object> set(int index, Map<String, Object> row) {
+        checkIndex(index, size);
+        if (row instanceof RowView view && view.owner() == this && view.row == index) {
+            return null;
+        }
+        write(index, row);
+        return null;
+    }
+
+    // moves the following rows down, so subList(from, to).clear() works without views on removed rows
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        int removed = toIndex - fromIndex;
+        for (int row = toIndex; row < size; row++) {
+            copyRow(row, row - removed);
+        }
+        size -= removed;
+        modCount++;
+    }
+
+    // also forgets all strings, anything read from the rows before is already on the heap
+    @Override
+    public void clear() {
+        size = 0;
+        store.resetBytes();
+        modCount++;
+    }
+
+    // sorts an index permutation with the comparator and then moves the cells in place, cycle by cycle
+    @Override
+    public void sort(Comparator<? super Map<String, Object>> comparator) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> comparator.compare(new RowView(a), new RowView(b)));
+        long[] headers = new long[columnNames.size()];
+        long[] payloads = new long[columnNames.size()];
+        boolean[] placed = new boolean[size];
+        for (int start = 0; start < size; start++) {
+            if (placed[start] || order[start] == start) {
+                continue;
+            }
+            // row `target` receives row order[target], walking the cycle from start
+            readRow(start, headers, payloads);
+            int target = start;
+            while (order[target] != start) {
+                copyRow(order[target], target);
+                placed[target] = true;
+                target = order[target];
+            }
+            writeRow(target, headers, payloads);
+            placed[target] = true;
+        }
+        modCount++;
+    }
+
+    // bytes reserved off-heap
+    public long reservedBytes() {
+        return store.reservedBytes();
+    }
+
+    @Override
+    public void close() {
+        size = 0;
+        store.close();
+    }
+
+    // cells missing from the values become absent, the others keep their string bytes for encode to reuse
+    private void write(int row, Map<String, Object> values) {
+        for (int column = 0; column < columnNames.size(); column++) {
+            if (!values.containsKey(columnNames.get(column))) {
+                store.set(column, row, TAG_ABSENT, 0);
+            }
+        }
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            encode(columnIndex(entry.getKey(), true), row, entry.getValue());
+        }
+    }
+
+    private void clearRow(int row) {
+        for (int column = 0; column < columnNames.size(); column++) {
+            store.set(column, row, TAG_ABSENT, 0);
+        }
+    }
+
+    private void copyRow(int from, int to) {
+        for (int column = 0; column < columnNames.size(); column++) {
+            store.set(column, to, store.header(column, from), store.payload(column, from));
+        }
+    }
+
+    private void readRow(int row, long[] headers, long[] payloads) {
+        for (int column = 0; column < headers.length; column++) {
+            headers[column] = store.header(column, row);
+            payloads[column] = store.payload(column, row);
+        }
+    }
+
+    private void writeRow(int row, long[] headers, long[] payloads) {
+        for (int column = 0; column < headers.length; column++) {
+            store.set(column, row, headers[column], payloads[column]);
+        }
+    }
+
+    // -1 for an unknown column unless create is set
+    private int columnIndex(Object name, boolean create) {
+        Integer index = columnIndexes.get(name);
+        if (index != null || !create) {
+            return index != null ? index : -1;
+        }
+        int added = store.addColumn();
+        columnIndexes.put((String) name, added);
+        columnNames.add((String) name);
+        return added;
+    }
+
+    private void encode(int column, int row, Object value) {
+        if (value == null) {
+            store.set(column, row, TAG_NULL, 0);
+        } else if (value instanceof Integer i) {
+            store.set(column, row, TAG_INT, i);
+        } else if (value instanceof Long l) {
+            store.set(column, row, TAG_LONG, l);
+        } else if (value instanceof Double d) {
+            store.set(column, row, TAG_DOUBLE, Double.doubleToRawLongBits(d));
+        } else if (value instanceof Decimal decimal) {
+            store.set(column, row, TAG_DECIMAL | ((long) decimal.getScale() << 8), decimal.getUnscaled());
+        } else if (value instanceof LocalDate date) {
+            store.set(column, row, TAG_DATE, date.toEpochDay());
+        } else if (value instanceof ZonedDateTime dateTime) {
+            long extras = dateTime.getNano() | ((long) zoneIndex(dateTime.getZone()) << NANO_BITS);
+            store.set(column, row, TAG_DATETIME | (extras << 8), dateTime.toEpochSecond());
+        } else if (value instanceof String string) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            store.set(column, row, TAG_STRING | ((long) bytes.length << 8), stringHandle(column, row, bytes));
+        } else if (value instanceof Boolean b) {
+            store.set(column, row, TAG_BOOLEAN, b ? 1 : 0);
+        } else {
+            throw new IllegalArgumentException("Off-heap rows can't store " + value.getClass().getName() + " values (column '" + columnNames.get(column) + "')");
+        }
+    }
+
+    // the cell's current string slot when the bytes fit into it, live rows never share a slot
+    private long stringHandle(int column, int row, byte[] bytes) {
+        long header = store.header(column, row);
+        if ((header & 0xFF) == TAG_STRING && header >>> 8 >= bytes.length) {
+            long handle = store.payload(column, row);
+            store.overwriteBytes(handle, bytes);
+            return handle;
+        }
+        return store.appendBytes(bytes);
+    }
+
+    private Object decode(int column, int row) {
+        long header = store.header(column, row);
+        int tag = (int) (header & 0xFF);
+        long extras = header >>> 8;
+        return switch (tag) {
+            case TAG_ABSENT, TAG_NULL -> null;
+            case TAG_INT -> (int) store.payload(column, row);
+            case TAG_LONG -> store.payload(column, row);
+            case TAG_DOUBLE -> Double.longBitsToDouble(store.payload(column, row));
+            case TAG_DECIMAL -> Decimal.of(store.payload(column, row), (int) extras);
+            case TAG_DATE -> LocalDate.ofEpochDay(store.payload(column, row));
+            case TAG_DATETIME -> ZonedDateTime.ofInstant(
+                    Instant.ofEpochSecond(store.payload(column, row), extras & ((1L << NANO_BITS) - 1)),
+                    zones.get((int) (extras >>> NANO_BITS)));
+            case TAG_STRING -> new String(store.readBytes(store.payload(column, row), (int) extras), StandardCharsets.UTF_8);
+            case TAG_BOOLEAN -> store.payload(column, row) != 0;
+            default -> throw new IllegalStateException("Corrupt off-heap cell tag " + tag);
+        };
+    }
+
+    private int zoneIndex(ZoneId zone) {
+        Integer index = zoneIndexes.get(zone);
+        if (index == null) {
+            index = zones.size();
+            zones.add(zone);
+            zoneIndexes.put(zone, index);
+        }
+        return index;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    // Map view of one row, reads and writes go straight to the cells
+    private class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        OffHeapRows owner() {
+            return OffHeapRows.this;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int column = columnIndex(key, false);
+            return column < 0 ? null : decode(column, row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int column = columnIndex(key, false);
+            return column >= 0 && (store.header(column, row) & 0xFF) != TAG_ABSENT;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            encode(columnIndex(key, true), row, value);
+            return null;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            int column = columnIndex(key, false);
+            if (column >= 0) {
+                store.set(column, row, TAG_ABSENT, 0);
+            }
+            return null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < columnNames.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int column = next;
+                            next = advance(column + 1);
+                            return new SimpleImmutableEntry<>(columnNames.get(column), decode(column, row));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int present = 0;
+                    for (int column = 0; column < columnNames.size(); column++) {
+                        if ((store.header(column, row) & 0xFF) != TAG_ABSENT) {
+                            present++;
+                        }
+                    }
+                    return present;
+                }
+            };
+        }
+
+        private int advance(int column) {
+            while (column < columnNames.size() && (store.header(column, row) & 0xFF) == TAG_ABSENT) {
+                column++;
+            }
+            return column;
+        }
+    }
+}
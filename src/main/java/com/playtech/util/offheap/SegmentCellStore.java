@@ -0,0 +1,145 @@
+package com.playtech.util.offheap;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * CellStore on MemorySegments of one shared Arena (Foreign Function & Memory API, a preview API in Java 21:
+ * loading this class needs --enable-preview). Columns grow in chunks of CHUNK_ROWS cells, strings are packed
+ * into STRING_CHUNK_BYTES segments, a longer string gets a segment of its own. Closing the arena frees all of it.
+ */
+class SegmentCellStore implements CellStore {
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int CELL_BYTES = 16;
+    private static final int STRING_CHUNK_BYTES = 1 << 20;
+
+    // shared, the reader, transform and writer phases may run on different threads
+    private final Arena arena = Arena.ofShared();
+    private MemorySegment[][] columns = new MemorySegment[0][];
+    private int chunks;
+    private final List<MemorySegment> stringChunks = new ArrayList<>();
+    private final List<MemorySegment> largeStrings = new ArrayList<>();
+    private int stringChunk;
+    private long stringOffset;
+    private long reserved;
+
+    @Override
+    public void ensureRows(int rows) {
+        int needed = (rows + CHUNK_ROWS - 1) >>> CHUNK_SHIFT;
+        if (needed <= chunks) {
+            return;
+        }
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = grow(columns[column], needed);
+        }
+        chunks = needed;
+    }
+
+    @Override
+    public int addColumn() {
+        columns = Arrays.copyOf(columns, columns.length + 1);
+        columns[columns.length - 1] = grow(new MemorySegment[0], chunks);
+        return columns.length - 1;
+    }
+
+    @Override
+    public long header(int column, int row) {
+        return columns[column][row >>> CHUNK_SHIFT].get(ValueLayout.JAVA_LONG, (long) (row & CHUNK_MASK) * CELL_BYTES);
+    }
+
+    @Override
+    public long payload(int column, int row) {
+        return columns[column][row >>> CHUNK_SHIFT].get(ValueLayout.JAVA_LONG, (long) (row & CHUNK_MASK) * CELL_BYTES + 8);
+    }
+
+    @Override
+    public void set(int column, int row, long header, long payload) {
+        MemorySegment chunk = columns[column][row >>> CHUNK_SHIFT];
+        long offset = (long) (row & CHUNK_MASK) * CELL_BYTES;
+        chunk.set(ValueLayout.JAVA_LONG, offset, header);
+        chunk.set(ValueLayout.JAVA_LONG, offset + 8, payload);
+    }
+
+    // handle: string chunk index in the upper, offset in the lower 32 bits, negative for an oversized string
+    @Override
+    public long appendBytes(byte[] bytes) {
+        if (bytes.length > STRING_CHUNK_BYTES) {
+            MemorySegment own = allocate(bytes.length);
+            MemorySegment.copy(bytes, 0, own, ValueLayout.JAVA_BYTE, 0, bytes.length);
+            largeStrings.add(own);
+            return -largeStrings.size();
+        }
+        if (stringOffset + bytes.length > STRING_CHUNK_BYTES) {
+            stringChunk++;
+            stringOffset = 0;
+        }
+        if (stringChunk == stringChunks.size()) {
+            stringChunks.add(allocate(STRING_CHUNK_BYTES));
+        }
+        MemorySegment.copy(bytes, 0, stringChunks.get(stringChunk), ValueLayout.JAVA_BYTE, stringOffset, bytes.length);
+        long handle = ((long) stringChunk << 32) | stringOffset;
+        stringOffset += bytes.length;
+        return handle;
+    }
+
+    @Override
+    public byte[] readBytes(long handle, int length) {
+        byte[] bytes = new byte[length];
+        if (handle < 0) {
+            MemorySegment.copy(largeStrings.get((int) -handle - 1), ValueLayout.JAVA_BYTE, 0, bytes, 0, length);
+        } else {
+            MemorySegment.copy(stringChunks.get((int) (handle >>> 32)), ValueLayout.JAVA_BYTE, handle & 0xFFFF_FFFFL, bytes, 0, length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void overwriteBytes(long handle, byte[] bytes) {
+        if (handle < 0) {
+            MemorySegment.copy(bytes, 0, largeStrings.get((int) -handle - 1), ValueLayout.JAVA_BYTE, 0, bytes.length);
+        } else {
+            MemorySegment.copy(bytes, 0, stringChunks.get((int) (handle >>> 32)), ValueLayout.JAVA_BYTE, handle & 0xFFFF_FFFFL, bytes.length);
+        }
+    }
+
+    // chunks are reused, oversized strings stay reserved until close
+    @Override
+    public void resetBytes() {
+        stringChunk = 0;
+        stringOffset = 0;
+        largeStrings.clear();
+    }
+
+    @Override
+    public long reservedBytes() {
+        return reserved;
+    }
+
+    @Override
+    public void close() {
+        if (arena.scope().isAlive()) {
+            arena.close();
+        }
+    }
+
+    private MemorySegment[] grow(MemorySegment[] column, int needed) {
+        int had = column.length;
+        MemorySegment[] grown = Arrays.copyOf(column, needed);
+        for (int chunk = had; chunk < needed; chunk++) {
+            // arena memory is zeroed, so new cells read as absent
+            grown[chunk] = allocate((long) CHUNK_ROWS * CELL_BYTES);
+        }
+        return grown;
+    }
+
+    private MemorySegment allocate(long bytes) {
+        reserved += bytes;
+        return arena.allocate(bytes, 8);
+    }
+}
@@ -0,0 +1,23 @@
+package com.playtech.util.reject;
+
+// thrown once the number of rejects goes over the configured error budget
+public class RejectBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long rejectCount;
+    private final long budget;
+
+    public RejectBudgetExceededException(long rejectCount, long budget) {
+        super("Reject budget exceeded: " + rejectCount + " rejected rows/values, allowed " + budget);
+        this.rejectCount = rejectCount;
+        this.budget = budget;
+    }
+
+    public long getRejectCount() {
+        return rejectCount;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+}
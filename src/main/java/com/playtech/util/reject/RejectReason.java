@@ -0,0 +1,10 @@
+package com.playtech.util.reject;
+
+// reason codes written to the reject file and used for the per-reason counters
+public enum RejectReason {
+    COLUMN_COUNT_MISMATCH,
+    PARSE_ERROR,
+    UNEXPECTED_ERROR,
+    TYPE_MISMATCH,
+    TRANSFORM_ERROR
+}
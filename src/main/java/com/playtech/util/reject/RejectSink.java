@@ -0,0 +1,228 @@
+package com.playtech.util.reject;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Collects rejected input lines and failed values of one report run.
+ * Every reject goes to a buffered side file (opened lazily, so clean runs leave no file behind),
+ * is counted per reason, and only a rate-limited sample is printed to stderr.
+ * An optional error budget aborts the run with RejectBudgetExceededException once exceeded.
+ */
+public class RejectSink implements Closeable {
+    public static final String FILE_SUFFIX = ".rejects.tsv";
+    public static final long NO_BUDGET = -1;
+    public static final int DEFAULT_SAMPLES_PER_SECOND = 10;
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final String HEADER = "line\treason\tsource\tdetail\traw";
+
+    private final Path rejectFile;
+    private final long budget;
+    private final int samplesPerSecond;
+    private final Map<RejectReason, Long> counts = new EnumMap<>(RejectReason.class);
+
+    private BufferedWriter writer;
+    private long total;
+    private long windowStart = System.nanoTime();
+    private int samplesInWindow;
+    private long suppressedInWindow;
+    private boolean closed;
+
+    public RejectSink(Path rejectFile, long budget, int samplesPerSecond) {
+        this.rejectFile = rejectFile;
+        this.budget = budget;
+        this.samplesPerSecond = samplesPerSecond;
+    }
+
+    // sink without a side file, used when nothing was configured (e.g. transformers run outside ReportGenerator)
+    public static RejectSink stderrOnly() {
+        return new RejectSink(null, NO_BUDGET, DEFAULT_SAMPLES_PER_SECOND);
+    }
+
+    // removes the rejects file of an earlier run, a clean run would otherwise leave it next to the new output
+    public static RejectSink forReport(Path outputDir, String reportName, long budget, int samplesPerSecond) {
+        Path rejectFile = outputDir.resolve(reportName + FILE_SUFFIX);
+        try {
+            Files.deleteIfExists(rejectFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to remove old reject file: " + rejectFile, e);
+        }
+        return new RejectSink(rejectFile, budget, samplesPerSecond);
+    }
+
+    /*
+     * Records one reject. lineNumber is the CSV line (or -1 when not known, e.g. after aggregation),
+     * source names the reader/transformer and raw is the offending line or value (may be null).
+     */
+    public synchronized void reject(RejectReason reason, String source, long lineNumber, String detail, String raw) {
+        total++;
+        counts.merge(reason, 1L, Long::sum);
+
+        writeToFile(reason, source, lineNumber, detail, raw);
+        sampleToStderr(reason, source, lineNumber, detail);
+
+        if (budget >= 0 && total > budget) {
+            close(); // keep what was collected so far for inspection
+            throw new RejectBudgetExceededException(total, budget);
+        }
+    }
+
+    /*
+     * Records the rejects of another rejects file again (a shard worker's, or the ones cached with resumed rows),
+     * counting them against this sink's budget. lineOffset is added to known line numbers. The file is read
+     * and parsed completely first, so a read error or a malformed line (IOException) records nothing.
+     */
+    public void replay(Path file, long lineOffset) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (!lines.isEmpty() && !lines.get(0).equals(HEADER)) {
+            throw new IOException("Not a rejects file, unexpected header: " + file);
+        }
+        List<Replayed> replayed = new ArrayList<>();
+        for (int i = 1; i < lines.size(); i++) {
+            String[] fields = lines.get(i).split("\t", -1);
+            try {
+                if (fields.length != 5) {
+                    throw new IllegalArgumentException("expected 5 fields, found " + fields.length);
+                }
+                long lineNumber = fields[0].isEmpty() ? -1 : lineOffset + Long.parseLong(fields[0]);
+                replayed.add(new Replayed(RejectReason.valueOf(fields[1]), fields[2], lineNumber, fields[3], fields[4]));
+            } catch (IllegalArgumentException e) { // NumberFormatException too
+                throw new IOException("Malformed line " + (i + 1) + " of rejects file " + file + ": " + e.getMessage(), e);
+            }
+        }
+        for (Replayed reject : replayed) {
+            reject(reject.reason, reject.source, reject.lineNumber, reject.detail, reject.raw);
+        }
+    }
+
+    // pushes buffered rejects to the file, so it can be copied while the run goes on
+    public synchronized void flush() {
+        // a closed file is complete already
+        if (writer == null || closed) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write reject file: " + rejectFile, e);
+        }
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized Map<RejectReason, Long> getCounts() {
+        return new EnumMap<>(counts);
+    }
+
+    public Path getRejectFile() {
+        return rejectFile;
+    }
+
+    // true when at least one reject was written to the side file
+    public synchronized boolean hasRejectFile() {
+        return writer != null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushSuppressed();
+        if (total > 0) {
+            System.err.println("Rejects: " + total + " total " + counts + (writer != null ? ", details in " + rejectFile : ""));
+        }
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing reject file: " + rejectFile + ". Error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeToFile(RejectReason reason, String source, long lineNumber, String detail, String raw) {
+        if (rejectFile == null || closed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                Files.createDirectories(rejectFile.toAbsolutePath().getParent());
+                writer = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            writer.write(lineNumber < 0 ? "" : Long.toString(lineNumber));
+            writer.write('\t');
+            writer.write(reason.name());
+            writer.write('\t');
+            writer.write(sanitize(source));
+            writer.write('\t');
+            writer.write(sanitize(detail));
+            writer.write('\t');
+            writer.write(sanitize(raw));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write reject file: " + rejectFile, e);
+        }
+    }
+
+    private void sampleToStderr(RejectReason reason, String source, long lineNumber, String detail) {
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            flushSuppressed();
+            windowStart = now;
+            samplesInWindow = 0;
+        }
+        if (samplesInWindow < samplesPerSecond) {
+            samplesInWindow++;
+            System.err.println("Warning: " + reason + " in " + source + (lineNumber < 0 ? "" : " at line " + lineNumber) + ": " + detail);
+        } else {
+            suppressedInWindow++;
+        }
+    }
+
+    private void flushSuppressed() {
+        if (suppressedInWindow > 0) {
+            System.err.println("Warning: " + suppressedInWindow + " more rejects not shown" + (rejectFile != null ? ", see " + rejectFile : ""));
+            suppressedInWindow = 0;
+        }
+    }
+
+    // keeps one reject per line in the TSV file
+    private static String sanitize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    // one parsed line of a replayed rejects file
+    private static class Replayed {
+        private final RejectReason reason;
+        private final String source;
+        private final long lineNumber;
+        private final String detail;
+        private final String raw;
+
+        Replayed(RejectReason reason, String source, long lineNumber, String detail, String raw) {
+            this.reason = reason;
+            this.source = source;
+            this.lineNumber = lineNumber;
+            this.detail = detail;
+            this.raw = raw;
+        }
+    }
+}
@@ -2,26 +2,47 @@
 package com.playtech.util.xml;
 
 import com.playtech.report.column.Column;
+import com.playtech.report.column.Decimal;
+import com.playtech.util.input.FileStats;
+import com.playtech.util.reject.RejectReason;
+import com.playtech.util.reject.RejectSink;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class CsvDataReader {
+    private static final String SOURCE = "CsvDataReader";
 
 
     public static List<Map<String, Object>> readData(String filePath, List<Column> inputColumns) {
-        List<Map<String, Object>> dataRows = new ArrayList<>();
+        return readData(filePath, inputColumns, RejectSink.stderrOnly());
+    }
+
+    // bad lines are handed to the reject sink instead of being logged one by one
+    public static List<Map<String, Object>> readData(String filePath, List<Column> inputColumns, RejectSink rejectSink) {
+        return readData(filePath, inputColumns, rejectSink, new ArrayList<>());
+    }
+
+    // appends the rows to the given list (e.g. off-heap rows, which copy every added row), returns it
+    public static List<Map<String, Object>> readData(String filePath, List<Column> inputColumns, RejectSink rejectSink, List<Map<String, Object>> dataRows) {
         Map<String, Column.DataType> inputColumnTypes = inputColumns.stream()
                 .collect(Collectors.toMap(Column::getName, Column::getType));
 
@@ -33,80 +54,223 @@ public class CsvDataReader {
             }
 
             String[] headers = headerLine.split(",");
-            Map<String, Integer> headerIndexMap = new HashMap<>();
-            for (int i = 0; i < headers.length; i++) {
-                headerIndexMap.put(headers[i].trim(), i);
+            Map<String, Integer> headerIndexMap = indexHeaders(headers, inputColumns);
+
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                Map<String, Object> row = parseLine(line, line.split(",", -1), lineNumber, headers.length, headerIndexMap, inputColumns, rejectSink, SOURCE);
+                if (row != null) {
+                    dataRows.add(row);
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Error reading CSV file: " + filePath);
+            throw new RuntimeException("Failed to read CSV file: " + filePath, e);
+        }
+
+        return dataRows;
+    }
+
+    /*
+     * Reads the lines that start in [fromByte, toByte), one shard of a sharded run: a line crossing fromByte
+     * belongs to the previous range, the header is taken from the start of the file. Line numbers given to the
+     * reject sink count from 1 at the first line of the range. Returns the number of lines read.
+     */
+    public static long readRange(String filePath, List<Column> inputColumns, RejectSink rejectSink, List<Map<String, Object>> dataRows, long fromByte, long toByte) {
+        Path path = Paths.get(filePath);
+        try (BufferedReader headerReader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            String headerLine = headerReader.readLine();
+            if (headerLine == null) {
+                System.err.println("Warning: CSV file is empty or missing header: " + filePath);
+                return 0;
             }
+            String[] headers = headerLine.split(",");
+            Map<String, Integer> headerIndexMap = indexHeaders(headers, inputColumns);
 
-            for (Column inputCol : inputColumns) {
-                if (!headerIndexMap.containsKey(inputCol.getName())) {
-                    System.err.println("Warning: Input column '" + inputCol.getName() + "' defined in XML not found in CSV header.");
+            // from the start this skips the header, otherwise the end of the line crossing fromByte (starting one
+            // byte early, so a range that starts right after a line break doesn't lose its first line)
+            long offset = Math.max(0, fromByte - 1);
+            LineReader lineReader = new LineReader(Channels.newInputStream(channel.position(offset)));
+            offset += lineReader.readLine();
+            long lines = 0;
+            while (offset < toByte) {
+                int consumed = lineReader.readLine();
+                if (consumed == 0) {
+                    break;
                 }
+                offset += consumed;
+                lines++;
+                String line = lineReader.line();
+                Map<String, Object> row = parseLine(line, line.split(",", -1), lines, headers.length, headerIndexMap, inputColumns, rejectSink, SOURCE);
+                if (row != null) {
+                    dataRows.add(row);
+                }
+            }
+            return lines;
+        } catch (IOException e) {
+            System.err.println("Error reading CSV file: " + filePath);
+            throw new RuntimeException("Failed to read CSV file: " + filePath, e);
+        }
+    }
+
+    private static Map<String, Integer> indexHeaders(String[] headers, List<Column> inputColumns) {
+        Map<String, Integer> headerIndexMap = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            headerIndexMap.put(headers[i].trim(), i);
+        }
+
+        for (Column inputCol : inputColumns) {
+            if (!headerIndexMap.containsKey(inputCol.getName())) {
+                System.err.println("Warning: Input column '" + inputCol.getName() + "' defined in XML not found in CSV header.");
+            }
+        }
+        return headerIndexMap;
+    }
+
+    /*
+     * Reads one file of a multi-file input. Rows rejected by rowFilter (may be null) are dropped without
+     * being rejects, stats (may be null) sees every data line. Rejects name the file as their source.
+     * Returns the number of data lines read.
+     */
+    public static long readFile(Path file, List<Column> inputColumns, RejectSink rejectSink, Predicate<Map<String, Object>> rowFilter,
+                                FileStats.Collector stats, List<Map<String, Object>> dataRows) {
+        String source = SOURCE + ":" + file;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                System.err.println("Warning: CSV file is empty or missing header: " + file);
+                return 0;
+            }
+
+            String[] headers = headerLine.split(",");
+            Map<String, Integer> headerIndexMap = indexHeaders(headers, inputColumns);
+            if (stats != null) {
+                stats.header(headerIndexMap, headers.length);
             }
 
             String line;
-            int lineNumber = 1;
+            long lineNumber = 1;
             while ((line = reader.readLine()) != null) {
                 lineNumber++;
-                String[] values = line.split(",", -1); // Keep trailing empty strings
-
-                //skips row if column count doesn't match header
-                if (values.length != headers.length) {
-                    System.err.println("Warning: Skipping line " + lineNumber + ". Expected " + headers.length + " columns, but found " + values.length + ".");
-                    continue;
+                String[] values = line.split(",", -1);
+                if (stats != null) {
+                    stats.line(values);
+                }
+                Map<String, Object> row = parseLine(line, values, lineNumber, headers.length, headerIndexMap, inputColumns, rejectSink, source);
+                if (row != null && (rowFilter == null || rowFilter.test(row))) {
+                    dataRows.add(row);
                 }
+            }
+            return lineNumber - 1;
+        } catch (IOException e) {
+            System.err.println("Error reading CSV file: " + file);
+            throw new RuntimeException("Failed to read CSV file: " + file, e);
+        }
+    }
 
-                Map<String, Object> rowMap = new HashMap<>();
-                boolean rowParseSuccess = true;
+    // parses one data line (split with trailing empty strings kept) into a row, returns null when it was rejected
+    private static Map<String, Object> parseLine(String line, String[] values, long lineNumber, int headerCount, Map<String, Integer> headerIndexMap,
+                                                 List<Column> inputColumns, RejectSink rejectSink, String source) {
+        //skips row if column count doesn't match header
+        if (values.length != headerCount) {
+            rejectSink.reject(RejectReason.COLUMN_COUNT_MISMATCH, source, lineNumber,
+                    "Expected " + headerCount + " columns, but found " + values.length, line);
+            return null;
+        }
 
-                for (Column inputCol : inputColumns) {
-                    String columnName = inputCol.getName();
-                    Integer columnIndex = headerIndexMap.get(columnName);
+        Map<String, Object> rowMap = new HashMap<>();
+        boolean rowParseSuccess = true;
 
-                    if (columnIndex == null) {
-                        // column defined in XML but not found in header (already warned)
-                        rowMap.put(columnName, null);
-                        continue;
-                    }
+        for (Column inputCol : inputColumns) {
+            String columnName = inputCol.getName();
+            Integer columnIndex = headerIndexMap.get(columnName);
 
-                    String rawValue = values[columnIndex].trim();
-                    Column.DataType expectedType = inputCol.getType();
+            if (columnIndex == null) {
+                // column defined in XML but not found in header (already warned)
+                rowMap.put(columnName, null);
+                continue;
+            }
 
-                    // treat empty strings as null for non-string types
-                    if (rawValue.isEmpty() && expectedType != Column.DataType.STRING) {
-                        rowMap.put(columnName, null);
-                        continue;
-                    }
+            String rawValue = values[columnIndex].trim();
+            Column.DataType expectedType = inputCol.getType();
 
-                    try {
-                        Object parsedValue = parseValue(rawValue, expectedType);
-                        rowMap.put(columnName, parsedValue);
-                    } catch (NumberFormatException | DateTimeParseException e) {
-                        System.err.println("Warning: Skipping line " + lineNumber + ". Failed to parse value '" + rawValue + "' for column '" + columnName + "' as type " + expectedType + ". Error: " + e.getMessage());
-                        rowParseSuccess = false;
-                        break; // stop processing this row on first parse error
-                    } catch (Exception e) {
-                        System.err.println("Warning: Skipping line " + lineNumber + ". Unexpected error parsing column '" + columnName + "'. Error: " + e.getMessage());
-                        rowParseSuccess = false;
-                        break;
+            // treat empty strings as null for non-string types
+            if (rawValue.isEmpty() && expectedType != Column.DataType.STRING) {
+                rowMap.put(columnName, null);
+                continue;
+            }
+
+            try {
+                Object parsedValue = parseValue(rawValue, inputCol);
+                rowMap.put(columnName, parsedValue);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                rejectSink.reject(RejectReason.PARSE_ERROR, source, lineNumber,
+                        "Failed to parse value '" + rawValue + "' for column '" + columnName + "' as type " + expectedType, line);
+                rowParseSuccess = false;
+                break; // stop processing this row on first parse error
+            } catch (Exception e) {
+                rejectSink.reject(RejectReason.UNEXPECTED_ERROR, source, lineNumber,
+                        "Unexpected error parsing column '" + columnName + "'. Error: " + e.getMessage(), line);
+                rowParseSuccess = false;
+                break;
+            }
+        }
+
+        return rowParseSuccess ? rowMap : null;
+    }
+
+    // byte level line reader that knows how many bytes each line took, BufferedReader hides the offsets
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private byte[] line = new byte[256];
+        private int length;
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        // reads up to and including the next '\n', returns the bytes consumed (0 at the end of the file)
+        int readLine() throws IOException {
+            length = 0;
+            int consumed = 0;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return consumed;
                     }
                 }
-
-                if (rowParseSuccess) {
-                    dataRows.add(rowMap);
+                byte b = buffer[position++];
+                consumed++;
+                if (b == '\n') {
+                    return consumed;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
                 }
+                line[length++] = b;
             }
-
-        } catch (IOException e) {
-            System.err.println("Error reading CSV file: " + filePath);
-            throw new RuntimeException("Failed to read CSV file: " + filePath, e);
         }
 
-        return dataRows;
+        // the last line without its line break (and a trailing '\r')
+        String line() {
+            int end = (length > 0 && line[length - 1] == '\r') ? length - 1 : length;
+            return new String(line, 0, end, StandardCharsets.UTF_8);
+        }
     }
 
     // parses a string value into the specified data type according to ISO standards where applicable.
-    private static Object parseValue(String value, Column.DataType type) throws DateTimeParseException, NumberFormatException {
+    public static Object parseValue(String value, Column column) throws DateTimeParseException, NumberFormatException {
+        Column.DataType type = column.getType();
         if (value == null || value.isEmpty()) {
             return (type == Column.DataType.STRING) ? "" : null;
         }
@@ -117,6 +281,7 @@ public class CsvDataReader {
             case DOUBLE -> Double.parseDouble(value);
             case DATE -> LocalDate.parse(value); // ISO-8601 YYYY-MM-DD
             case DATETIME -> ZonedDateTime.parse(value); // ISO-8601 YYYY-MM-DDTHH:mm:ss[.SSS]XXX
+            case DECIMAL -> Decimal.parse(value, column.getScale()); // scaled long, no double on the way
         };
     }
 }
\ No newline at end of file
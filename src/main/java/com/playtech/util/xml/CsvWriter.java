@@ -0,0 +1,84 @@
+package com.playtech.util.xml;
+
+import com.playtech.report.column.Column;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+ * CSV output (RFC 4180): a header line with the output column names, then one line per row.
+ * Null and missing values are empty fields, dates are formatted as in the JSONL output.
+ */
+public class CsvWriter {
+
+    public static void writeData(Path outputDir, String reportName, List<Column> outputColumns, List<Map<String, Object>> data) {
+        Path outputFilePath = outputDir.resolve(reportName + ".csv");
+        List<String> outputColumnNames = outputColumns.stream()
+                .map(Column::getName)
+                .collect(Collectors.toList());
+
+        try {
+            Files.createDirectories(outputDir);
+
+            try (BufferedWriter writer = Files.newBufferedWriter(outputFilePath, StandardCharsets.UTF_8)) {
+                writer.write(formatHeader(outputColumnNames));
+                writer.newLine();
+                for (Map<String, Object> row : data) {
+                    writer.write(formatRowAsCsv(row, outputColumnNames));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing CSV output file: " + outputFilePath);
+            throw new RuntimeException("Failed to write output file: " + outputFilePath, e);
+        }
+    }
+
+    static String formatHeader(List<String> outputColumnNames) {
+        return outputColumnNames.stream()
+                .map(CsvWriter::escapeCsvField)
+                .collect(Collectors.joining(","));
+    }
+
+    static String formatRowAsCsv(Map<String, Object> row, List<String> outputColumnNames) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < outputColumnNames.size(); i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            Object value = row.get(outputColumnNames.get(i));
+            if (value != null) {
+                sb.append(escapeCsvField(formatCsvValue(value)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String formatCsvValue(Object value) {
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).format(DateTimeFormatter.ISO_LOCAL_DATE);
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        return value.toString();
+    }
+
+    // quotes a field containing a separator, a quote or a line break, doubling the quotes inside
+    public static String escapeCsvField(String input) {
+        boolean quote = false;
+        for (int i = 0; i < input.length() && !quote; i++) {
+            char c = input.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? "\"" + input.replace("\"", "\"\"") + "\"" : input;
+    }
+}
@@ -40,7 +40,7 @@ public class JsonlWriter {
         }
     }
 
-    private static String formatRowAsJson(Map<String, Object> row, List<String> outputColumnNames) {
+    static String formatRowAsJson(Map<String, Object> row, List<String> outputColumnNames) {
         StringBuilder sb = new StringBuilder("{");
         boolean firstField = true;
 
@@ -82,7 +82,7 @@ public class JsonlWriter {
     }
 
     // Escape characters within a string according to JSON rules (minimal required set).
-    private static String escapeJsonString(String input) {
+    public static String escapeJsonString(String input) {
         if (input == null) return "";
         StringBuilder sb = new StringBuilder();
         for (char c : input.toCharArray()) {
@@ -0,0 +1,280 @@
+package com.playtech.util.xml;
+
+import com.playtech.report.Partitioning;
+import com.playtech.report.Report;
+import com.playtech.report.column.Column;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Partitioned and rotated output: rows go to <outputDir>/<reportName>/<by>=<value>/part-00000.<ext>
+ * (without a <by> column straight into <outputDir>/<reportName>/), a new part file is started once the
+ * current one reaches maxRows or maxBytes. Every partition is written by one task of a writer pool,
+ * so the files of different partitions are written in parallel and rows keep their order within a partition.
+ * <outputDir>/<reportName>.manifest.json lists the files with their partition, row count and byte size.
+ *
+ * Partition values are percent-encoded outside [A-Za-z0-9.-] (and a leading '.'), null values go to "_null"
+ * and empty strings to "_empty", '_' is always encoded so these can't clash with real values.
+ */
+public class PartitionedWriter {
+    public static final String MANIFEST_SUFFIX = ".manifest.json";
+    private static final String NULL_PARTITION = "_null";
+    private static final String EMPTY_PARTITION = "_empty";
+    private static final Pattern PART_FILE = Pattern.compile("part-\\d{5,}\\.(jsonl|csv)");
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    // one written file
+    public static class Part {
+        private final Path file;
+        private final String partition;
+        private final long rows;
+        private final long bytes;
+
+        Part(Path file, String partition, long rows, long bytes) {
+            this.file = file;
+            this.partition = partition;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public String getPartition() {
+            return partition;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    // writes the parts and the manifest, returns the parts in partition order
+    public static List<Part> writeData(Path outputDir, String reportName, Report.FileFormat format, List<Column> outputColumns,
+                                       Partitioning partitioning, List<Map<String, Object>> data, int writerThreads) {
+        List<String> outputColumnNames = outputColumns.stream()
+                .map(Column::getName)
+                .collect(Collectors.toList());
+        Path reportDir = outputDir.resolve(reportName);
+        deleteOldParts(reportDir);
+
+        // partition value -> row indexes in input order, a single partition without a <by> column
+        TreeMap<String, RowIndexes> partitions = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        if (partitioning.getBy() != null) {
+            for (int i = 0; i < data.size(); i++) {
+                String partition = partitioning.partitionValue(data.get(i).get(partitioning.getBy()));
+                partitions.computeIfAbsent(partition, ignored -> new RowIndexes()).add(i);
+            }
+        } else if (!data.isEmpty()) {
+            partitions.put(null, RowIndexes.all(data.size()));
+        }
+
+        List<Part> parts = new ArrayList<>();
+        int threads = Math.max(1, Math.min(writerThreads, partitions.size()));
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Part>>> written = new ArrayList<>();
+            for (Map.Entry<String, RowIndexes> partition : partitions.entrySet()) {
+                Path directory = partitioning.getBy() == null ? reportDir : reportDir.resolve(partitioning.getBy() + "=" + encode(partition.getKey()));
+                written.add(writers.submit(() -> writePartition(directory, partitioning.getBy() == null ? null : partition.getKey(),
+                        format, outputColumnNames, partitioning, data, partition.getValue())));
+            }
+            for (Future<List<Part>> future : written) {
+                parts.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing output: " + reportDir, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to write output: " + reportDir, e.getCause());
+        } finally {
+            writers.shutdownNow();
+        }
+
+        writeManifest(outputDir, reportName, format, partitioning, parts);
+        return parts;
+    }
+
+    public static Path manifestFile(Path outputDir, String reportName) {
+        return outputDir.resolve(reportName + MANIFEST_SUFFIX);
+    }
+
+    private static List<Part> writePartition(Path directory, String partition, Report.FileFormat format, List<String> outputColumnNames,
+                                             Partitioning partitioning, List<Map<String, Object>> data, RowIndexes rows) {
+        long maxRows = partitioning.getMaxRows() != null ? partitioning.getMaxRows() : Long.MAX_VALUE;
+        long maxBytes = partitioning.getMaxBytes() != null ? partitioning.getMaxBytes() : Long.MAX_VALUE;
+        String extension = format == Report.FileFormat.CSV ? ".csv" : ".jsonl";
+        byte[] header = format == Report.FileFormat.CSV ? CsvWriter.formatHeader(outputColumnNames).getBytes(StandardCharsets.UTF_8) : null;
+
+        List<Part> parts = new ArrayList<>();
+        Path file = null;
+        OutputStream out = null;
+        long fileRows = 0;
+        long fileBytes = 0;
+        try {
+            Files.createDirectories(directory);
+            for (int i = 0; i < rows.size; i++) {
+                if (out != null && (fileRows >= maxRows || fileBytes >= maxBytes)) {
+                    out.close();
+                    out = null;
+                    parts.add(new Part(file, partition, fileRows, fileBytes));
+                }
+                if (out == null) {
+                    file = directory.resolve(String.format("part-%05d%s", parts.size(), extension));
+                    out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+                    fileRows = 0;
+                    fileBytes = header != null ? writeLine(out, header) : 0;
+                }
+                Map<String, Object> row = data.get(rows.get(i));
+                String line = format == Report.FileFormat.CSV
+                        ? CsvWriter.formatRowAsCsv(row, outputColumnNames)
+                        : JsonlWriter.formatRowAsJson(row, outputColumnNames);
+                fileBytes += writeLine(out, line.getBytes(StandardCharsets.UTF_8));
+                fileRows++;
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+                parts.add(new Part(file, partition, fileRows, fileBytes));
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing output file: " + file);
+            throw new RuntimeException("Failed to write output file: " + (file != null ? file : directory), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // already failing with the first error
+                }
+            }
+        }
+        return parts;
+    }
+
+    private static long writeLine(OutputStream out, byte[] line) throws IOException {
+        out.write(line);
+        out.write(LINE_SEPARATOR);
+        return line.length + LINE_SEPARATOR.length;
+    }
+
+    private static void writeManifest(Path outputDir, String reportName, Report.FileFormat format, Partitioning partitioning, List<Part> parts) {
+        Path manifest = manifestFile(outputDir, reportName);
+        long totalRows = parts.stream().mapToLong(Part::getRows).sum();
+        long totalBytes = parts.stream().mapToLong(Part::getBytes).sum();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"report\":\"").append(JsonlWriter.escapeJsonString(reportName)).append("\"");
+        sb.append(",\"format\":\"").append(format).append("\"");
+        sb.append(",\"partitionBy\":").append(partitioning.getBy() == null ? "null" : "\"" + JsonlWriter.escapeJsonString(partitioning.getBy()) + "\"");
+        sb.append(",\"rows\":").append(totalRows);
+        sb.append(",\"bytes\":").append(totalBytes);
+        sb.append(",\"files\":[");
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            String relative = outputDir.relativize(part.getFile()).toString().replace('\\', '/');
+            sb.append(i > 0 ? "," : "").append(System.lineSeparator()).append("  ");
+            sb.append("{\"path\":\"").append(JsonlWriter.escapeJsonString(relative)).append("\"");
+            sb.append(",\"partition\":").append(part.getPartition() == null ? "null" : "\"" + JsonlWriter.escapeJsonString(part.getPartition()) + "\"");
+            sb.append(",\"rows\":").append(part.getRows());
+            sb.append(",\"bytes\":").append(part.getBytes()).append("}");
+        }
+        sb.append(System.lineSeparator()).append("]}").append(System.lineSeparator());
+        try {
+            Files.writeString(manifest, sb.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write manifest file: " + manifest, e);
+        }
+    }
+
+    // part files of an earlier run would otherwise be picked up by loaders reading the whole directory
+    private static void deleteOldParts(Path reportDir) {
+        if (!Files.isDirectory(reportDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(reportDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                if (Files.isRegularFile(file) && PART_FILE.matcher(file.getFileName().toString()).matches()) {
+                    Files.delete(file);
+                } else if (Files.isDirectory(file) && !file.equals(reportDir)) {
+                    try (Stream<Path> left = Files.list(file)) {
+                        if (left.findAny().isEmpty()) {
+                            Files.delete(file);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to remove old output files in: " + reportDir, e);
+        }
+    }
+
+    static String encode(String partition) {
+        if (partition == null) {
+            return NULL_PARTITION;
+        }
+        StringBuilder sb = new StringBuilder();
+        byte[] bytes = partition.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            boolean plain = (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '-' || (b == '.' && i > 0);
+            if (plain) {
+                sb.append((char) b);
+            } else {
+                sb.append('%').append(Character.toUpperCase(Character.forDigit(b >> 4, 16))).append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return sb.isEmpty() ? EMPTY_PARTITION : sb.toString();
+    }
+
+    // growable int list of row positions
+    private static class RowIndexes {
+        private int[] rows = new int[16];
+        private int size;
+        private boolean identity;
+
+        static RowIndexes all(int size) {
+            RowIndexes indexes = new RowIndexes();
+            indexes.rows = null;
+            indexes.size = size;
+            indexes.identity = true;
+            return indexes;
+        }
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        int get(int i) {
+            return identity ? i : rows[i];
+        }
+    }
+}
@@ -8,9 +8,25 @@ import jakarta.xml.bind.Unmarshaller;
 import java.io.File;
 
 public class XmlParser {
+    // the context is thread safe and expensive to build, unmarshallers are not thread safe so one is created per call
+    private static volatile JAXBContext context;
+
     public static Report parseReport(String filePath) throws JAXBException {
-        JAXBContext context = JAXBContext.newInstance(Report.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = getContext().createUnmarshaller();
         return (Report) unmarshaller.unmarshal(new File(filePath));
     }
+
+    private static JAXBContext getContext() throws JAXBException {
+        JAXBContext result = context;
+        if (result == null) {
+            synchronized (XmlParser.class) {
+                result = context;
+                if (result == null) {
+                    result = JAXBContext.newInstance(Report.class);
+                    context = result;
+                }
+            }
+        }
+        return result;
+    }
 }
@@ -3,9 +3,11 @@ package com.playtech.util.xml.adapters;
 import com.playtech.report.transformer.Transformer;
 import com.playtech.report.transformer.impl.AggregatorTransformer;
 import com.playtech.report.transformer.impl.DateTimeFormatterTransformer;
+import com.playtech.report.transformer.impl.LookupTransformer;
 import com.playtech.report.transformer.impl.MathOperationTransformer;
 import com.playtech.report.transformer.impl.OrderingTransformer;
 import com.playtech.report.transformer.impl.StringFormatterTransformer;
+import com.playtech.report.transformer.impl.aggregate.TumblingWindow;
 import com.playtech.util.xml.helpers.TransformerWrapper;
 import jakarta.xml.bind.annotation.adapters.XmlAdapter;
 
@@ -22,7 +24,12 @@ public class TransformerAdapter extends XmlAdapter<TransformerWrapper, Transform
             case DateTimeFormatterTransformer.NAME ->
                     new DateTimeFormatterTransformer(wrapper.getParameters().getInput(), wrapper.getParameters().getFormat(), wrapper.getParameters().getOutput());
             case AggregatorTransformer.NAME ->
-                    new AggregatorTransformer(wrapper.getParameters().getGroupBy(), wrapper.getParameters().getAggregateBys());
+                    new AggregatorTransformer(wrapper.getParameters().getGroupBys(), wrapper.getParameters().getAggregateBys(),
+                            wrapper.getParameters().isSortedInput(),
+                            wrapper.getParameters().getWindow() != null ? TumblingWindow.parse(wrapper.getParameters().getWindow()) : null);
+            case LookupTransformer.NAME ->
+                    new LookupTransformer(wrapper.getParameters().getInput(), wrapper.getParameters().getDimension(),
+                            wrapper.getParameters().getKey(), wrapper.getParameters().getOutputs());
             default -> throw new IllegalArgumentException("Unknown transformer type: " + wrapper.getName());
         };
     }
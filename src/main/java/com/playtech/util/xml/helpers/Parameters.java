@@ -25,14 +25,27 @@ public class Parameters {
     private Column input;
     @XmlIDREF
     private Column output;
+    @XmlElementWrapper(name = "outputs")
+    @XmlElement(name = "output")
+    @XmlJavaTypeAdapter(ColumnAdapter.class)
+    private List<Column> outputs;
     private String format;
     private OrderingTransformer.Order order;
     private MathOperationTransformer.MathOperation operation;
-    @XmlIDREF
-    private Column groupBy;
+    // repeat <groupBy> to group by several columns
+    @XmlElement(name = "groupBy")
+    @XmlJavaTypeAdapter(ColumnAdapter.class)
+    private List<Column> groupBys;
     @XmlElementWrapper(name = "aggregateBys")
     @XmlElement(name = "aggregateBy")
     private List<AggregatorTransformer.AggregateBy> aggregateBys;
+    // Aggregator only, rows are already ordered by the groupBy columns
+    private Boolean sortedInput;
+    // Aggregator only, tumbling window for DATETIME groupBy columns, e.g. 1h or 1d
+    private String window;
+    // Lookup only, dimension CSV path and its key column (defaults to the input column name)
+    private String dimension;
+    private String key;
 
     public List<Column> getInputs() {
         return inputs;
@@ -46,6 +59,10 @@ public class Parameters {
         return output;
     }
 
+    public List<Column> getOutputs() {
+        return outputs;
+    }
+
     public String getFormat() {
         return format;
     }
@@ -58,11 +75,27 @@ public class Parameters {
         return operation;
     }
 
-    public Column getGroupBy() {
-        return groupBy;
+    public List<Column> getGroupBys() {
+        return groupBys;
     }
 
     public List<AggregatorTransformer.AggregateBy> getAggregateBys() {
         return aggregateBys;
     }
+
+    public boolean isSortedInput() {
+        return sortedInput != null && sortedInput;
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public String getDimension() {
+        return dimension;
+    }
+
+    public String getKey() {
+        return key;
+    }
 }
@@ -0,0 +1,101 @@
+package com.playtech.job;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobRunnerTest {
+    private static final String REPORT = """
+            <report>
+                <reportName>Totals</reportName>
+                <inputs>
+                    <input><name>Game</name><type>STRING</type></input>
+                    <input><name>Amount</name><type>DOUBLE</type></input>
+                </inputs>
+                <outputs>
+                    <output><name>Game</name><type>STRING</type></output>
+                    <output><name>AmountSum</name><type>DOUBLE</type></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Aggregator</name>
+                        <parameters>
+                            <groupBy>Game</groupBy>
+                            <aggregateBys>
+                                <aggregateBy><input>Amount</input><method>SUM</method><output>AmountSum</output></aggregateBy>
+                            </aggregateBys>
+                        </parameters>
+                    </transformer>
+                </transformers>
+            </report>
+            """;
+    private static final Pattern STARTED_AT = Pattern.compile("\"startedAt\":\"([^\"]+)\",\"totalMillis\":([0-9.]+)");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void singleSlotRunsJobsOneAtATime() throws Exception {
+        StringBuilder csv = new StringBuilder("Game,Amount\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("Game").append(i % 10).append(',').append(i % 100).append(".5\n");
+        }
+        Path csvFile = Files.writeString(tempDir.resolve("input.csv"), csv, StandardCharsets.UTF_8);
+        Path xml = Files.writeString(tempDir.resolve("Totals.xml"), REPORT, StandardCharsets.UTF_8);
+        List<ReportJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            jobs.add(new ReportJob(csvFile.toString(), xml.toString(), tempDir.resolve("out" + i)));
+        }
+        // a missing input fails its own job only
+        jobs.add(new ReportJob(tempDir.resolve("missing.csv").toString(), xml.toString(), tempDir.resolve("failed")));
+
+        List<JobResult> results;
+        try (JobRunner runner = new JobRunner(Map.of(JobRunner.OPTION_MAX_JOBS, "1", JobRunner.OPTION_CPU_THREADS, "2"))) {
+            results = runner.runAll(jobs);
+        }
+
+        assertEquals(jobs.size(), results.size());
+        List<Instant[]> runs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            JobResult result = results.get(i);
+            assertEquals(jobs.get(i), result.getJob());
+            assertTrue(result.isSuccess(), () -> String.valueOf(result.getError()));
+            assertEquals(10, Files.readAllLines(result.getOutputFile()).size());
+            runs.add(run(jobs.get(i).getOutputDir().resolve("Totals.metrics.json")));
+        }
+        assertFalse(results.get(4).isSuccess());
+        assertNull(results.get(4).getOutputFile());
+
+        // from prepare to the metrics file every job holds the only slot
+        runs.sort(Comparator.comparing(run -> run[0]));
+        for (int i = 1; i < runs.size(); i++) {
+            assertFalse(runs.get(i)[0].isBefore(runs.get(i - 1)[1]), "job " + i + " started before the previous one finished");
+        }
+    }
+
+    // start and end of the run recorded in its metrics file
+    private static Instant[] run(Path metricsFile) throws Exception {
+        Matcher matcher = STARTED_AT.matcher(Files.readString(metricsFile));
+        assertTrue(matcher.find());
+        Instant start = Instant.parse(matcher.group(1));
+        Duration total = Duration.ofNanos((long) (Double.parseDouble(matcher.group(2)) * 1_000_000));
+        return new Instant[]{start, start.plus(total)};
+    }
+}
@@ -0,0 +1,147 @@
+package com.playtech.report;
+
+import com.playtech.util.reject.RejectBudgetExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportPipelineTest {
+    private static final String REPORT = """
+            <report>
+                <reportName>Totals</reportName>
+                <inputs>
+                    <input><name>Game</name><type>STRING</type></input>
+                    <input><name>Amount</name><type>DECIMAL</type><scale>2</scale></input>
+                </inputs>
+                <outputs>
+                    <output><name>Game</name><type>STRING</type></output>
+                    <output><name>AmountSum</name><type>DECIMAL</type><scale>2</scale></output>
+                    <output><name>Label</name><type>STRING</type></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Aggregator</name>
+                        <parameters>
+                            <groupBy>Game</groupBy>
+                            <aggregateBys>
+                                <aggregateBy><input>Amount</input><method>SUM</method><output>AmountSum</output></aggregateBy>
+                            </aggregateBys>
+                        </parameters>
+                    </transformer>
+                    <transformer>
+                        <name>StringFormatter</name>
+                        <parameters>
+                            <inputs><input>AmountSum</input></inputs>
+                            <format>%s</format>
+                            <output>Label</output>
+                        </parameters>
+                    </transformer>
+                </transformers>
+            </report>
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path csv;
+    private Path euro;
+    private Path dollar;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        csv = Files.writeString(tempDir.resolve("input.csv"), """
+                Game,Amount
+                Poker,1.50
+                Poker,oops
+                Roulette,2.25
+                Roulette
+                Poker,-0.50
+                """, StandardCharsets.UTF_8);
+        euro = Files.writeString(tempDir.resolve("euro.xml"), REPORT.formatted("%.2f EUR"), StandardCharsets.UTF_8);
+        dollar = Files.writeString(tempDir.resolve("dollar.xml"), REPORT.formatted("%.2f USD"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void resumedRunHasTheRejectsOfAColdRun() throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        run(euro, tempDir.resolve("euro"), Map.of(ReportPipeline.OPTION_CACHE_DIR, cacheDir.toString()));
+        Path resumed = run(dollar, tempDir.resolve("resumed"), Map.of(ReportPipeline.OPTION_CACHE_DIR, cacheDir.toString()));
+        Path cold = run(dollar, tempDir.resolve("cold"), Map.of());
+
+        assertTrue(Files.readString(resumed.resolve("Totals.metrics.json")).contains("cache:resume:1"));
+        assertEquals(Files.readString(cold.resolve("Totals.jsonl")), Files.readString(resumed.resolve("Totals.jsonl")));
+        assertEquals(Files.readString(cold.resolve("Totals.rejects.tsv")), Files.readString(resumed.resolve("Totals.rejects.tsv")));
+        // the same report again is a full hit, with the rejects of the first run
+        Path hit = run(dollar, tempDir.resolve("hit"), Map.of(ReportPipeline.OPTION_CACHE_DIR, cacheDir.toString()));
+        assertTrue(Files.readString(hit.resolve("Totals.metrics.json")).contains("cache:hit:"));
+        assertEquals(Files.readString(cold.resolve("Totals.jsonl")), Files.readString(hit.resolve("Totals.jsonl")));
+        assertEquals(Files.readString(cold.resolve("Totals.rejects.tsv")), Files.readString(hit.resolve("Totals.rejects.tsv")));
+        // the replayed rejects count against the budget
+        Map<String, String> budget = new HashMap<>();
+        budget.put(ReportPipeline.OPTION_CACHE_DIR, cacheDir.toString());
+        budget.put(ReportPipeline.OPTION_MAX_REJECTS, "1");
+        assertThrows(RejectBudgetExceededException.class, () -> run(dollar, tempDir.resolve("budget"), budget));
+    }
+
+    @Test
+    void corruptCachedRejectsAreRecomputed() throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        run(euro, tempDir.resolve("euro"), Map.of(ReportPipeline.OPTION_CACHE_DIR, cacheDir.toString()));
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            for (Path entry : entries.filter(path -> path.toString().endsWith(".rejects.tsv")).toList()) {
+                Files.writeString(entry, "line\treason\tsource\tdetail\traw\nx\tNOT_A_REASON\t\t\t\n");
+            }
+        }
+        Path recomputed = run(dollar, tempDir.resolve("recomputed"), Map.of(ReportPipeline.OPTION_CACHE_DIR, cacheDir.toString()));
+        Path cold = run(dollar, tempDir.resolve("cold"), Map.of());
+
+        assertEquals(Files.readString(cold.resolve("Totals.jsonl")), Files.readString(recomputed.resolve("Totals.jsonl")));
+        assertEquals(Files.readString(cold.resolve("Totals.rejects.tsv")), Files.readString(recomputed.resolve("Totals.rejects.tsv")));
+        assertFalse(Files.readString(recomputed.resolve("Totals.rejects.tsv")).contains("NOT_A_REASON"));
+    }
+
+    @Test
+    void partitionColumnMustSurviveTheAggregator() throws Exception {
+        Path byAmount = Files.writeString(tempDir.resolve("byAmount.xml"), partitionedBy("Amount"), StandardCharsets.UTF_8);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> run(byAmount, tempDir.resolve("amount"), Map.of()));
+        assertTrue(e.getMessage().contains("'Amount' is an input column the Aggregator drops"), e.getMessage());
+
+        Path byGame = Files.writeString(tempDir.resolve("byGame.xml"), partitionedBy("Game"), StandardCharsets.UTF_8);
+        Path output = run(byGame, tempDir.resolve("game"), Map.of());
+        assertTrue(Files.exists(output.resolve("Totals/Game=Poker/part-00000.jsonl")));
+        assertTrue(Files.exists(output.resolve("Totals/Game=Roulette/part-00000.jsonl")));
+        assertFalse(Files.exists(output.resolve("Totals/Game=_null")));
+    }
+
+    private static String partitionedBy(String column) {
+        return REPORT.formatted("%.2f EUR").replace("</outputFormat>", "</outputFormat><partitioning><by>" + column + "</by></partitioning>");
+    }
+
+    private Path run(Path xml, Path outputDir, Map<String, String> options) throws Exception {
+        Files.createDirectories(outputDir);
+        ReportPipeline pipeline = new ReportPipeline(csv.toString(), xml.toString(), outputDir, options, false);
+        try {
+            pipeline.prepare();
+            pipeline.read();
+            pipeline.transform();
+            pipeline.write();
+        } finally {
+            pipeline.close();
+        }
+        return outputDir;
+    }
+}
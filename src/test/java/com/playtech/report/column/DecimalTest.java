@@ -0,0 +1,77 @@
+package com.playtech.report.column;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecimalTest {
+
+    @Test
+    void parsesNegativeAndShortFractions() {
+        assertEquals(Decimal.of(-1250, 2), Decimal.parse("-12.5", 2));
+        assertEquals(Decimal.of(25, 2), Decimal.parse(".25", 2));
+        assertEquals(Decimal.of(300, 2), Decimal.parse("+3", 2));
+        assertEquals(Decimal.of(-5, 2), Decimal.parse("-0.05", 2));
+        assertEquals("-0.05", Decimal.parse("-0.05", 2).toString());
+        assertEquals("-53.60", Decimal.parse("-53.6", 2).toString());
+    }
+
+    @Test
+    void acceptsOnlyZerosBeyondTheScale() {
+        assertEquals(Decimal.of(1210, 2), Decimal.parse("12.1000", 2));
+        assertThrows(NumberFormatException.class, () -> Decimal.parse("12.105", 2));
+        assertThrows(NumberFormatException.class, () -> Decimal.parse("-", 2));
+        assertThrows(NumberFormatException.class, () -> Decimal.parse("1.2.3", 2));
+    }
+
+    @Test
+    void widensScaleExactlyAndRefusesToNarrow() {
+        Decimal value = Decimal.of(-125, 1);
+        assertEquals("-12.500", value.setScale(3).toString());
+        assertEquals(-12500, value.unscaledAt(3));
+        assertThrows(ArithmeticException.class, () -> value.setScale(0));
+        assertEquals(0, Decimal.of(-125, 1).compareTo(Decimal.of(-1250, 2)));
+        assertTrue(Decimal.of(-126, 1).compareTo(Decimal.of(-1250, 2)) < 0);
+    }
+
+    @Test
+    void addsAndSubtractsAtTheWiderScale() {
+        assertEquals("-1.195", Decimal.of(-12, 1).add(Decimal.of(5, 3)).toString());
+        assertEquals("-1.205", Decimal.of(-12, 1).subtract(Decimal.of(5, 3)).toString());
+        assertEquals(Decimal.of(250, 2), Decimal.valueOf(2.5, 2));
+        assertEquals(Decimal.of(-3, 2), Decimal.valueOf(-0.025, 2));
+        assertEquals(Decimal.of(-700, 2), Decimal.valueOf(-7, 2));
+    }
+
+    @Test
+    void overflowsAtTheLongBoundary() {
+        assertEquals(Decimal.of(Long.MAX_VALUE, 2), Decimal.parse("92233720368547758.07", 2));
+        assertThrows(NumberFormatException.class, () -> Decimal.parse("92233720368547758.08", 2));
+        assertEquals(Decimal.of(Long.MAX_VALUE, 2), Decimal.of(Long.MAX_VALUE - 1, 2).add(Decimal.of(1, 2)));
+        assertThrows(ArithmeticException.class, () -> Decimal.of(Long.MAX_VALUE, 2).add(Decimal.of(1, 2)));
+        assertThrows(ArithmeticException.class, () -> Decimal.of(Long.MIN_VALUE, 2).subtract(Decimal.of(1, 2)));
+        assertThrows(ArithmeticException.class, () -> Decimal.of(Long.MAX_VALUE / 10 + 1, 2).setScale(3));
+        assertEquals("-92233720368547758.08", Decimal.of(Long.MIN_VALUE, 2).toString());
+    }
+
+    @Test
+    void equalityIgnoresTrailingFractionZeros() {
+        assertEquals(Decimal.of(15, 1), Decimal.of(150, 2));
+        assertEquals(Decimal.of(15, 1).hashCode(), Decimal.of(150, 2).hashCode());
+        assertEquals(Decimal.of(0, 0).hashCode(), Decimal.of(0, 5).hashCode());
+        assertNotEquals(Decimal.of(15, 1), Decimal.of(151, 2));
+        // widening Long.MAX_VALUE overflows, the values still compare
+        assertNotEquals(Decimal.of(Long.MAX_VALUE, 0), Decimal.of(Long.MAX_VALUE, 2));
+
+        List<Decimal> values = List.of(Decimal.of(15, 1), Decimal.of(150, 2), Decimal.of(-1500, 3), Decimal.of(2, 0), Decimal.of(200, 2));
+        assertEquals(new TreeSet<>(values).size(), new HashSet<>(values).size());
+        assertEquals(3, new HashSet<>(values).size());
+    }
+}
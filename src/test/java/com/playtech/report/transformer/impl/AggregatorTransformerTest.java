@@ -0,0 +1,247 @@
+package com.playtech.report.transformer.impl;
+
+import com.playtech.report.Report;
+import com.playtech.report.column.Decimal;
+import com.playtech.util.reject.RejectReason;
+import com.playtech.util.reject.RejectSink;
+import com.playtech.util.xml.XmlParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregatorTransformerTest {
+    private static final String REPORT = """
+            <report>
+                <reportName>Overflow</reportName>
+                <inputs>
+                    <input><name>Game</name><type>STRING</type></input>
+                    <input><name>Amount</name><type>DECIMAL</type><scale>2</scale></input>
+                </inputs>
+                <outputs>
+                    <output><name>AmountSum</name><type>DECIMAL</type><scale>2</scale></output>
+                    <output><name>AmountAvg</name><type>DECIMAL</type><scale>2</scale></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Aggregator</name>
+                        <parameters>
+                            <groupBy>Game</groupBy>
+                            <aggregateBys>
+                                <aggregateBy><input>Amount</input><method>SUM</method><output>AmountSum</output></aggregateBy>
+                                <aggregateBy><input>Amount</input><method>AVG</method><output>AmountAvg</output></aggregateBy>
+                            </aggregateBys>
+                        </parameters>
+                    </transformer>
+                </transformers>
+            </report>
+            """;
+
+    // %s: extra Aggregator parameters
+    private static final String STREAMED = """
+            <report>
+                <reportName>Streamed</reportName>
+                <inputs>
+                    <input><name>Game</name><type>STRING</type></input>
+                    <input><name>At</name><type>DATETIME</type></input>
+                    <input><name>Amount</name><type>DECIMAL</type><scale>2</scale></input>
+                </inputs>
+                <outputs>
+                    <output><name>AmountSum</name><type>DECIMAL</type><scale>2</scale></output>
+                    <output><name>Rows</name><type>INTEGER</type></output>
+                    <output><name>Smallest</name><type>DECIMAL</type><scale>2</scale></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Aggregator</name>
+                        <parameters>
+                            %s
+                            <aggregateBys>
+                                <aggregateBy><input>Amount</input><method>SUM</method><output>AmountSum</output></aggregateBy>
+                                <aggregateBy><input>Amount</input><method>COUNT</method><output>Rows</output></aggregateBy>
+                                <aggregateBy><input>Amount</input><method>MIN</method><output>Smallest</output></aggregateBy>
+                            </aggregateBys>
+                        </parameters>
+                    </transformer>
+                </transformers>
+            </report>
+            """;
+    private static final ZonedDateTime NOON = ZonedDateTime.of(2024, 3, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void overflowingGroupIsRejectedAndOtherGroupsStayExact() throws Exception {
+        Path xml = tempDir.resolve("Overflow.xml");
+        Files.writeString(xml, REPORT, StandardCharsets.UTF_8);
+        Report report = XmlParser.parseReport(xml.toString());
+        RejectSink rejectSink = RejectSink.forReport(tempDir, report.getReportName(), RejectSink.NO_BUDGET, 0);
+        report.setRejectSink(rejectSink);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("Roulette", Decimal.of(Long.MAX_VALUE - 10, 2)));
+        rows.add(row("Poker", Decimal.of(150, 2)));
+        rows.add(row("Roulette", Decimal.of(20, 2)));
+        rows.add(row("Poker", Decimal.of(-51, 2)));
+
+        report.getTransformers().get(0).transform(report, rows);
+        rejectSink.close();
+
+        assertEquals(2, rows.size());
+        assertEquals("Roulette", rows.get(0).get("Game"));
+        assertNull(rows.get(0).get("AmountSum"));
+        assertNull(rows.get(0).get("AmountAvg"));
+        assertEquals(Decimal.of(99, 2), rows.get(1).get("AmountSum"));
+        assertEquals(Decimal.of(50, 2), rows.get(1).get("AmountAvg"));
+
+        // one reject per overflowing aggregate, naming the column and the group
+        assertEquals(2L, rejectSink.getCounts().get(RejectReason.TRANSFORM_ERROR));
+        String rejects = Files.readString(rejectSink.getRejectFile(), StandardCharsets.UTF_8);
+        assertTrue(rejects.contains("SUM of 'Amount' for group Game"));
+        assertTrue(rejects.contains("AVG of 'Amount' for group Game"));
+        assertTrue(rejects.contains("\tRoulette"));
+    }
+
+    @Test
+    void parallelAggregationInTheCallersPoolMatchesOnePass() throws Exception {
+        Path xml = tempDir.resolve("Overflow.xml");
+        Files.writeString(xml, REPORT, StandardCharsets.UTF_8);
+        Report report = XmlParser.parseReport(xml.toString());
+        report.setRejectSink(RejectSink.stderrOnly());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 250_000; i++) {
+            rows.add(row("Game" + (i * 7919 % 1000), Decimal.of(i % 2000 - 1000, 2)));
+        }
+
+        // the chunks follow the parallelism of the pool the transformer is called in
+        List<Map<String, Object>> chunked = transformIn(new ForkJoinPool(3), report, new ArrayList<>(rows));
+        List<Map<String, Object>> onePass = transformIn(new ForkJoinPool(1), report, new ArrayList<>(rows));
+
+        assertEquals(1000, chunked.size());
+        assertEquals(onePass, chunked);
+    }
+
+    @Test
+    void sortedInputStreamsTheSameGroupsAsTheHashPath() throws Exception {
+        // runs around the 1024 row batch size, so groups close inside a batch, at its end and across batches
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int[] runLengths = {1, 1023, 1024, 1025, 1, 2047, 3000, 7, 1};
+        for (int run = 0; run < runLengths.length; run++) {
+            for (int i = 0; i < runLengths[run]; i++) {
+                rows.add(row("Game" + (char) ('A' + run), NOON, Decimal.of(i % 50 - 20, 2)));
+            }
+        }
+
+        List<Map<String, Object>> hashed = transform(parameters("<groupBy>Game</groupBy>"), new ArrayList<>(rows));
+        List<Map<String, Object>> streamed = transform(parameters("<groupBy>Game</groupBy><sortedInput>true</sortedInput>"), new ArrayList<>(rows));
+
+        assertEquals(runLengths.length, streamed.size());
+        assertEquals(hashed, streamed);
+        assertEquals(3000L, ((Number) streamed.get(6).get("Rows")).longValue());
+    }
+
+    @Test
+    void sortedInputStartsANewRowWhenAKeyComesBack() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("Poker", NOON, Decimal.of(100, 2)));
+        rows.add(row("Poker", NOON, Decimal.of(50, 2)));
+        rows.add(row("Roulette", NOON, Decimal.of(25, 2)));
+        rows.add(row("Poker", NOON, Decimal.of(1, 2)));
+
+        List<Map<String, Object>> streamed = transform(parameters("<groupBy>Game</groupBy><sortedInput>true</sortedInput>"), rows);
+
+        assertEquals(List.of("Poker", "Roulette", "Poker"), streamed.stream().map(row -> row.get("Game")).toList());
+        assertEquals(Decimal.of(150, 2), streamed.get(0).get("AmountSum"));
+        assertEquals(Decimal.of(1, 2), streamed.get(2).get("AmountSum"));
+    }
+
+    @Test
+    void sortedInputOfNoRowsHasNoGroups() throws Exception {
+        assertEquals(List.of(), transform(parameters("<groupBy>Game</groupBy><sortedInput>true</sortedInput>"), new ArrayList<>()));
+    }
+
+    @Test
+    void windowBucketsRowsAtTheBoundary() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("Poker", NOON.minusNanos(1_000_000), Decimal.of(1, 2)));
+        rows.add(row("Poker", NOON, Decimal.of(10, 2)));
+        rows.add(row("Poker", NOON.plusMinutes(59).plusSeconds(59).plusNanos(999_000_000), Decimal.of(100, 2)));
+        rows.add(row("Poker", NOON.plusHours(1), Decimal.of(1000, 2)));
+
+        for (String sorted : List.of("false", "true")) {
+            List<Map<String, Object>> windows = transform(parameters(
+                    "<groupBy>Game</groupBy><groupBy>At</groupBy><window>1h</window><sortedInput>" + sorted + "</sortedInput>"), new ArrayList<>(rows));
+
+            assertEquals(3, windows.size(), "sortedInput " + sorted);
+            assertEquals(NOON.minusHours(1), windows.get(0).get("At"));
+            assertEquals(NOON, windows.get(1).get("At"));
+            assertEquals(Decimal.of(110, 2), windows.get(1).get("AmountSum"));
+            assertEquals(NOON.plusHours(1), windows.get(2).get("At"));
+        }
+    }
+
+    @Test
+    void oneMillisecondWindowKeepsMillisecondsApart() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("Poker", NOON.plusNanos(100), Decimal.of(1, 2)));
+        rows.add(row("Poker", NOON.plusNanos(999_999), Decimal.of(2, 2)));
+        rows.add(row("Poker", NOON.plusNanos(1_000_000), Decimal.of(4, 2)));
+
+        List<Map<String, Object>> windows = transform(parameters("<groupBy>At</groupBy><window>1ms</window>"), rows);
+
+        assertEquals(2, windows.size());
+        assertEquals(NOON, windows.get(0).get("At"));
+        assertEquals(Decimal.of(3, 2), windows.get(0).get("AmountSum"));
+        assertEquals(NOON.plusNanos(1_000_000), windows.get(1).get("At"));
+    }
+
+    private String parameters(String aggregatorParameters) {
+        return STREAMED.formatted(aggregatorParameters);
+    }
+
+    private List<Map<String, Object>> transform(String reportXml, List<Map<String, Object>> rows) throws Exception {
+        Path xml = Files.writeString(tempDir.resolve("Streamed.xml"), reportXml, StandardCharsets.UTF_8);
+        Report report = XmlParser.parseReport(xml.toString());
+        report.setRejectSink(RejectSink.stderrOnly());
+        report.getTransformers().get(0).transform(report, rows);
+        return rows;
+    }
+
+    private static List<Map<String, Object>> transformIn(ForkJoinPool pool, Report report, List<Map<String, Object>> rows) throws Exception {
+        try {
+            pool.submit(() -> report.getTransformers().get(0).transform(report, rows)).get();
+        } finally {
+            pool.shutdown();
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> row(String game, ZonedDateTime at, Decimal amount) {
+        Map<String, Object> row = row(game, amount);
+        row.put("At", at);
+        return row;
+    }
+
+    private static Map<String, Object> row(String game, Decimal amount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("Game", game);
+        row.put("Amount", amount);
+        return row;
+    }
+}
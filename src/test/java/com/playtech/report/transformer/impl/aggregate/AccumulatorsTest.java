@@ -0,0 +1,133 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import com.playtech.report.column.Decimal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccumulatorsTest {
+
+    @Test
+    void decimalAvgRoundsHalfUpAwayFromZero() {
+        assertEquals(Decimal.of(-3, 2), avg(2, Decimal.of(-5, 2), Decimal.of(0, 2)));
+        assertEquals(Decimal.of(3, 2), avg(2, Decimal.of(5, 2), Decimal.of(0, 2)));
+        // -0.0133.. stays -0.01
+        assertEquals(Decimal.of(-1, 2), avg(2, Decimal.of(-4, 2), Decimal.of(0, 2), Decimal.of(0, 2)));
+        assertEquals(Decimal.of(0, 2), avg(2));
+    }
+
+    @Test
+    void decimalSumWidensToTheWidestValue() {
+        Accumulators.DecimalSum sum = new Accumulators.DecimalSum(2);
+        sum.accumulate(Decimal.of(-150, 2));
+        sum.accumulate(Decimal.of(5, 3));
+        sum.accumulate(7);
+        sum.accumulate(null);
+        assertEquals("5.505", sum.result().toString());
+    }
+
+    @Test
+    void decimalSumOverflowsOnlyPastTheLongBoundary() {
+        Accumulators.DecimalSum sum = new Accumulators.DecimalSum(2);
+        sum.accumulate(Decimal.of(Long.MAX_VALUE - 1, 2));
+        sum.accumulate(Decimal.of(1, 2));
+        assertEquals(Decimal.of(Long.MAX_VALUE, 2), sum.result());
+        assertNull(sum.overflow());
+
+        sum.accumulate(Decimal.of(1, 2));
+        assertNull(sum.result());
+        assertEquals("long overflow", sum.overflow());
+        // later values can't bring an inexact total back
+        sum.accumulate(Decimal.of(-5, 2));
+        assertNull(sum.result());
+    }
+
+    @Test
+    void countDistinctCountsDecimalsByValue() {
+        Accumulators.CountDistinct count = new Accumulators.CountDistinct();
+        count.accumulate(Decimal.of(15, 1));
+        count.accumulate(Decimal.of(150, 2));
+        count.accumulate(Decimal.of(-15, 1));
+        assertEquals(2L, count.result());
+    }
+
+    @Test
+    void countDistinctPartialsMergedFromStateEqualOnePass() throws IOException {
+        // overlapping partials of mixed types, like shards that saw the same players
+        List<Object> values = List.of("alice", "bob", 3L, Decimal.of(150, 2), "carol", Decimal.of(15, 1), "alice", 4L, "dave", 3L);
+        Accumulator single = mergedFromState(Accumulators.CountDistinct::new, values, 1);
+        Accumulator merged = mergedFromState(Accumulators.CountDistinct::new, values, 3);
+        assertEquals(7L, single.result());
+        assertEquals(single.result(), merged.result());
+        assertEquals(((Accumulators.CountDistinct) single).values, ((Accumulators.CountDistinct) merged).values);
+    }
+
+    @Test
+    void approxCountDistinctPartialsMergedFromStateEqualOnePass() throws IOException {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            values.add("player-" + (i % 30_000));
+        }
+        Supplier<Accumulator> approx = () -> new Accumulators.ApproxCountDistinct(HyperLogLog.DEFAULT_PRECISION);
+        Accumulator single = mergedFromState(approx, values, 1);
+        Accumulator merged = mergedFromState(approx, values, 4);
+        // register-wise maximum, so the merge is exact and not just within the error bound
+        assertEquals(single.result(), merged.result());
+        long estimate = (long) merged.result();
+        assertTrue(Math.abs(estimate - 30_000) <= 30_000 * 0.05, "estimate " + estimate);
+    }
+
+    @Test
+    void percentilePartialsMergedFromStateMatchOnePass() throws IOException {
+        Random random = new Random(3);
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            values.add(random.nextDouble() * 1000);
+        }
+        Supplier<Accumulator> median = () -> new Accumulators.Percentile(50, TDigest.DEFAULT_COMPRESSION);
+        double single = (double) mergedFromState(median, values, 1).result();
+        double merged = (double) mergedFromState(median, values, 4).result();
+        // the merge re-clusters centroids, so the medians agree within the digest's 1% rank error at q = 0.5
+        assertEquals(500, single, 10);
+        assertEquals(single, merged, 10);
+        assertNull(mergedFromState(median, List.of(), 2).result());
+    }
+
+    // accumulates the values into `parts` partials, writes each one's state, reads it into a fresh accumulator
+    // and merges those, the way the shard coordinator combines its workers
+    private static Accumulator mergedFromState(Supplier<Accumulator> factory, List<Object> values, int parts) throws IOException {
+        Accumulator total = factory.get();
+        for (int part = 0; part < parts; part++) {
+            Accumulator partial = factory.get();
+            for (int i = part; i < values.size(); i += parts) {
+                partial.accumulate(values.get(i));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            partial.writeState(new DataOutputStream(bytes));
+            Accumulator read = factory.get();
+            read.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            total.merge(read);
+        }
+        return total;
+    }
+
+    private static Object avg(int scale, Decimal... values) {
+        Accumulators.DecimalAvg avg = new Accumulators.DecimalAvg(scale);
+        for (Decimal value : values) {
+            avg.accumulate(value);
+        }
+        return avg.result();
+    }
+}
@@ -0,0 +1,136 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import com.playtech.report.column.Decimal;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GroupKeyTableTest {
+
+    @Test
+    void equalSlotValuesOfDifferentTypesAreDifferentGroups() {
+        GroupKeyTable table = new GroupKeyTable(List.of("Key"));
+        Object[] keys = {5, 5L, 5.0, "5", LocalDate.ofEpochDay(5), null, 0, 0L};
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, table.groupOf(new Object[]{keys[i]}));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, table.groupOf(row("Key", keys[i])));
+        }
+        assertEquals(keys.length, table.size());
+    }
+
+    @Test
+    void decimalsOfDifferentScalesGroupByValue() {
+        // MathOperation results in one column can have different scales
+        GroupKeyTable table = new GroupKeyTable(List.of("Amount", "Game"));
+        assertEquals(0, table.groupOf(new Object[]{Decimal.of(15, 1), "Poker"}));
+        assertEquals(0, table.groupOf(new Object[]{Decimal.of(150, 2), "Poker"}));
+        assertEquals(1, table.groupOf(new Object[]{Decimal.of(151, 2), "Poker"}));
+        Map<String, Object> row = row("Amount", Decimal.of(1500, 3));
+        row.put("Game", "Poker");
+        assertEquals(0, table.groupOf(row));
+        assertEquals(2, table.size());
+        // the group keeps the first value seen
+        assertEquals("1.5", table.keyValues(0)[0].toString());
+    }
+
+    @Test
+    void nullKeyPartsGroupTogetherPerPosition() {
+        GroupKeyTable table = new GroupKeyTable(List.of("Game", "Location"));
+        assertEquals(0, table.groupOf(new Object[]{"Poker", null}));
+        assertEquals(1, table.groupOf(new Object[]{null, "Poker"}));
+        assertEquals(2, table.groupOf(new Object[]{null, null}));
+        assertEquals(0, table.groupOf(row("Game", "Poker")));
+        assertEquals(2, table.groupOf(new HashMap<>()));
+        assertArrayEquals(new Object[]{null, "Poker"}, table.keyValues(1));
+    }
+
+    @Test
+    void collidingKeysKeepTheirOwnGroups() {
+        // 32 keys in the initial 64 slots, probe sequences are bound to run into each other
+        GroupKeyTable table = new GroupKeyTable(List.of("A", "B"));
+        for (int i = 0; i < 32; i++) {
+            assertEquals(i, table.groupOf(new Object[]{i, "x" + (31 - i)}));
+        }
+        for (int i = 31; i >= 0; i--) {
+            assertEquals(i, table.groupOf(new Object[]{i, "x" + (31 - i)}));
+        }
+        assertEquals(32, table.groupOf(new Object[]{0, "x0"}));
+        assertEquals(33, table.size());
+    }
+
+    @Test
+    void resizingKeepsIdsAndFirstSeenOrder() {
+        GroupKeyTable table = new GroupKeyTable(List.of("Id", "Day", "Name"));
+        int keys = 100_000;
+        for (int i = 0; i < keys; i++) {
+            assertEquals(i, table.groupOf(key(i)));
+        }
+        assertEquals(keys, table.size());
+        for (int i = keys - 1; i >= 0; i--) {
+            assertEquals(i, table.groupOf(key(i)));
+            assertArrayEquals(key(i), table.keyValues(i));
+        }
+        assertEquals(keys, table.size());
+    }
+
+    @Test
+    void chunkedMergeGivesTheGroupOrderOfASinglePass() {
+        Random random = new Random(42);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("Game", random.nextInt(10) == 0 ? null : "game-" + random.nextInt(300));
+            row.put("Day", LocalDate.ofEpochDay(random.nextInt(40)));
+            rows.add(row);
+        }
+
+        GroupKeyTable single = new GroupKeyTable(List.of("Game", "Day"));
+        for (Map<String, Object> row : rows) {
+            single.groupOf(row);
+        }
+
+        // per chunk tables merged in chunk order, like the Aggregator's parallel path
+        int chunks = 7;
+        int chunkSize = (rows.size() + chunks - 1) / chunks;
+        GroupKeyTable merged = null;
+        for (int c = 0; c < chunks; c++) {
+            GroupKeyTable chunk = new GroupKeyTable(List.of("Game", "Day"));
+            for (Map<String, Object> row : rows.subList(c * chunkSize, Math.min(rows.size(), (c + 1) * chunkSize))) {
+                chunk.groupOf(row);
+            }
+            if (merged == null) {
+                merged = chunk;
+                continue;
+            }
+            for (int group = 0; group < chunk.size(); group++) {
+                merged.groupOf(chunk.keyValues(group));
+            }
+        }
+
+        assertEquals(single.size(), merged.size());
+        for (int group = 0; group < single.size(); group++) {
+            assertEquals(Arrays.asList(single.keyValues(group)), Arrays.asList(merged.keyValues(group)));
+        }
+    }
+
+    private static Object[] key(int i) {
+        return new Object[]{i % 1000, LocalDate.ofEpochDay(i / 1000), i % 7 == 0 ? null : "n" + i};
+    }
+
+    private static Map<String, Object> row(String column, Object value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put(column, value);
+        return row;
+    }
+}
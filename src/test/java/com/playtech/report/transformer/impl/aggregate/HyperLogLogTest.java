@@ -0,0 +1,95 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesStayWithinThreeStandardErrors() {
+        // standard error is 1.04 / sqrt(2^precision): 1.6% at 12, 0.8% at 14
+        for (int precision : new int[]{12, 14}) {
+            double bound = 3 * 1.04 / Math.sqrt(1 << precision);
+            for (int distinct : new int[]{1_000, 10_000, 100_000, 1_000_000}) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                for (int i = 0; i < distinct; i++) {
+                    sketch.add("player-" + i);
+                }
+                double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+                assertTrue(error <= bound, "precision " + precision + ", " + distinct + " distinct: error " + error + " over " + bound);
+            }
+        }
+    }
+
+    @Test
+    void smallCountsAreNearlyExactAndDuplicatesDontCount() {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        assertEquals(0, sketch.estimate());
+        for (int repeat = 0; repeat < 5; repeat++) {
+            for (long i = 0; i < 100; i++) {
+                sketch.add(i);
+            }
+        }
+        // linear counting range, a collision or two at most
+        assertTrue(Math.abs(sketch.estimate() - 100) <= 2, "estimate " + sketch.estimate());
+    }
+
+    @Test
+    void integralNumbersHashByValue() {
+        assertEquals(HyperLogLog.hash64(5), HyperLogLog.hash64(5L));
+        HyperLogLog ints = new HyperLogLog(10);
+        HyperLogLog longs = new HyperLogLog(10);
+        for (int i = 0; i < 1000; i++) {
+            ints.add(i);
+            longs.add((long) i);
+        }
+        assertArrayEquals(ints.getRegisters(), longs.getRegisters());
+    }
+
+    @Test
+    void mergedSerializedPartialsEqualOnePass() throws IOException {
+        HyperLogLog single = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        HyperLogLog merged = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        // overlapping partials, like shards that saw the same players
+        for (int part = 0; part < 4; part++) {
+            HyperLogLog partial = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+            for (int i = part * 20_000; i < part * 20_000 + 30_000; i++) {
+                partial.add("player-" + i);
+                single.add("player-" + i);
+            }
+            merged.merge(roundTrip(partial));
+        }
+        assertArrayEquals(single.getRegisters(), merged.getRegisters());
+        assertEquals(single.estimate(), merged.estimate());
+    }
+
+    @Test
+    void precisionsMustMatch() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MIN_PRECISION - 1));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(14)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new HyperLogLog(14).writeTo(new DataOutputStream(bytes));
+        HyperLogLog other = new HyperLogLog(12);
+        assertThrows(IOException.class, () -> other.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    private static HyperLogLog roundTrip(HyperLogLog sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        HyperLogLog read = new HyperLogLog(sketch.getPrecision());
+        read.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return read;
+    }
+}
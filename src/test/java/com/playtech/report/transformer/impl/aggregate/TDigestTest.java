@@ -0,0 +1,128 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TDigestTest {
+    private static final int N = 200_000;
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    void quantilesStayWithinTheRankErrorBound() {
+        Random random = new Random(42);
+        double[] uniform = new double[N];
+        double[] skewed = new double[N];
+        double[] ascending = new double[N];
+        for (int i = 0; i < N; i++) {
+            uniform[i] = random.nextDouble() * 1000;
+            // exponential, most of the mass near zero and a long tail like bet amounts
+            skewed[i] = -Math.log(1 - random.nextDouble()) * 50;
+            ascending[i] = i;
+        }
+        for (double[] values : new double[][]{uniform, skewed, ascending}) {
+            TDigest digest = new TDigest(TDigest.DEFAULT_COMPRESSION);
+            for (double value : values) {
+                digest.add(value);
+            }
+            assertRankErrors(values, digest);
+        }
+    }
+
+    @Test
+    void mergedSerializedPartialsMatchOnePass() throws IOException {
+        Random random = new Random(7);
+        double[] values = new double[N];
+        TDigest single = new TDigest(TDigest.DEFAULT_COMPRESSION);
+        TDigest merged = new TDigest(TDigest.DEFAULT_COMPRESSION);
+        // partials cover disjoint value ranges, the worst case for re-clustering
+        int parts = 4;
+        for (int part = 0; part < parts; part++) {
+            TDigest partial = new TDigest(TDigest.DEFAULT_COMPRESSION);
+            for (int i = part * (N / parts); i < (part + 1) * (N / parts); i++) {
+                values[i] = part * 100 + random.nextDouble() * 100;
+                partial.add(values[i]);
+                single.add(values[i]);
+            }
+            merged.merge(roundTrip(partial));
+        }
+        // merging re-clusters centroids, so the two digests agree within the accuracy bound, not bit for bit
+        assertEquals(single.size(), merged.size());
+        assertEquals(single.quantile(0), merged.quantile(0));
+        assertEquals(single.quantile(1), merged.quantile(1));
+        double maxCentroids = TDigest.DEFAULT_COMPRESSION * Math.log(N);
+        assertTrue(single.centroidCount() <= maxCentroids, "centroids " + single.centroidCount());
+        assertTrue(merged.centroidCount() <= maxCentroids, "centroids " + merged.centroidCount());
+        assertRankErrors(values, single);
+        assertRankErrors(values, merged);
+    }
+
+    @Test
+    void extremesAreExactAndEmptyIsNaN() {
+        TDigest digest = new TDigest(TDigest.DEFAULT_COMPRESSION);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+        digest.add(Double.NaN);
+        assertEquals(0, digest.size());
+
+        Random random = new Random(1);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextGaussian() * 10;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            digest.add(value);
+        }
+        assertEquals(min, digest.quantile(0));
+        assertEquals(max, digest.quantile(1));
+        assertEquals(10_000, digest.size());
+        assertThrows(IllegalArgumentException.class, () -> digest.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new TDigest(5));
+    }
+
+    @Test
+    void singleValueIsItsOwnQuantile() {
+        TDigest digest = new TDigest(TDigest.DEFAULT_COMPRESSION);
+        digest.add(3.5, 4);
+        assertEquals(3.5, digest.quantile(0.1));
+        assertEquals(3.5, digest.quantile(0.9));
+        assertEquals(4, digest.size());
+    }
+
+    // a centroid at q holds at most 4 * q * (1 - q) / compression of the points, 1% at the median for
+    // compression 100, so the rank error there stays under that and shrinks towards the tails
+    private static void assertRankErrors(double[] values, TDigest digest) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double estimate = digest.quantile(q);
+            double rank = rankOf(sorted, estimate);
+            double bound = Math.max(0.0005, 4 * q * (1 - q) / TDigest.DEFAULT_COMPRESSION);
+            assertTrue(Math.abs(rank - q) <= bound, "q " + q + ": estimate " + estimate + " has rank " + rank + ", bound " + bound);
+        }
+    }
+
+    private static double rankOf(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        int below = index >= 0 ? index : -index - 1;
+        return below / (double) sorted.length;
+    }
+
+    private static TDigest roundTrip(TDigest digest) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        digest.writeTo(new DataOutputStream(bytes));
+        TDigest read = new TDigest(TDigest.DEFAULT_COMPRESSION);
+        read.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return read;
+    }
+}
@@ -0,0 +1,82 @@
+package com.playtech.report.transformer.impl.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TumblingWindowTest {
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final ZoneId TALLINN = ZoneId.of("Europe/Tallinn");
+
+    @Test
+    void parsesShortAndIsoForms() {
+        assertEquals(Duration.ofMillis(250), TumblingWindow.parse("250ms").getSize());
+        assertEquals(Duration.ofSeconds(30), TumblingWindow.parse("30s").getSize());
+        assertEquals(Duration.ofMinutes(15), TumblingWindow.parse(" 15m ").getSize());
+        assertEquals(Duration.ofHours(1), TumblingWindow.parse("1h").getSize());
+        assertEquals(Duration.ofDays(1), TumblingWindow.parse("1d").getSize());
+        assertEquals(Duration.ofMinutes(30), TumblingWindow.parse("PT30M").getSize());
+        assertThrows(IllegalArgumentException.class, () -> TumblingWindow.parse("1w"));
+        assertThrows(IllegalArgumentException.class, () -> TumblingWindow.parse("0m"));
+        assertThrows(IllegalArgumentException.class, () -> TumblingWindow.parse("-PT1H"));
+    }
+
+    @Test
+    void sizeIsWholeMillisecondsOfAtLeastOne() {
+        assertEquals(Duration.ofMillis(1), new TumblingWindow(Duration.ofMillis(1)).getSize());
+        assertThrows(IllegalArgumentException.class, () -> new TumblingWindow(Duration.ofNanos(999_999)));
+        assertThrows(IllegalArgumentException.class, () -> new TumblingWindow(Duration.ZERO));
+        // buckets are epoch millis, 1.5 ms would silently become 1 ms
+        assertThrows(IllegalArgumentException.class, () -> new TumblingWindow(Duration.ofNanos(1_500_000)));
+        assertThrows(IllegalArgumentException.class, () -> TumblingWindow.parse("PT0.0001S"));
+    }
+
+    @Test
+    void bucketStartsAtTheBoundaryItself() {
+        TumblingWindow hour = TumblingWindow.parse("1h");
+        ZonedDateTime boundary = ZonedDateTime.of(2024, 3, 1, 11, 0, 0, 0, UTC);
+        assertEquals(boundary, hour.start(boundary));
+        assertEquals(boundary, hour.start(boundary.plusMinutes(59).plusSeconds(59).plusNanos(999_999_999)));
+        assertEquals(boundary.minusHours(1), hour.start(boundary.minusNanos(1_000_000)));
+        // below millisecond resolution the value still falls into the bucket it is in
+        assertEquals(boundary.minusHours(1), hour.start(boundary.minusNanos(1)));
+    }
+
+    @Test
+    void oneMillisecondBucketsDropOnlyTheSubMillisecondPart() {
+        TumblingWindow millis = new TumblingWindow(Duration.ofMillis(1));
+        ZonedDateTime value = ZonedDateTime.of(2024, 3, 1, 11, 0, 0, 123_456_789, UTC);
+        assertEquals(value.withNano(123_000_000), millis.start(value));
+    }
+
+    @Test
+    void bucketsBeforeTheEpochRoundDown() {
+        TumblingWindow day = TumblingWindow.parse("1d");
+        ZonedDateTime value = ZonedDateTime.of(1969, 12, 31, 23, 30, 0, 0, UTC);
+        assertEquals(ZonedDateTime.of(1969, 12, 31, 0, 0, 0, 0, UTC), day.start(value));
+    }
+
+    @Test
+    void daysStartAtMidnightUtcAndKeepTheZone() {
+        TumblingWindow day = TumblingWindow.parse("1d");
+        // 01:30 in Tallinn (UTC+2) is still the previous day in UTC
+        ZonedDateTime value = ZonedDateTime.of(2024, 3, 1, 1, 30, 0, 0, TALLINN);
+        ZonedDateTime start = (ZonedDateTime) day.start(value);
+        assertEquals(TALLINN, start.getZone());
+        assertEquals(ZonedDateTime.of(2024, 2, 29, 0, 0, 0, 0, UTC).toInstant(), start.toInstant());
+    }
+
+    @Test
+    void otherValuesPassThrough() {
+        TumblingWindow hour = TumblingWindow.parse("1h");
+        LocalDate date = LocalDate.of(2024, 3, 1);
+        assertEquals(date, hour.start(date));
+        assertEquals(null, hour.start(null));
+    }
+}
@@ -0,0 +1,127 @@
+package com.playtech.report.transformer.impl.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ * The SIMD kernels against the scalar ones around the vector width, where the vector loop and the scalar
+ * tail hand over. Tests run with --add-modules jdk.incubator.vector (see the surefire argLine).
+ */
+class ArithmeticKernelsTest {
+    private static final ScalarKernels SCALAR = new ScalarKernels();
+    private static final VectorApiKernels SIMD = new VectorApiKernels();
+
+    @Test
+    void doubleElementWiseKernelsAreIdentical() {
+        Random random = new Random(5);
+        for (int n : lengths(DoubleVector.SPECIES_PREFERRED.length())) {
+            double[] a = random.doubles(n, -1e6, 1e6).toArray();
+            double[] b = random.doubles(n, -1e6, 1e6).toArray();
+            if (n > 0) {
+                b[n - 1] = 0; // division by zero in the tail
+            }
+            // lane-wise IEEE operations, so bit for bit the same
+            assertArrayEquals(apply(n, out -> SCALAR.add(a, b, out, n)), apply(n, out -> SIMD.add(a, b, out, n)), "add " + n);
+            assertArrayEquals(apply(n, out -> SCALAR.subtract(a, b, out, n)), apply(n, out -> SIMD.subtract(a, b, out, n)), "subtract " + n);
+            assertArrayEquals(apply(n, out -> SCALAR.multiply(a, b, out, n)), apply(n, out -> SIMD.multiply(a, b, out, n)), "multiply " + n);
+            assertArrayEquals(apply(n, out -> SCALAR.divide(a, b, out, n)), apply(n, out -> SIMD.divide(a, b, out, n)), "divide " + n);
+        }
+    }
+
+    @Test
+    void doubleSumDiffersOnlyByReassociation() {
+        Random random = new Random(6);
+        for (int n : lengths(DoubleVector.SPECIES_PREFERRED.length())) {
+            // mixed magnitudes and signs, so the summation order shows
+            double[] values = random.doubles(n + 2, -1, 1).map(v -> v * Math.pow(10, random.nextInt(12))).toArray();
+            double sumOfAbs = Arrays.stream(values, 1, n + 1).map(Math::abs).sum();
+            // either order is within (n - 1) * u * sum|x| of the exact sum (u = 2^-53), so the two are within
+            // n * ulp(1.0) * sum|x| of each other
+            double tolerance = n * Math.ulp(1.0) * sumOfAbs;
+            assertEquals(SCALAR.sum(values, 1, n + 1), SIMD.sum(values, 1, n + 1), tolerance, "sum " + n);
+        }
+    }
+
+    @Test
+    void longKernelsAreIdenticalIncludingOverflow() {
+        Random random = new Random(7);
+        for (int n : lengths(LongVector.SPECIES_PREFERRED.length())) {
+            long[] a = random.longs(n, -1_000_000, 1_000_000).toArray();
+            long[] b = random.longs(n, -1_000_000, 1_000_000).toArray();
+            assertLongKernelsMatch(a, b, n, false);
+            for (int overflowAt = 0; overflowAt < n; overflowAt++) {
+                // once in the vector part, once in the tail
+                long[] big = a.clone();
+                big[overflowAt] = Long.MAX_VALUE;
+                long[] other = b.clone();
+                other[overflowAt] = 1;
+                assertLongKernelsMatch(big, other, n, true);
+            }
+        }
+    }
+
+    @Test
+    void longSumIsExactLikeTheScalarOne() {
+        int width = LongVector.SPECIES_PREFERRED.length();
+        for (int n : lengths(width)) {
+            long[] values = alternatingLongs(n);
+            assertEquals(SCALAR.sum(values, 0, n), SIMD.sum(values, 0, n), "sum " + n);
+            if (n > width) {
+                // lane 0 overflows with the +1, the row order doesn't because of the -10 in lane 1
+                long[] lanes = new long[n];
+                lanes[0] = Long.MAX_VALUE;
+                lanes[1] = -10;
+                lanes[width] = 1;
+                assertEquals(Long.MAX_VALUE - 9, SIMD.sum(lanes, 0, n), "sum with a lane overflow " + n);
+            }
+            if (n > 1) {
+                long[] overflowing = new long[n];
+                overflowing[0] = Long.MAX_VALUE;
+                overflowing[n - 1] = 5;
+                assertThrows(ArithmeticException.class, () -> SIMD.sum(overflowing, 0, n));
+            }
+        }
+    }
+
+    // 0, 1, width - 1, width, width + 1 and two vectors plus a tail
+    private static int[] lengths(int width) {
+        return IntStream.of(0, 1, width - 1, width, width + 1, 2 * width + 3).distinct().toArray();
+    }
+
+    private static long[] alternatingLongs(int n) {
+        return IntStream.range(0, n).mapToLong(i -> (i % 2 == 0 ? 1 : -1) * (long) i * 1_000_003).toArray();
+    }
+
+    private static void assertLongKernelsMatch(long[] a, long[] b, int n, boolean overflows) {
+        long[] scalarOut = new long[n];
+        long[] simdOut = new long[n];
+        assertEquals(overflows, SCALAR.add(a, b, scalarOut, n));
+        assertEquals(overflows, SIMD.add(a, b, simdOut, n), "add overflow " + n);
+        assertArrayEquals(scalarOut, simdOut, "add " + n);
+
+        long[] negated = Arrays.stream(b).map(v -> -v).toArray();
+        assertEquals(overflows, SCALAR.subtract(a, negated, scalarOut, n));
+        assertEquals(overflows, SIMD.subtract(a, negated, simdOut, n), "subtract overflow " + n);
+        assertArrayEquals(scalarOut, simdOut, "subtract " + n);
+
+        SCALAR.multiply(a, b, scalarOut, n);
+        SIMD.multiply(a, b, simdOut, n);
+        assertArrayEquals(scalarOut, simdOut, "multiply " + n);
+    }
+
+    private static double[] apply(int n, Consumer<double[]> kernel) {
+        double[] out = new double[n];
+        kernel.accept(out);
+        return out;
+    }
+}
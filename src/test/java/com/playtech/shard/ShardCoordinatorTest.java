@@ -0,0 +1,132 @@
+package com.playtech.shard;
+
+import com.playtech.report.ReportPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCoordinatorTest {
+    private static final String INPUTS = """
+                <inputs>
+                    <input><name>Game</name><type>STRING</type></input>
+                    <input><name>Day</name><type>DATE</type></input>
+                    <input><name>Amount</name><type>DECIMAL</type><scale>2</scale></input>
+                </inputs>
+            """;
+    private static final String AGGREGATE = """
+            <report>
+                <reportName>Totals</reportName>
+            """ + INPUTS + """
+                <outputs>
+                    <output><name>Game</name><type>STRING</type></output>
+                    <output><name>AmountSum</name><type>DECIMAL</type><scale>2</scale></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Aggregator</name>
+                        <parameters>
+                            <groupBy>Game</groupBy>
+                            <aggregateBys>
+                                <aggregateBy><input>Amount</input><method>SUM</method><output>AmountSum</output></aggregateBy>
+                            </aggregateBys>
+                        </parameters>
+                    </transformer>
+                </transformers>
+            </report>
+            """;
+    // days repeat, so the merge of the sorted runs has to keep equal rows in input order
+    private static final String ORDER = """
+            <report>
+                <reportName>Sorted</reportName>
+            """ + INPUTS + """
+                <outputs>
+                    <output><name>Day</name><type>DATE</type></output>
+                    <output><name>Game</name><type>STRING</type></output>
+                    <output><name>Amount</name><type>DECIMAL</type><scale>2</scale></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Ordering</name>
+                        <parameters>
+                            <input>Day</input>
+                            <order>DESC</order>
+                        </parameters>
+                    </transformer>
+                </transformers>
+            </report>
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shardedAggregationMatchesSingleProcess() throws Exception {
+        assertShardedMatchesSingleProcess("Totals", AGGREGATE);
+    }
+
+    @Test
+    void shardedOrderingMatchesSingleProcess() throws Exception {
+        assertShardedMatchesSingleProcess("Sorted", ORDER);
+    }
+
+    private void assertShardedMatchesSingleProcess(String name, String report) throws Exception {
+        Path csv = writeCsv(tempDir.resolve("input.csv"));
+        Path xml = tempDir.resolve(name + ".xml");
+        Files.writeString(xml, report, StandardCharsets.UTF_8);
+
+        Path single = run(csv, xml, tempDir.resolve("single"), Map.of());
+        Path sharded = run(csv, xml, tempDir.resolve("sharded"), Map.of(ShardCoordinator.OPTION_SHARDS, "3", ShardCoordinator.OPTION_SHARD_HEAP_MB, "64"));
+
+        assertTrue(Files.readString(sharded.resolve(name + ".metrics.json")).contains(":3 shards"));
+        assertEquals(Files.readString(single.resolve(name + ".jsonl")), Files.readString(sharded.resolve(name + ".jsonl")));
+        String rejects = Files.readString(single.resolve(name + ".rejects.tsv"));
+        // every bad line is rejected once, with its line number in the whole CSV
+        assertTrue(rejects.contains("\n7\t"));
+        assertTrue(rejects.contains("\n1000\t"));
+        assertEquals(rejects, Files.readString(sharded.resolve(name + ".rejects.tsv")));
+    }
+
+    private static Path run(Path csv, Path xml, Path outputDir, Map<String, String> options) throws Exception {
+        Files.createDirectories(outputDir);
+        ReportPipeline pipeline = new ReportPipeline(csv.toString(), xml.toString(), outputDir, options, false);
+        try {
+            pipeline.prepare();
+            pipeline.read();
+            pipeline.transform();
+            pipeline.write();
+        } finally {
+            pipeline.close();
+        }
+        return outputDir;
+    }
+
+    // lines of varying length, so the byte ranges of the shards end in the middle of lines
+    private static Path writeCsv(Path csv) throws Exception {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder("Game,Day,Amount\n");
+        for (int line = 2; line <= 1000; line++) {
+            String game = "Game" + random.nextInt(7) + "x".repeat(random.nextInt(20));
+            String day = "2025-01-" + String.format("%02d", 1 + random.nextInt(5));
+            String amount = (random.nextInt(20000) - 10000) / 100.0 + "";
+            if (line % 97 == 7 || line == 1000) {
+                text.append(game).append(',').append(day).append('\n');
+            } else if (line % 89 == 3) {
+                text.append(game).append(',').append(day).append(",n/a\n");
+            } else {
+                text.append(game).append(',').append(day).append(',').append(amount).append('\n');
+            }
+        }
+        Files.writeString(csv, text, StandardCharsets.UTF_8);
+        return csv;
+    }
+}
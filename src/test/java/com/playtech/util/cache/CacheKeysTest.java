@@ -0,0 +1,141 @@
+package com.playtech.util.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CacheKeysTest {
+    private static final String HEAD = """
+            <report>
+                <reportName>Keys</reportName>
+                <inputs>
+                    <input><name>PlayerID</name><type>INTEGER</type></input>
+                    <input><name>Amount</name><type>DOUBLE</type></input>
+                </inputs>
+                <outputs>
+                    <output><name>PlayerID</name><type>INTEGER</type></output>
+                    <output><name>Country</name><type>STRING</type></output>
+                    <output><name>AmountSum</name><type>DOUBLE</type></output>
+                    <output><name>Label</name><type>STRING</type></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers>
+                    <transformer>
+                        <name>Lookup</name>
+                        <parameters>
+                            <input>PlayerID</input>
+                            <dimension>%s</dimension>
+                            <outputs><output>Country</output></outputs>
+                        </parameters>
+                    </transformer>
+                    <transformer>
+                        <name>Aggregator</name>
+                        <parameters>
+                            <groupBy>Country</groupBy>
+                            <aggregateBys>
+                                <aggregateBy><input>Amount</input><method>SUM</method><output>AmountSum</output></aggregateBy>
+                            </aggregateBys>
+                        </parameters>
+                    </transformer>
+            """;
+    private static final String TAIL = """
+                </transformers>
+            </report>
+            """;
+    private static final String FORMATTER = """
+                    <transformer>
+                        <name>StringFormatter</name>
+                        <parameters>
+                            <inputs><input>AmountSum</input></inputs>
+                            <format>%s</format>
+                            <output>Label</output>
+                        </parameters>
+                    </transformer>
+            """;
+    private static final String ORDERING = """
+                    <transformer>
+                        <name>Ordering</name>
+                        <parameters>
+                            <input>Country</input>
+                            <order>%s</order>
+                        </parameters>
+                    </transformer>
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private ReportCache cache;
+    private Path csv;
+    private Path dimension;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new ReportCache(tempDir.resolve("cache"), 1 << 20);
+        csv = Files.writeString(tempDir.resolve("data.csv"), "PlayerID,Amount\n1,2.5\n2,3.5\n");
+        dimension = Files.writeString(tempDir.resolve("players.csv"), "PlayerID,Country\n1,EE\n2,LV\n");
+    }
+
+    @Test
+    void reportsDifferingOnlyInTheirTailShareThePrefixKeys() throws Exception {
+        CacheKeys euro = keys("euro.xml", HEAD.formatted(dimension) + FORMATTER.formatted("%.2f EUR") + ORDERING.formatted("ASC") + TAIL);
+        CacheKeys dollar = keys("dollar.xml", HEAD.formatted(dimension) + FORMATTER.formatted("%.2f USD") + ORDERING.formatted("DESC") + TAIL);
+
+        assertEquals(euro.getPrefixKey(0), dollar.getPrefixKey(0));
+        assertEquals(euro.getPrefixKey(1), dollar.getPrefixKey(1));
+        assertNotEquals(euro.getPrefixKey(2), dollar.getPrefixKey(2));
+        assertNotEquals(euro.getFullKey(), dollar.getFullKey());
+    }
+
+    @Test
+    void formattingAndCommentsDontChangeKeys() throws Exception {
+        String xml = HEAD.formatted(dimension) + ORDERING.formatted("ASC") + TAIL;
+        CacheKeys plain = keys("plain.xml", xml);
+        CacheKeys reformatted = keys("reformatted.xml", xml.replace("\n", "\n\n  ").replace("<transformers>", "<transformers><!-- tail -->"));
+
+        assertEquals(plain.getFullKey(), reformatted.getFullKey());
+        assertEquals(plain.getPrefixKey(2), reformatted.getPrefixKey(2));
+    }
+
+    @Test
+    void changedDimensionChangesTheKeysFromItsLookup() throws Exception {
+        String xml = HEAD.formatted(dimension) + ORDERING.formatted("ASC") + TAIL;
+        CacheKeys before = keys("report.xml", xml);
+        Files.writeString(dimension, "PlayerID,Country\n1,EE\n2,LT\n");
+        Files.setLastModifiedTime(dimension, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        CacheKeys after = keys("report.xml", xml);
+
+        assertNotEquals(before.getFullKey(), after.getFullKey());
+        assertNotEquals(before.getPrefixKey(0), after.getPrefixKey(0));
+        assertNotEquals(before.getPrefixKey(1), after.getPrefixKey(1));
+    }
+
+    @Test
+    void changedCsvOrOptionsChangeEveryKey() throws Exception {
+        String xml = HEAD.formatted(dimension) + TAIL;
+        CacheKeys before = keys("report.xml", xml);
+        CacheKeys budget = keys("report.xml", xml, "max-rejects=5");
+        Files.writeString(csv, "PlayerID,Amount\n1,2.5\n2,4.5\n");
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        CacheKeys after = keys("report.xml", xml);
+
+        assertNotEquals(before.getFullKey(), after.getFullKey());
+        assertNotEquals(before.getPrefixKey(0), after.getPrefixKey(0));
+        assertNotEquals(before.getFullKey(), budget.getFullKey());
+        assertNotEquals(before.getPrefixKey(1), budget.getPrefixKey(1));
+    }
+
+    private CacheKeys keys(String name, String xml, String... options) throws Exception {
+        Path file = Files.writeString(tempDir.resolve(name), xml, StandardCharsets.UTF_8);
+        return new CacheKeys(cache, List.of(csv), file, options);
+    }
+}
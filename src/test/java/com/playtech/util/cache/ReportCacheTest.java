@@ -0,0 +1,87 @@
+package com.playtech.util.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void storedEntryIsFound() throws Exception {
+        ReportCache cache = new ReportCache(tempDir.resolve("cache"), 1 << 20);
+        assertNull(cache.lookup("key", ".rows"));
+        cache.store("key", ".rows", out -> out.write(new byte[]{1, 2, 3}));
+        Path entry = cache.lookup("key", ".rows");
+        assertNotNull(entry);
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(entry));
+        assertNull(cache.lookup("key", ".jsonl"));
+    }
+
+    @Test
+    void evictionDeletesLeastRecentlyUsedEntriesUntilTheCacheFits() throws Exception {
+        ReportCache cache = new ReportCache(tempDir.resolve("cache"), 250);
+        cache.store("a", ".rows", out -> out.write(new byte[100]));
+        cache.store("b", ".rows", out -> out.write(new byte[100]));
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(cache.lookup("a", ".rows"), FileTime.fromMillis(now - 3_000));
+        Files.setLastModifiedTime(cache.lookup("b", ".rows"), FileTime.fromMillis(now - 2_000));
+        // used again, a is now more recent than b
+        assertNotNull(cache.lookup("a", ".rows"));
+
+        cache.store("c", ".rows", out -> out.write(new byte[100]));
+
+        assertNotNull(cache.lookup("a", ".rows"));
+        assertNull(cache.lookup("b", ".rows"));
+        assertNotNull(cache.lookup("c", ".rows"));
+        assertTrue(directorySize(cache.getDirectory()) <= 250);
+    }
+
+    @Test
+    void entryLargerThanTheCacheIsNotKept() throws Exception {
+        ReportCache cache = new ReportCache(tempDir.resolve("cache"), 50);
+        cache.store("big", ".rows", out -> out.write(new byte[100]));
+        assertNull(cache.lookup("big", ".rows"));
+    }
+
+    @Test
+    void keysAreLengthPrefixed() {
+        assertNotEquals(ReportCache.key("ab", "c"), ReportCache.key("a", "bc"));
+        assertEquals(ReportCache.key("a", "bc"), ReportCache.key("a", "bc"));
+    }
+
+    @Test
+    void contentHashFollowsTheContent() throws Exception {
+        ReportCache cache = new ReportCache(tempDir.resolve("cache"), 1 << 20);
+        Path file = Files.writeString(tempDir.resolve("data.csv"), "a,b\n1,2\n");
+        String hash = cache.contentHash(file);
+        assertEquals(ReportCache.hashFile(file), hash);
+        assertEquals(hash, cache.contentHash(file));
+
+        Files.writeString(file, "a,b\n1,3\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        assertNotEquals(hash, cache.contentHash(file));
+    }
+
+    private static long directorySize(Path directory) throws Exception {
+        long size = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+}
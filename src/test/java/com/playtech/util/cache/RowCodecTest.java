@@ -0,0 +1,83 @@
+package com.playtech.util.cache;
+
+import com.playtech.report.column.Decimal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowCodecTest {
+    @Test
+    void everyValueTypeRoundTrips() throws Exception {
+        Map<String, Object> first = new HashMap<>();
+        first.put("int", 7);
+        first.put("long", 7L);
+        first.put("double", -0.5);
+        first.put("decimal", Decimal.of(150, 2));
+        first.put("wideDecimal", Decimal.of(-15, 3));
+        first.put("date", LocalDate.of(2025, 2, 28));
+        first.put("offset", ZonedDateTime.parse("2025-01-03T23:30:00-05:00"));
+        first.put("region", ZonedDateTime.parse("2025-07-01T12:00:00+03:00[Europe/Tallinn]"));
+        first.put("string", "tab\tnew\nline ünïcode");
+        first.put("long string", "x".repeat(70_000));
+        first.put("boolean", true);
+        first.put("null", null);
+        Map<String, Object> second = new HashMap<>();
+        second.put("int", 8);
+        second.put("other", "only here");
+        List<Map<String, Object>> rows = List.of(first, second, new HashMap<>());
+
+        List<Map<String, Object>> read = roundTrip(rows);
+
+        assertEquals(rows, read);
+        // equal values of another type or scale would not do
+        assertInstanceOf(Integer.class, read.get(0).get("int"));
+        assertInstanceOf(Long.class, read.get(0).get("long"));
+        assertEquals(2, ((Decimal) read.get(0).get("decimal")).getScale());
+        assertEquals(3, ((Decimal) read.get(0).get("wideDecimal")).getScale());
+        assertEquals(((ZonedDateTime) first.get("region")).getZone(), ((ZonedDateTime) read.get(0).get("region")).getZone());
+        assertEquals(((ZonedDateTime) first.get("offset")).getZone(), ((ZonedDateTime) read.get(0).get("offset")).getZone());
+    }
+
+    @Test
+    void readAppendsToTheTarget() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowCodec.write(List.of(Map.of("a", 1)), out);
+        List<Map<String, Object>> target = new ArrayList<>(List.of(Map.of("a", 0)));
+        RowCodec.read(new ByteArrayInputStream(out.toByteArray()), target);
+        assertEquals(List.of(Map.of("a", 0), Map.of("a", 1)), target);
+    }
+
+    @Test
+    void corruptInputIsAnIOException() throws Exception {
+        assertThrows(IOException.class, () -> RowCodec.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}), new ArrayList<>()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowCodec.write(List.of(Map.of("a", "value")), out);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 2);
+        assertThrows(IOException.class, () -> RowCodec.read(new ByteArrayInputStream(truncated), new ArrayList<>()));
+    }
+
+    @Test
+    void unsupportedValueIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RowCodec.write(List.of(Map.of("a", new Object())), new ByteArrayOutputStream()));
+    }
+
+    private static List<Map<String, Object>> roundTrip(List<Map<String, Object>> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowCodec.write(rows, out);
+        return RowCodec.read(new ByteArrayInputStream(out.toByteArray()), new ArrayList<>());
+    }
+}
@@ -0,0 +1,138 @@
+package com.playtech.util.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DimensionIndexTest {
+    private static final String CSV = """
+            playerId,country, currency
+            1,EE,EUR
+            2, LV ,EUR
+            x,broken,row
+            3,GB
+            40,GB,GBP
+            2,duplicate,USD
+            """;
+    private static final FileTime OLD = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void buildsTheIndexNextToTheCsv() throws IOException {
+        DimensionIndex index = DimensionIndex.open(write(tempDir.resolve("players.csv"), CSV), "playerId");
+        assertEquals(tempDir.resolve("players.csv.playerId.idx").toAbsolutePath(), index.getIndexFile());
+        assertEquals(List.of("playerId", "country", "currency"), index.getColumns());
+        // rows without an integer key or with a wrong column count are skipped, the duplicate key is a record
+        assertEquals(4, index.size());
+        assertEquals("LV", value(index, 2, "country"));
+        assertEquals("GBP", value(index, 40, "currency"));
+        // the first row of a duplicate key wins
+        assertEquals("EUR", value(index, 2, "currency"));
+        assertEquals(-1, index.columnIndex("missing"));
+    }
+
+    @Test
+    void missingKeyIsNotFound() throws IOException {
+        DimensionIndex index = DimensionIndex.open(write(tempDir.resolve("players.csv"), CSV), "playerId");
+        assertEquals(-1, index.find(3));
+        assertEquals(-1, index.find(0));
+        assertEquals(-1, index.find(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void reusesTheOpenIndexAndAnIndexFileFromAnEarlierRun() throws IOException {
+        Path csv = write(tempDir.resolve("players.csv"), CSV);
+        DimensionIndex index = DimensionIndex.open(csv, "playerId");
+        assertSame(index, DimensionIndex.open(csv, "playerId"));
+
+        // a copy is new to this JVM, like a later run, and must map the index file instead of rebuilding it
+        Path copy = copyWithIndex(csv, "copy");
+        Path indexFile = copy.resolveSibling("players.csv.playerId.idx");
+        Files.setLastModifiedTime(indexFile, OLD);
+        assertEquals("GB", value(DimensionIndex.open(copy, "playerId"), 40, "country"));
+        assertEquals(OLD, Files.getLastModifiedTime(indexFile));
+    }
+
+    @Test
+    void rebuildsWhenTheCsvChanges() throws IOException {
+        Path csv = write(tempDir.resolve("players.csv"), CSV);
+        assertEquals(-1, DimensionIndex.open(csv, "playerId").find(7));
+
+        write(csv, CSV + "7,FI,EUR\n");
+        DimensionIndex index = DimensionIndex.open(csv, "playerId");
+        assertEquals("FI", value(index, 7, "country"));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void rebuildsATruncatedIndexFile() throws IOException {
+        Path csv = write(tempDir.resolve("players.csv"), CSV);
+        long size = Files.size(DimensionIndex.open(csv, "playerId").getIndexFile());
+
+        // header, source size and mtime still match, the data sections are cut short
+        Path copy = copyWithIndex(csv, "truncated");
+        Path indexFile = copy.resolveSibling("players.csv.playerId.idx");
+        try (RandomAccessFile file = new RandomAccessFile(indexFile.toFile(), "rw")) {
+            file.setLength(size - 12);
+        }
+        assertEquals("EE", value(DimensionIndex.open(copy, "playerId"), 1, "country"));
+        assertEquals(size, Files.size(indexFile));
+    }
+
+    @Test
+    void rebuildsAnIndexFileWithACellOutsideTheStrings() throws IOException {
+        Path csv = write(tempDir.resolve("players.csv"), CSV);
+        DimensionIndex.open(csv, "playerId");
+
+        Path copy = copyWithIndex(csv, "overwritten");
+        Path indexFile = copy.resolveSibling("players.csv.playerId.idx");
+        try (RandomAccessFile file = new RandomAccessFile(indexFile.toFile(), "rw")) {
+            file.seek(48);
+            long recordsOffset = file.readLong();
+            // length of the first cell
+            file.seek(recordsOffset + 4);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+        DimensionIndex index = DimensionIndex.open(copy, "playerId");
+        assertEquals("1", value(index, 1, "playerId"));
+        assertNotEquals(OLD, Files.getLastModifiedTime(indexFile));
+    }
+
+    @Test
+    void keyColumnMustBeInTheHeader() throws IOException {
+        Path csv = write(tempDir.resolve("players.csv"), CSV);
+        assertThrows(IllegalArgumentException.class, () -> DimensionIndex.open(csv, "accountId"));
+    }
+
+    private static String value(DimensionIndex index, int key, String column) {
+        return index.value(index.find(key), index.columnIndex(column));
+    }
+
+    private static Path write(Path csv, String content) throws IOException {
+        return Files.writeString(csv, content);
+    }
+
+    // the CSV and its index in a new directory, with the CSV's mtime kept so the index still matches it
+    private Path copyWithIndex(Path csv, String directory) throws IOException {
+        Path target = Files.createDirectory(tempDir.resolve(directory));
+        Path copy = Files.copy(csv, target.resolve(csv.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+        Path indexFile = Files.copy(csv.resolveSibling("players.csv.playerId.idx"), target.resolve("players.csv.playerId.idx"));
+        Files.setLastModifiedTime(indexFile, OLD);
+        return copy;
+    }
+}
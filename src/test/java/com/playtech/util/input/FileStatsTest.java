@@ -0,0 +1,147 @@
+package com.playtech.util.input;
+
+import com.playtech.report.Report;
+import com.playtech.report.column.Column;
+import com.playtech.util.xml.XmlParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileStatsTest {
+    private static final String REPORT = """
+            <report>
+                <reportName>Stats</reportName>
+                <inputs>
+                    <input><name>Name</name><type>STRING</type></input>
+                    <input><name>Count</name><type>INTEGER</type></input>
+                    <input><name>Amount</name><type>DECIMAL</type><scale>2</scale></input>
+                    <input><name>Day</name><type>DATE</type></input>
+                    <input><name>At</name><type>DATETIME</type></input>
+                </inputs>
+                <outputs>
+                    <output><name>Name</name><type>STRING</type></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers/>
+            </report>
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private List<Column> columns;
+
+    @BeforeEach
+    void parseReport() throws Exception {
+        Path xml = tempDir.resolve("Stats.xml");
+        Files.writeString(xml, REPORT, StandardCharsets.UTF_8);
+        Report report = XmlParser.parseReport(xml.toString());
+        columns = FileStats.statsColumns(report.getInputs());
+    }
+
+    @Test
+    void sidecarRoundTrips() throws Exception {
+        Path csv = tempDir.resolve("data.csv");
+        Files.writeString(csv, "Name,Count,Amount,Day,At\n", StandardCharsets.UTF_8);
+        FileStats.Collector collector = new FileStats.Collector(columns);
+        collector.header(Map.of("Name", 0, "Count", 1, "Amount", 2, "Day", 3, "At", 4), 5);
+        collector.line(new String[]{"a", "5", "-1.50", "2025-01-02", "2025-01-02T23:30:00-05:00"});
+        collector.line(new String[]{"b", "-3", "12.25", "2025-01-01", "2025-01-01T00:00:00Z"});
+        collector.line(new String[]{"c", "", "oops", "2025-01-03", ""});
+        collector.line(new String[]{"too", "few"});
+        FileStats built = collector.build(Files.size(csv), Files.getLastModifiedTime(csv).toMillis());
+        assertTrue(built.write(csv));
+
+        FileStats read = FileStats.read(csv);
+        assertNotNull(read);
+        assertEquals(4, read.getRows());
+        assertTrue(read.covers(columns));
+        assertEquals(-3.0, column(read, "Count").getMin());
+        assertEquals(5.0, column(read, "Count").getMax());
+        assertEquals(-1.5, column(read, "Amount").getMin());
+        assertEquals(12.25, column(read, "Amount").getMax());
+        assertEquals(LocalDate.of(2025, 1, 1), column(read, "Day").getMin());
+        assertEquals(LocalDate.of(2025, 1, 3), column(read, "Day").getMax());
+        // the date in the value's own offset
+        assertEquals(LocalDate.of(2025, 1, 2), column(read, "At").getMax());
+        // writing the same statistics again gives the same bytes
+        String text = Files.readString(FileStats.sidecar(csv));
+        assertTrue(read.write(csv));
+        assertEquals(text, Files.readString(FileStats.sidecar(csv)));
+    }
+
+    @Test
+    void columnWithoutValuesHasNoMinMax() throws Exception {
+        Path csv = tempDir.resolve("data.csv");
+        Files.writeString(csv, "Name,Day\n", StandardCharsets.UTF_8);
+        FileStats.Collector collector = new FileStats.Collector(columns);
+        collector.header(Map.of("Name", 0, "Day", 1), 2);
+        collector.line(new String[]{"a", ""});
+        assertTrue(collector.build(Files.size(csv), Files.getLastModifiedTime(csv).toMillis()).write(csv));
+
+        FileStats read = FileStats.read(csv);
+        assertNull(column(read, "Day").getMin());
+        assertNull(column(read, "Day").getMax());
+        // a column missing from the header still counts as covered
+        assertNull(column(read, "Count").getMin());
+    }
+
+    @Test
+    void staleOrMissingSidecarIsIgnored() throws Exception {
+        Path csv = tempDir.resolve("data.csv");
+        Files.writeString(csv, "Name,Day\na,2025-01-01\n", StandardCharsets.UTF_8);
+        assertNull(FileStats.read(csv));
+
+        FileStats.Collector collector = new FileStats.Collector(columns);
+        collector.header(Map.of("Name", 0, "Day", 1), 2);
+        collector.line(new String[]{"a", "2025-01-01"});
+        assertTrue(collector.build(Files.size(csv), Files.getLastModifiedTime(csv).toMillis()).write(csv));
+        assertNotNull(FileStats.read(csv));
+
+        // same size, other modification time
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() - 60_000));
+        assertNull(FileStats.read(csv));
+
+        assertTrue(collector.build(Files.size(csv), Files.getLastModifiedTime(csv).toMillis()).write(csv));
+        Files.writeString(csv, "Name,Day\na,2025-01-01\nb,2025-01-02\n", StandardCharsets.UTF_8);
+        assertNull(FileStats.read(csv));
+    }
+
+    @Test
+    void olderColumnsAreKeptForTheSameFile() throws Exception {
+        Path csv = tempDir.resolve("data.csv");
+        Files.writeString(csv, "Day,Count\n2025-01-01,7\n", StandardCharsets.UTF_8);
+        long size = Files.size(csv);
+        long modified = Files.getLastModifiedTime(csv).toMillis();
+        FileStats.Collector days = new FileStats.Collector(columns.subList(2, 3));
+        days.header(Map.of("Day", 0), 2);
+        days.line(new String[]{"2025-01-01", "7"});
+        FileStats.Collector counts = new FileStats.Collector(columns.subList(0, 1));
+        counts.header(Map.of("Count", 1), 2);
+        counts.line(new String[]{"2025-01-01", "7"});
+
+        FileStats merged = counts.build(size, modified).withColumnsOf(days.build(size, modified));
+        assertNotNull(column(merged, "Day"));
+        assertNotNull(column(merged, "Count"));
+        // statistics of another version of the file are dropped
+        assertFalse(counts.build(size, modified).withColumnsOf(days.build(size + 1, modified)).covers(columns.subList(2, 3)));
+    }
+
+    private FileStats.ColumnStats column(FileStats stats, String name) {
+        return stats.getColumn(columns.stream().filter(column -> column.getName().equals(name)).findFirst().orElseThrow());
+    }
+}
@@ -0,0 +1,172 @@
+package com.playtech.util.input;
+
+import com.playtech.report.Report;
+import com.playtech.report.column.Column;
+import com.playtech.util.reject.RejectSink;
+import com.playtech.util.xml.XmlParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputFilesTest {
+    private static final String REPORT = """
+            <report>
+                <reportName>Input</reportName>
+                <inputs>
+                    <input><name>Id</name><type>INTEGER</type></input>
+                    <input><name>Day</name><type>DATE</type></input>
+                    <input><name>At</name><type>DATETIME</type></input>
+                </inputs>
+                <outputs>
+                    <output><name>Id</name><type>INTEGER</type></output>
+                </outputs>
+                <outputFormat>JSONL</outputFormat>
+                <transformers/>
+            </report>
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private List<Column> inputs;
+
+    @BeforeEach
+    void parseReport() throws Exception {
+        Path xml = tempDir.resolve("Input.xml");
+        Files.writeString(xml, REPORT, StandardCharsets.UTF_8);
+        Report report = XmlParser.parseReport(xml.toString());
+        inputs = report.getInputs();
+    }
+
+    @Test
+    void directoryAndGlobResolveCsvFilesInPathOrder() throws Exception {
+        Path data = tempDir.resolve("data");
+        Path january = write(data.resolve("2025").resolve("01.csv"), 1, "2025-01-05", "2025-01-05T10:00:00Z");
+        Path february = write(data.resolve("2025").resolve("02.csv"), 2, "2025-02-05", "2025-02-05T10:00:00Z");
+        Path older = write(data.resolve("2024").resolve("12.csv"), 3, "2024-12-05", "2024-12-05T10:00:00Z");
+        Files.writeString(data.resolve("notes.txt"), "not an input");
+        read(InputFiles.resolve(data.toString()), 1); // leaves .stats sidecars next to the files
+
+        assertEquals(List.of(older, january, february), InputFiles.resolve(data.toString()).getFiles());
+        assertEquals(List.of(january, february), InputFiles.resolve(data + "/2025/*.csv").getFiles());
+        assertEquals(List.of(older, january, february), InputFiles.resolve(data + "/**.csv").getFiles());
+        assertTrue(InputFiles.isSingleFile(january.toString()));
+        assertFalse(InputFiles.isSingleFile(data.toString()));
+        assertThrows(IllegalArgumentException.class, () -> InputFiles.resolve(data + "/2026/*.csv"));
+    }
+
+    @Test
+    void pruningKeepsFilesWhoseDatesMayBeInRange() throws Exception {
+        Path data = tempDir.resolve("data");
+        Path first = write(data.resolve("a.csv"), 1, "2025-01-01", "2025-01-01T12:00:00Z");
+        Path second = write(data.resolve("b.csv"), 2, "2025-01-02", "2025-01-02T12:00:00Z");
+        // late evening in its own offset, which is the next day in UTC
+        Path third = write(data.resolve("c.csv"), 3, "2025-01-03", "2025-01-03T23:30:00-05:00");
+        Path noStats = data.resolve("d.csv");
+        read(InputFiles.resolve(data.toString()), 2);
+        write(noStats, 4, "2025-01-04", "2025-01-04T12:00:00Z");
+
+        InputFiles files = InputFiles.resolve(data.toString());
+        Column day = column("Day");
+        Column at = column("At");
+        assertEquals(List.of(second, noStats), files.prune(day, DateRange.parse("2025-01-02..2025-01-02")).getFiles());
+        assertEquals(List.of(first, second, noStats), files.prune(day, DateRange.parse("..2025-01-02")).getFiles());
+        assertEquals(List.of(third, noStats), files.prune(at, DateRange.parse("2025-01-03..2025-01-03")).getFiles());
+        assertEquals(List.of(noStats), files.prune(at, DateRange.parse("2025-01-04..")).getFiles());
+        assertEquals(4, files.prune(at, DateRange.parse("2025-01-04..")).getMatched());
+    }
+
+    @Test
+    void someFilesPrunedReadsTheRest() throws Exception {
+        Path data = tempDir.resolve("data");
+        for (int month = 1; month <= 3; month++) {
+            write(data.resolve("0" + month + ".csv"), month, "2025-0" + month + "-10", "2025-0" + month + "-10T12:00:00Z");
+        }
+        read(InputFiles.resolve(data.toString()), 1);
+
+        InputFiles pruned = InputFiles.resolve(data.toString()).prune(column("Day"), DateRange.parse("2025-02-01..2025-03-01"));
+        List<Map<String, Object>> rows = read(pruned, 2);
+        assertEquals(1, pruned.getFiles().size());
+        assertEquals(10, rows.size());
+        assertEquals(LocalDate.of(2025, 2, 10), rows.get(0).get("Day"));
+    }
+
+    @Test
+    void everyFilePrunedReadsNothing() throws Exception {
+        Path data = tempDir.resolve("data");
+        write(data.resolve("a.csv"), 1, "2025-01-01", "2025-01-01T12:00:00Z");
+        write(data.resolve("b.csv"), 2, "2025-01-02", "2025-01-02T12:00:00Z");
+        read(InputFiles.resolve(data.toString()), 1);
+
+        InputFiles pruned = InputFiles.resolve(data.toString()).prune(column("Day"), DateRange.parse("2030-01-01..2030-01-03"));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        assertTrue(pruned.getFiles().isEmpty());
+        assertEquals(0, pruned.read(inputs, RejectSink.stderrOnly(), null, rows, 4));
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    void parallelReadKeepsFileOrder() throws Exception {
+        Path data = tempDir.resolve("data");
+        long size = 0;
+        for (int file = 0; file < 12; file++) {
+            // later files are smaller, so they finish first
+            Path csv = writeIds(data.resolve(String.format("%02d.csv", file)), file * 10000, 2000 - file * 150);
+            size += Files.size(csv);
+        }
+        InputFiles files = InputFiles.resolve(data.toString());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        assertEquals(size, files.read(inputs, RejectSink.stderrOnly(), null, rows, 4));
+
+        int previous = -1;
+        for (Map<String, Object> row : rows) {
+            int id = (Integer) row.get("Id");
+            assertTrue(id > previous, "row " + id + " after " + previous);
+            previous = id;
+        }
+    }
+
+    private List<Map<String, Object>> read(InputFiles files, int threads) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        files.read(inputs, RejectSink.stderrOnly(), null, rows, threads);
+        return rows;
+    }
+
+    private Column column(String name) {
+        return inputs.stream().filter(column -> column.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    // ten rows with the same day and date-time
+    private static Path write(Path csv, int id, String day, String at) throws Exception {
+        StringBuilder text = new StringBuilder("Id,Day,At\n");
+        for (int i = 0; i < 10; i++) {
+            text.append(id).append(',').append(day).append(',').append(at).append('\n');
+        }
+        Files.createDirectories(csv.getParent());
+        Files.writeString(csv, text, StandardCharsets.UTF_8);
+        return csv;
+    }
+
+    private static Path writeIds(Path csv, int from, int count) throws Exception {
+        StringBuilder text = new StringBuilder("Id,Day,At\n");
+        for (int i = 0; i < count; i++) {
+            text.append(from + i).append(",2025-01-01,2025-01-01T00:00:00Z\n");
+        }
+        Files.createDirectories(csv.getParent());
+        Files.writeString(csv, text, StandardCharsets.UTF_8);
+        return csv;
+    }
+}
@@ -0,0 +1,118 @@
+package com.playtech.util.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineMetricsTest {
+    private enum Reason { PARSE_ERROR }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stagesAreNumberedWhenTheyBegin() {
+        PipelineMetrics metrics = new PipelineMetrics("Report");
+        PipelineMetrics.Stage read = metrics.begin("read", 0);
+        PipelineMetrics.Stage store = metrics.begin("cache:store", 10);
+        store.end(10, 0);
+        read.end(10, 100);
+        metrics.begin("write", 10).end(10, 50);
+
+        String json = metrics.toJson();
+        assertTrue(json.contains("{\"index\":2,\"stage\":\"cache:store\""), json);
+        assertTrue(json.contains("{\"index\":1,\"stage\":\"read\""), json);
+        assertTrue(json.contains("{\"index\":3,\"stage\":\"write\""), json);
+        // recorded in the order the stages ended
+        assertEquals(List.of("cache:store", "read", "write"), metrics.getStages().stream().map(PipelineMetrics.Stage::getName).toList());
+    }
+
+    @Test
+    void throughputUsesTheLargerSide() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics("Report");
+        PipelineMetrics.Stage stage = metrics.begin("transform:1:AggregatorTransformer", 1000);
+        Thread.sleep(20);
+        stage.end(10, 0);
+        assertTrue(stage.getWallNanos() >= 20_000_000);
+        assertEquals(1000 * 1_000_000_000.0 / stage.getWallNanos(), stage.getRowsPerSecond(), 1e-6);
+        assertEquals(stage.getWallNanos(), metrics.getTotalNanos());
+    }
+
+    @Test
+    void allocationsAreThoseOfTheStagesThread() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics("Report");
+        PipelineMetrics.Stage own = metrics.begin("own", 0);
+        byte[][] kept = new byte[16][];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = new byte[1 << 20];
+        }
+        own.end(0, 0);
+        PipelineMetrics.Stage other = metrics.begin("other", 0);
+        Thread worker = new Thread(() -> {
+            byte[][] elsewhere = new byte[16][];
+            for (int i = 0; i < elsewhere.length; i++) {
+                elsewhere[i] = new byte[1 << 20];
+            }
+        });
+        worker.start();
+        worker.join();
+        other.end(0, 0);
+
+        if (own.getAllocatedBytes() < 0) {
+            return; // no per-thread allocation counters in this JVM
+        }
+        assertTrue(own.getAllocatedBytes() >= 16L << 20, () -> own.summary());
+        assertTrue(other.getAllocatedBytes() < 4L << 20, () -> other.summary());
+        assertEquals(16, kept.length);
+    }
+
+    @Test
+    void jsonFileHasStagesAndRejects() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics("Quoted \"Report\"");
+        metrics.begin("read", 0).end(5, 123);
+        metrics.setRejectCounts(Map.of(Reason.PARSE_ERROR, 2L));
+        Path file = metrics.writeJson(tempDir.resolve("out"));
+
+        assertEquals(tempDir.resolve("out").resolve("Quoted \"Report\"" + PipelineMetrics.FILE_SUFFIX), file);
+        String json = Files.readString(file).trim();
+        assertTrue(json.startsWith("{\"reportName\":\"Quoted \\\"Report\\\"\",\"startedAt\":\""), json);
+        assertTrue(json.contains("\"rowsIn\":0,\"rowsOut\":5,"), json);
+        assertTrue(json.contains("\"bytes\":123,"), json);
+        assertTrue(json.endsWith("\"rejects\":{\"PARSE_ERROR\":2}}"), json);
+    }
+
+    @Test
+    void everyStageIsAJfrEvent() throws Exception {
+        Path dump = tempDir.resolve("stages.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(StageEvent.class);
+            recording.start();
+            PipelineMetrics metrics = new PipelineMetrics("Report");
+            metrics.begin("read", 0).end(7, 70);
+            metrics.begin("write", 7).end(7, 35);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("com.playtech.report.Stage"))
+                .toList();
+        assertEquals(2, events.size());
+        assertEquals("read", events.get(0).getString("stage"));
+        assertEquals(1, events.get(0).getInt("index"));
+        assertEquals(70, events.get(0).getLong("bytes"));
+        assertEquals("write", events.get(1).getString("stage"));
+        assertEquals(2, events.get(1).getInt("index"));
+        assertEquals("Report", events.get(1).getString("reportName"));
+    }
+}
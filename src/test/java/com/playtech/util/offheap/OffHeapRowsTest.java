@@ -0,0 +1,150 @@
+package com.playtech.util.offheap;
+
+import com.playtech.report.column.Decimal;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapRowsTest {
+    private static final String[] KEYS = {"id", "name", "amount", "day", "at", "flag", "note"};
+
+    @Test
+    void behavesLikeHeapRowsUnderRandomEdits() {
+        Random random = new Random(11);
+        List<Map<String, Object>> heap = new ArrayList<>();
+        try (OffHeapRows offHeap = OffHeapRows.create(List.of())) {
+            for (int step = 0; step < 20_000; step++) {
+                int operation = random.nextInt(10);
+                if (heap.isEmpty() || operation < 3) {
+                    Map<String, Object> row = randomRow(random);
+                    heap.add(row);
+                    offHeap.add(row);
+                } else if (operation < 6) {
+                    // put on a view, the way transformers change rows in place
+                    int index = random.nextInt(heap.size());
+                    String key = KEYS[random.nextInt(KEYS.length)];
+                    Object value = randomValue(random, key);
+                    heap.get(index).put(key, value);
+                    offHeap.get(index).put(key, value);
+                } else if (operation == 6) {
+                    int index = random.nextInt(heap.size());
+                    String key = KEYS[random.nextInt(KEYS.length)];
+                    heap.get(index).remove(key);
+                    offHeap.get(index).remove(key);
+                } else if (operation == 7) {
+                    int index = random.nextInt(heap.size());
+                    Map<String, Object> row = randomRow(random);
+                    heap.set(index, new HashMap<>(row));
+                    offHeap.set(index, row);
+                } else if (operation == 8) {
+                    int from = random.nextInt(heap.size());
+                    int to = Math.min(heap.size(), from + random.nextInt(3));
+                    heap.subList(from, to).clear();
+                    offHeap.subList(from, to).clear();
+                } else if (step % 50 == 0) {
+                    Comparator<Map<String, Object>> byName = Comparator.comparing(row -> String.valueOf(row.get("name")));
+                    heap.sort(byName);
+                    offHeap.sort(byName);
+                }
+            }
+            assertEquals(heap.size(), offHeap.size());
+            for (int i = 0; i < heap.size(); i++) {
+                assertEquals(heap.get(i), offHeap.get(i), "row " + i);
+            }
+        }
+    }
+
+    @Test
+    void replacingAStringThatFitsReusesItsBytes() {
+        try (OffHeapRows rows = OffHeapRows.create(List.of())) {
+            rows.add(new HashMap<>(Map.of("name", "a".repeat(64), "id", 1)));
+            long reserved = rows.reservedBytes();
+            // 25 MB of replacements, 24 string chunks if every one were appended
+            for (int i = 0; i < 200_000; i++) {
+                rows.get(0).put("name", "b".repeat(64));
+                rows.set(0, Map.of("name", "c".repeat(64), "id", i));
+            }
+            assertEquals(reserved, rows.reservedBytes());
+            assertEquals(Map.of("name", "c".repeat(64), "id", 199_999), rows.get(0));
+
+            // the slot is as long as the current string, so shorter ones fit until a longer one is appended
+            rows.get(0).put("name", "d".repeat(10));
+            assertEquals(reserved, rows.reservedBytes());
+            assertEquals("d".repeat(10), rows.get(0).get("name"));
+        }
+    }
+
+    @Test
+    void longerReplacementsGrowTheHeapUntilClear() {
+        try (OffHeapRows rows = OffHeapRows.create(List.of())) {
+            rows.add(new HashMap<>(Map.of("name", "")));
+            long reserved = rows.reservedBytes();
+            // every replacement is longer than the last one, ~4.5 MB appended in total
+            for (int length = 1; length <= 3000; length++) {
+                rows.get(0).put("name", "x".repeat(length));
+            }
+            long grown = rows.reservedBytes();
+            assertTrue(grown > reserved, "reserved " + grown);
+            assertEquals("x".repeat(3000), rows.get(0).get("name"));
+
+            // clear forgets the strings and later rows reuse the string chunks
+            rows.clear();
+            for (int i = 0; i < 1000; i++) {
+                rows.add(new HashMap<>(Map.of("name", "y".repeat(1000))));
+            }
+            assertEquals(grown, rows.reservedBytes());
+            assertEquals("y".repeat(1000), rows.get(999).get("name"));
+        }
+    }
+
+    @Test
+    void removedRowsDontShareStringsWithAddedOnes() {
+        try (OffHeapRows rows = OffHeapRows.create(List.of())) {
+            rows.add(new HashMap<>(Map.of("name", "first")));
+            rows.add(new HashMap<>(Map.of("name", "second")));
+            // row 1 moves to 0, the old slot 1 still points at its bytes
+            rows.subList(0, 1).clear();
+            rows.add(new HashMap<>(Map.of("name", "third")));
+            assertEquals("second", rows.get(0).get("name"));
+            assertEquals("third", rows.get(1).get("name"));
+        }
+    }
+
+    private static Map<String, Object> randomRow(Random random) {
+        Map<String, Object> row = new HashMap<>();
+        for (String key : KEYS) {
+            if (random.nextInt(5) > 0) {
+                row.put(key, randomValue(random, key));
+            }
+        }
+        return row;
+    }
+
+    private static Object randomValue(Random random, String key) {
+        if (random.nextInt(10) == 0) {
+            return null;
+        }
+        return switch (key) {
+            case "id" -> random.nextBoolean() ? (Object) random.nextInt() : (Object) random.nextLong();
+            case "name" -> "player-" + "x".repeat(random.nextInt(40)) + random.nextInt(1000);
+            case "amount" -> random.nextBoolean() ? Decimal.of(random.nextInt(100_000) - 50_000, random.nextInt(4)) : random.nextDouble();
+            case "day" -> LocalDate.ofEpochDay(18_000 + random.nextInt(2000));
+            case "at" -> ZonedDateTime.of(2024, 1 + random.nextInt(12), 1, 12, 30, 0, random.nextInt(1_000_000_000),
+                    ZoneId.of(random.nextBoolean() ? "UTC" : "Europe/Tallinn"));
+            case "flag" -> random.nextBoolean();
+            // sometimes past the string chunk size, those get a segment of their own
+            default -> random.nextInt(200) == 0 ? "n".repeat((1 << 20) + 1) : "note " + random.nextInt(100);
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.playtech.util.reject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RejectSinkTest {
+    private static final String HEADER = "line\treason\tsource\tdetail\traw\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replayOffsetsKnownLineNumbers() throws Exception {
+        Path file = write("worker.tsv", HEADER
+                + "2\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"
+                + "\tTRANSFORM_ERROR\tAggregator\toverflow\tRoulette\n");
+        RejectSink sink = RejectSink.forReport(tempDir.resolve("out"), "Report", RejectSink.NO_BUDGET, 0);
+        sink.replay(file, 100);
+        sink.close();
+
+        assertEquals(2, sink.getTotal());
+        assertEquals(HEADER
+                + "102\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"
+                + "\tTRANSFORM_ERROR\tAggregator\toverflow\tRoulette\n", Files.readString(sink.getRejectFile()));
+    }
+
+    @Test
+    void malformedLineRecordsNothing() throws Exception {
+        RejectSink sink = RejectSink.forReport(tempDir.resolve("out"), "Report", RejectSink.NO_BUDGET, 0);
+        assertThrows(IOException.class, () -> sink.replay(write("number.tsv", HEADER
+                + "2\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"
+                + "two\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"), 0));
+        assertThrows(IOException.class, () -> sink.replay(write("reason.tsv", HEADER
+                + "2\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"
+                + "3\tNO_SUCH_REASON\tCsvDataReader\tbad number\t1,x\n"), 0));
+        assertThrows(IOException.class, () -> sink.replay(write("fields.tsv", HEADER
+                + "2\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"
+                + "3\tPARSE_ERROR\n"), 0));
+        assertThrows(IOException.class, () -> sink.replay(write("header.tsv", "not a rejects file\n"), 0));
+        sink.close();
+
+        assertEquals(0, sink.getTotal());
+        assertFalse(sink.hasRejectFile());
+    }
+
+    @Test
+    void replayCountsAgainstTheBudget() throws Exception {
+        Path file = write("worker.tsv", HEADER
+                + "2\tPARSE_ERROR\tCsvDataReader\tbad number\t1,x\n"
+                + "3\tPARSE_ERROR\tCsvDataReader\tbad number\t2,x\n");
+        RejectSink sink = RejectSink.forReport(tempDir.resolve("out"), "Report", 1, 0);
+        assertThrows(RejectBudgetExceededException.class, () -> sink.replay(file, 0));
+        assertEquals(2, sink.getTotal());
+    }
+
+    @Test
+    void emptyFileReplaysNothing() throws Exception {
+        RejectSink sink = RejectSink.forReport(tempDir.resolve("out"), "Report", RejectSink.NO_BUDGET, 0);
+        sink.replay(write("empty.tsv", ""), 0);
+        assertEquals(0, sink.getTotal());
+    }
+
+    @Test
+    void forReportRemovesAnOldRejectsFile() throws Exception {
+        Path out = Files.createDirectories(tempDir.resolve("out"));
+        Files.writeString(out.resolve("Report" + RejectSink.FILE_SUFFIX), "stale");
+        RejectSink sink = RejectSink.forReport(out, "Report", RejectSink.NO_BUDGET, 0);
+        sink.close();
+        assertFalse(Files.exists(out.resolve("Report" + RejectSink.FILE_SUFFIX)));
+        assertTrue(Files.isDirectory(out));
+    }
+
+    private Path write(String name, String text) throws IOException {
+        return Files.writeString(tempDir.resolve(name), text, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package com.playtech.util.xml;
+
+import com.playtech.report.Report;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedWriterTest {
+    // %s: format, %s: partitioning
+    private static final String REPORT = """
+            <report>
+                <reportName>Parts</reportName>
+                <inputs>
+                    <input><name>Game</name><type>STRING</type></input>
+                    <input><name>Note</name><type>STRING</type></input>
+                </inputs>
+                <outputs>
+                    <output><name>Game</name><type>STRING</type></output>
+                    <output><name>Note</name><type>STRING</type></output>
+                </outputs>
+                <outputFormat>%s</outputFormat>
+                <partitioning>%s</partitioning>
+            </report>
+            """;
+    private static final int LINE_SEPARATOR = System.lineSeparator().length();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void encodesPartitionValuesIntoSafeDirectoryNames() {
+        assertEquals("_null", PartitionedWriter.encode(null));
+        assertEquals("_empty", PartitionedWriter.encode(""));
+        assertEquals("Poker-2024.01", PartitionedWriter.encode("Poker-2024.01"));
+        // '_' is encoded, so a real "_null" can't clash with the null partition
+        assertEquals("%5Fnull", PartitionedWriter.encode("_null"));
+        // only a leading '.' is encoded, ".." and "." can't name the parent or the same directory
+        assertEquals("%2E.", PartitionedWriter.encode(".."));
+        assertEquals("%2Ehidden", PartitionedWriter.encode(".hidden"));
+        assertEquals("a%2Fb%5Cc", PartitionedWriter.encode("a/b\\c"));
+        assertEquals("a%20b%3D1", PartitionedWriter.encode("a b=1"));
+        assertEquals("%C3%A4", PartitionedWriter.encode("ä"));
+    }
+
+    @Test
+    void rotatesAfterMaxRows() throws Exception {
+        List<PartitionedWriter.Part> parts = write("JSONL", "<by>Game</by><maxRows>2</maxRows>", rows(5, "Poker"), 2);
+
+        assertEquals(List.of(2L, 2L, 1L), parts.stream().map(PartitionedWriter.Part::getRows).toList());
+        assertEquals(List.of("part-00000.jsonl", "part-00001.jsonl", "part-00002.jsonl"),
+                parts.stream().map(part -> part.getFile().getFileName().toString()).toList());
+        assertEquals(tempDir.resolve("Parts/Game=Poker"), parts.get(0).getFile().getParent());
+        // rows keep their order across the parts
+        assertTrue(Files.readString(parts.get(2).getFile()).contains("\"Note\":\"note 4\""));
+    }
+
+    @Test
+    void rotatesOnceAFileReachesMaxBytes() throws Exception {
+        List<Map<String, Object>> rows = rows(50, null);
+        List<PartitionedWriter.Part> parts = write("JSONL", "<maxBytes>200</maxBytes>", rows, 1);
+
+        assertTrue(parts.size() > 1);
+        int longestLine = rows.stream().mapToInt(row -> JsonlWriter.formatRowAsJson(row, List.of("Game", "Note")).length() + LINE_SEPARATOR).max().orElseThrow();
+        for (int i = 0; i < parts.size(); i++) {
+            PartitionedWriter.Part part = parts.get(i);
+            assertEquals(Files.size(part.getFile()), part.getBytes());
+            assertEquals(null, part.getPartition());
+            assertEquals(tempDir.resolve("Parts"), part.getFile().getParent());
+            // the check runs before each row, so a file stops at the first row that reaches the limit
+            if (i < parts.size() - 1) {
+                assertTrue(part.getBytes() >= 200 && part.getBytes() < 200 + longestLine, "part " + i + ": " + part.getBytes());
+            }
+        }
+        assertEquals(50, parts.stream().mapToLong(PartitionedWriter.Part::getRows).sum());
+    }
+
+    @Test
+    void manifestCountsEveryFile() throws Exception {
+        List<Map<String, Object>> data = new ArrayList<>(rows(3, "Poker"));
+        data.addAll(rows(4, null));
+        data.addAll(rows(2, ""));
+        List<PartitionedWriter.Part> parts = write("CSV", "<by>Game</by><maxRows>3</maxRows>", data, 3);
+
+        String manifest = Files.readString(PartitionedWriter.manifestFile(tempDir, "Parts"), StandardCharsets.UTF_8);
+        assertTrue(manifest.startsWith("{\"report\":\"Parts\",\"format\":\"CSV\",\"partitionBy\":\"Game\",\"rows\":9,"), manifest);
+        long bytes = 0;
+        for (PartitionedWriter.Part part : parts) {
+            bytes += Files.size(part.getFile());
+        }
+        assertTrue(manifest.contains("\"bytes\":" + bytes + ",\"files\":["), manifest);
+
+        // null sorts first, then the empty string and the values
+        List<String> files = matches(manifest, "\"path\":\"([^\"]+)\"");
+        assertEquals(List.of("Parts/Game=_null/part-00000.csv", "Parts/Game=_null/part-00001.csv", "Parts/Game=_empty/part-00000.csv",
+                "Parts/Game=Poker/part-00000.csv"), files);
+        assertEquals(List.of("3", "1", "2", "3"), matches(manifest, "\"rows\":(\\d+),\"bytes\":\\d+}"));
+        assertTrue(manifest.contains("\"partition\":null"));
+        assertTrue(manifest.contains("\"partition\":\"\""));
+    }
+
+    @Test
+    void quotesCsvFieldsAndRepeatsTheHeaderInEveryPart() throws Exception {
+        List<Map<String, Object>> data = new ArrayList<>();
+        data.add(row("Poker", "plain"));
+        data.add(row("Poker", "a,b"));
+        data.add(row("Poker", "say \"hi\""));
+        data.add(row("Poker", "two\nlines"));
+        List<PartitionedWriter.Part> parts = write("CSV", "<by>Game</by><maxRows>2</maxRows>", data, 1);
+
+        String separator = System.lineSeparator();
+        assertEquals("Game,Note" + separator + "Poker,plain" + separator + "Poker,\"a,b\"" + separator, Files.readString(parts.get(0).getFile()));
+        assertEquals("Game,Note" + separator + "Poker,\"say \"\"hi\"\"\"" + separator + "Poker,\"two\nlines\"" + separator, Files.readString(parts.get(1).getFile()));
+    }
+
+    @Test
+    void removesPartsOfAnEarlierRun() throws Exception {
+        write("JSONL", "<by>Game</by>", rows(2, "Old"), 1);
+        write("JSONL", "<by>Game</by>", rows(2, "New"), 1);
+
+        assertFalse(Files.exists(tempDir.resolve("Parts/Game=Old")));
+        assertTrue(Files.exists(tempDir.resolve("Parts/Game=New/part-00000.jsonl")));
+    }
+
+    private List<PartitionedWriter.Part> write(String format, String partitioning, List<Map<String, Object>> data, int threads) throws Exception {
+        Path xml = Files.writeString(tempDir.resolve("Parts.xml"), REPORT.formatted(format, partitioning), StandardCharsets.UTF_8);
+        Report report = XmlParser.parseReport(xml.toString());
+        return PartitionedWriter.writeData(tempDir, report.getReportName(), report.getOutputFormat(), report.getOutputs(),
+                report.getPartitioning(), data, threads);
+    }
+
+    private static List<Map<String, Object>> rows(int count, String game) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(row(game, "note " + i));
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> row(String game, String note) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("Game", game);
+        row.put("Note", note);
+        return row;
+    }
+
+    private static List<String> matches(String text, String regex) throws IOException {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = Pattern.compile(regex).matcher(text);
+        while (matcher.find()) {
+            found.add(matcher.group(1));
+        }
+        return found;
+    }
+}